@@ -0,0 +1,92 @@
+package tiny.ledger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.persistence.MovementJournal;
+import tiny.ledger.repository.AccountLedger;
+import tiny.ledger.repository.AccountLedgerRegistry;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.LedgerRepositoryImpl;
+import tiny.ledger.service.LedgerService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deposit throughput as writer threads grow, either all on one account or spread over many.
+ * With one account every write contends on the same lock; with many, throughput should scale with threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class AccountContentionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Ledger {
+        @Param({"1", "64"})
+        public int accounts;
+
+        final AtomicInteger nextThread = new AtomicInteger();
+        LedgerService ledgerService;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            nextThread.set(0);
+            ledgerService = new LedgerService(new AccountLedgerRegistry(
+                    new AccountLedger(AccountLedgers.DEFAULT_ACCOUNT, new LedgerRepositoryImpl(), MovementJournal.DISABLED),
+                    accountId -> new AccountLedger(accountId, new LedgerRepositoryImpl(), MovementJournal.DISABLED)));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        String accountId;
+
+        @Setup(Level.Iteration)
+        public void setUp(Ledger ledger) {
+            accountId = "account-" + ledger.nextThread.getAndIncrement() % ledger.accounts;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Movement threads1(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Movement threads2(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Movement threads4(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Movement threads8(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    private static Movement deposit(Ledger ledger, Writer writer) {
+        return ledger.ledgerService.recordMovement(writer.accountId, 100L, Movement.MovementType.DEPOSIT, "Benchmark deposit", null);
+    }
+}
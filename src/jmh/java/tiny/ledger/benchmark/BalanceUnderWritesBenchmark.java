@@ -0,0 +1,79 @@
+package tiny.ledger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.repository.LedgerRepositoryImpl;
+import tiny.ledger.service.LedgerService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code getCurrentBalanceInCents} throughput while other threads keep writing to the same account. Balance reads
+ * take no lock, so they should be unaffected by the number of writers; the groups report reads and writes apart.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BalanceUnderWritesBenchmark {
+
+    private LedgerService ledgerService;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ledgerService = new LedgerService(new LedgerRepositoryImpl());
+    }
+
+    @Benchmark
+    @Group("readsOnly")
+    @GroupThreads(4)
+    public long readsOnlyBalance() {
+        return ledgerService.getCurrentBalanceInCents();
+    }
+
+    @Benchmark
+    @Group("oneWriter")
+    @GroupThreads(3)
+    public long oneWriterBalance() {
+        return ledgerService.getCurrentBalanceInCents();
+    }
+
+    @Benchmark
+    @Group("oneWriter")
+    @GroupThreads(1)
+    public Movement oneWriterDeposit() {
+        return deposit();
+    }
+
+    @Benchmark
+    @Group("fourWriters")
+    @GroupThreads(4)
+    public long fourWritersBalance() {
+        return ledgerService.getCurrentBalanceInCents();
+    }
+
+    @Benchmark
+    @Group("fourWriters")
+    @GroupThreads(4)
+    public Movement fourWritersDeposit() {
+        return deposit();
+    }
+
+    private Movement deposit() {
+        return ledgerService.recordMovement(100L, Movement.MovementType.DEPOSIT, "Benchmark deposit", null);
+    }
+}
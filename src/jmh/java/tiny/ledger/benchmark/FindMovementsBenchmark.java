@@ -0,0 +1,84 @@
+package tiny.ledger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.persistence.MovementJournal;
+import tiny.ledger.persistence.SnapshotStore;
+import tiny.ledger.repository.IdempotencyKeyStore;
+import tiny.ledger.repository.LedgerRepository;
+import tiny.ledger.repository.LedgerRepositoryImpl;
+import tiny.ledger.repository.StorageLayout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History page latency as the ledger grows: the newest page, a page deep into the history by offset and the same
+ * page by cursor. All three should stay flat in the ledger size and grow with the page size only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FindMovementsBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int ledgerSize;
+
+    @Param({"10", "100"})
+    public int pageSize;
+
+    @Param({"HEAP", "COLUMNAR"})
+    public StorageLayout layout;
+
+    private LedgerRepository repository;
+    private int deepOffset;
+    private long deepCursor;
+
+    @Setup
+    public void setUp() {
+        repository = new LedgerRepositoryImpl(layout, new IdempotencyKeyStore(), MovementJournal.DISABLED, SnapshotStore.DISABLED);
+        List<Movement> batch = new ArrayList<>(1000);
+        for (int i = 0; i < ledgerSize; i++) {
+            batch.add(new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Benchmark deposit " + i, null));
+            if (batch.size() == 1000) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            repository.saveAll(batch);
+        }
+        deepOffset = ledgerSize / 2;
+        deepCursor = ledgerSize - deepOffset + 1;
+    }
+
+    @Benchmark
+    public List<Movement> newestPage() {
+        return repository.findMovements(pageSize, 0);
+    }
+
+    @Benchmark
+    public List<Movement> deepPageByOffset() {
+        return repository.findMovements(pageSize, deepOffset);
+    }
+
+    @Benchmark
+    public List<Movement> deepPageByCursor() {
+        return repository.findMovementsOlderThan(deepCursor, pageSize);
+    }
+}
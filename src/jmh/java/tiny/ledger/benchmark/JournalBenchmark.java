@@ -0,0 +1,69 @@
+package tiny.ledger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.persistence.FileMovementJournal;
+import tiny.ledger.persistence.FsyncPolicy;
+import tiny.ledger.persistence.MovementJournal;
+import tiny.ledger.repository.LedgerRepositoryImpl;
+import tiny.ledger.service.LedgerService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit throughput with the journal disabled and under each fsync policy.
+ * Runs with several writer threads so group commit has concurrent writers to batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Threads(8)
+public class JournalBenchmark {
+
+    @Param({"NONE", "OS", "GROUP", "ALWAYS"})
+    public String fsync;
+    private Path directory;
+    private MovementJournal journal;
+    private LedgerService ledgerService;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-journal-benchmark");
+        journal = fsync.equals("NONE")
+                ? MovementJournal.DISABLED
+                : new FileMovementJournal(directory.resolve("ledger.journal"), FsyncPolicy.valueOf(fsync), Duration.ZERO, 256);
+        ledgerService = new LedgerService(new LedgerRepositoryImpl(journal), journal);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(directory.resolve("ledger.journal"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Movement recordDeposit() {
+        return ledgerService.recordMovement(100L, Movement.MovementType.DEPOSIT, "Benchmark deposit", null);
+    }
+}
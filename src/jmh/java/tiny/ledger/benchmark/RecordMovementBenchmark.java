@@ -0,0 +1,92 @@
+package tiny.ledger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.repository.LedgerRepositoryImpl;
+import tiny.ledger.service.LedgerService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code recordMovement} throughput on the default account as threads grow, with a fresh idempotency key per
+ * movement or none at all. Keys add a lookup and an insert into the key store under the account lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RecordMovementBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Ledger {
+        @Param({"false", "true"})
+        public boolean idempotencyKeys;
+
+        final AtomicInteger nextThread = new AtomicInteger();
+        LedgerService ledgerService;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            nextThread.set(0);
+            ledgerService = new LedgerService(new LedgerRepositoryImpl());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        String keyPrefix;
+        long nextKey;
+
+        @Setup(Level.Iteration)
+        public void setUp(Ledger ledger) {
+            keyPrefix = "thread-" + ledger.nextThread.getAndIncrement() + "-";
+            nextKey = 0L;
+        }
+
+        String nextKey(Ledger ledger) {
+            return ledger.idempotencyKeys ? keyPrefix + nextKey++ : null;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Movement threads1(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Movement threads2(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Movement threads4(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Movement threads8(Ledger ledger, Writer writer) {
+        return deposit(ledger, writer);
+    }
+
+    private static Movement deposit(Ledger ledger, Writer writer) {
+        return ledger.ledgerService.recordMovement(100L, Movement.MovementType.DEPOSIT, "Benchmark deposit", writer.nextKey(ledger));
+    }
+}
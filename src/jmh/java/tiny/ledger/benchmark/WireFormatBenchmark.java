@@ -0,0 +1,82 @@
+package tiny.ledger.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tiny.ledger.controller.BinaryMessageConverter;
+import tiny.ledger.dto.ListResponse;
+import tiny.ledger.dto.TransactionResponse;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode time of a history page as JSON and in the binary wire format. The serialized sizes are printed
+ * once per fork during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private JavaType pageType;
+    private ListResponse<TransactionResponse> page;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        pageType = objectMapper.getTypeFactory().constructParametricType(ListResponse.class, TransactionResponse.class);
+        List<TransactionResponse> transactions = new ArrayList<>(pageSize);
+        Instant createdOn = Instant.now();
+        for (int i = pageSize; i > 0; i--) {
+            transactions.add(new TransactionResponse(i, 100L * i, createdOn.minusMillis(i), "Card payment " + i,
+                                                     i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL"));
+        }
+        page = new ListResponse<>(transactions, pageSize, 0, pageSize);
+        json = objectMapper.writeValueAsBytes(page);
+        binary = BinaryMessageConverter.encode(page);
+        System.out.printf("%n%d transactions: JSON %d bytes, binary %d bytes%n", pageSize, json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return BinaryMessageConverter.encode(page);
+    }
+
+    @Benchmark
+    public Object decodeJson() throws IOException {
+        return objectMapper.readValue(json, pageType);
+    }
+
+    @Benchmark
+    public Object decodeBinary() throws IOException {
+        return BinaryMessageConverter.decode(binary, ListResponse.class);
+    }
+}
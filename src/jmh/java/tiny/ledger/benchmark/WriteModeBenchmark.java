@@ -0,0 +1,101 @@
+package tiny.ledger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.metrics.LedgerMetrics;
+import tiny.ledger.persistence.FileMovementJournal;
+import tiny.ledger.persistence.FsyncPolicy;
+import tiny.ledger.persistence.MovementJournal;
+import tiny.ledger.repository.AccountLedger;
+import tiny.ledger.repository.AccountLedgerRegistry;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.LedgerRepositoryImpl;
+import tiny.ledger.service.LedgerSequencer;
+import tiny.ledger.service.LedgerService;
+import tiny.ledger.service.WriteMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit throughput on a single account, with request threads taking the account lock, handing their commands to
+ * the sequencer's writer thread or committing by compare-and-set, both in memory and with a group-committed journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class WriteModeBenchmark {
+
+    @Param({"LOCKED", "SEQUENCER", "LOCK_FREE"})
+    public WriteMode mode;
+
+    @Param({"NONE", "GROUP"})
+    public String fsync;
+
+    private Path directory;
+    private MovementJournal journal;
+    private LedgerSequencer sequencer;
+    private LedgerService ledgerService;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-write-mode-benchmark");
+        journal = fsync.equals("NONE")
+                ? MovementJournal.DISABLED
+                : new FileMovementJournal(directory.resolve("ledger.journal"), FsyncPolicy.valueOf(fsync), Duration.ZERO, 256);
+        sequencer = mode == WriteMode.SEQUENCER ? new LedgerSequencer(65536) : null;
+        ledgerService = new LedgerService(new AccountLedgerRegistry(
+                new AccountLedger(AccountLedgers.DEFAULT_ACCOUNT, new LedgerRepositoryImpl(journal), journal)), mode, sequencer, LedgerMetrics.NOOP);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (sequencer != null) {
+            sequencer.close();
+        }
+        journal.close();
+        Files.deleteIfExists(directory.resolve("ledger.journal"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Movement threads1() {
+        return deposit();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Movement threads8() {
+        return deposit();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Movement threads32() {
+        return deposit();
+    }
+
+    private Movement deposit() {
+        return ledgerService.recordMovement(AccountLedgers.DEFAULT_ACCOUNT, 100L, Movement.MovementType.DEPOSIT, "Benchmark deposit", null);
+    }
+}
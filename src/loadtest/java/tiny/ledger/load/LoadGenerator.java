@@ -0,0 +1,330 @@
+package tiny.ledger.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for a running ledger: requests are started on a fixed schedule at the target rate whatever
+ * the server's response times, and each latency is measured from the time its request was scheduled to start. A slow
+ * server therefore shows up in the percentiles instead of quietly lowering the offered rate.
+ * <p>
+ * Operations are picked from the mix with a seeded {@link Random}, so two runs with the same options send the same
+ * sequence of requests. Requests sent during the warmup are not recorded.
+ * <pre>
+ * ./gradlew loadTest --args="--rate=2000 --duration=30s --mix=deposit=50,balance=25,history=25"
+ * </pre>
+ */
+public final class LoadGenerator {
+    private static final int MAX_MIX_WEIGHT = 1_000_000;
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("base-url", "http://localhost:8080");
+        DEFAULTS.put("account", "");
+        DEFAULTS.put("rate", "500");
+        DEFAULTS.put("duration", "30s");
+        DEFAULTS.put("warmup", "5s");
+        DEFAULTS.put("mix", "deposit=20,withdrawal=5,balance=40,history=35");
+        DEFAULTS.put("page-size", "20");
+        DEFAULTS.put("max-offset", "0");
+        DEFAULTS.put("max-in-flight", "256");
+        DEFAULTS.put("timeout", "10s");
+        DEFAULTS.put("seed", "42");
+    }
+
+    private final URI baseUri;
+    private final int rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Mix mix;
+    private final int pageSize;
+    private final int maxOffset;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final long seed;
+    private final Map<String, String> options;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        String account = options.get("account");
+        String base = options.get("base-url").replaceAll("/+$", "");
+        this.baseUri = URI.create(account.isEmpty() ? base : base + "/accounts/" + account);
+        this.rate = positive("rate", Integer.parseInt(options.get("rate")));
+        this.duration = parseDuration(options.get("duration"));
+        this.warmup = parseDuration(options.get("warmup"));
+        this.mix = parseMix(options.get("mix"));
+        this.pageSize = positive("page-size", Integer.parseInt(options.get("page-size")));
+        this.maxOffset = Integer.parseInt(options.get("max-offset"));
+        this.maxInFlight = positive("max-in-flight", Integer.parseInt(options.get("max-in-flight")));
+        this.timeout = parseDuration(options.get("timeout"));
+        this.seed = Long.parseLong(options.get("seed"));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0 || !DEFAULTS.containsKey(arg.substring(2, equals))) {
+                System.err.println((arg.equals("--help") ? "" : "Unknown option " + arg + "; ") + "options and defaults:");
+                DEFAULTS.forEach((name, value) -> System.err.println("  --" + name + "=" + value));
+                System.exit(arg.equals("--help") ? 0 : 2);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                                      .version(HttpClient.Version.HTTP_1_1)
+                                      .connectTimeout(timeout)
+                                      .build();
+        int warmupRequests = (int) (rate * warmup.toNanos() / 1_000_000_000L);
+        int measuredRequests = (int) (rate * duration.toNanos() / 1_000_000_000L);
+        int total = warmupRequests + measuredRequests;
+        double intervalNanos = 1_000_000_000.0 / rate;
+
+        // Indexed by request number, written by the client's threads and read once every request has completed.
+        Operation[] operations = new Operation[measuredRequests];
+        long[] latencies = new long[measuredRequests];
+        int[] statuses = new int[measuredRequests];
+        long[] completed = new long[measuredRequests];
+
+        System.out.printf(Locale.ROOT, "Offering %d requests/s to %s for %s after a %s warmup, mix %s, seed %d%n", rate,
+                          baseUri, options.get("duration"), options.get("warmup"), options.get("mix"), seed);
+
+        Random random = new Random(seed);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long start = System.nanoTime() + 100_000_000L;
+        long measureStart = start + (long) (warmupRequests * intervalNanos);
+        long maxDispatchLag = 0L;
+        for (int i = 0; i < total; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            if (i >= warmupRequests) {
+                maxDispatchLag = Math.max(maxDispatchLag, System.nanoTime() - intended);
+            }
+            Operation operation = pick(random);
+            HttpRequest request = operation.request(this, random);
+            int slot = i - warmupRequests;
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long now = System.nanoTime();
+                if (slot >= 0) {
+                    operations[slot] = operation;
+                    latencies[slot] = now - intended;
+                    statuses[slot] = failure == null ? response.statusCode() : 0;
+                    completed[slot] = now;
+                }
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(maxInFlight);
+
+        report(operations, latencies, statuses, measureStart, Arrays.stream(completed).max().orElse(measureStart),
+               maxDispatchLag);
+    }
+
+    private void report(Operation[] operations, long[] latencies, int[] statuses, long measureStart, long measureEnd,
+                        long maxDispatchLag) {
+        double seconds = Math.max(1L, measureEnd - measureStart) / 1_000_000_000.0;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-12s %9s %8s %12s %9s %9s %9s %9s%n",
+                          "operation", "count", "errors", "throughput/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        List<Operation> rows = new ArrayList<>(Arrays.asList(Operation.values()));
+        rows.add(null);
+        for (Operation row : rows) {
+            long[] selected = new long[latencies.length];
+            int count = 0;
+            int errors = 0;
+            for (int i = 0; i < latencies.length; i++) {
+                if (row == null || operations[i] == row) {
+                    selected[count++] = latencies[i];
+                    if (statuses[i] < 200 || statuses[i] >= 300) {
+                        errors++;
+                    }
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            long[] sorted = Arrays.copyOf(selected, count);
+            Arrays.sort(sorted);
+            System.out.printf(Locale.ROOT, "%-12s %9d %8d %12.1f %9.2f %9.2f %9.2f %9.2f%n",
+                              row == null ? "all" : row.label, count, errors, count / seconds,
+                              millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                              millis(percentile(sorted, 0.999)), millis(sorted[count - 1]));
+        }
+
+        Map<Integer, Integer> byStatus = new TreeMap<>();
+        for (int status : statuses) {
+            byStatus.merge(status, 1, Integer::sum);
+        }
+        System.out.println();
+        System.out.println("Responses by status (0 = no response): " + byStatus);
+        System.out.printf(Locale.ROOT, "Longest dispatch delay: %.2f ms%s%n", millis(maxDispatchLag),
+                          maxDispatchLag > 10_000_000L ? " (behind schedule, e.g. at --max-in-flight; latencies still count from the scheduled start)" : "");
+    }
+
+    private Operation pick(Random random) {
+        return mix.pick(random);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static int positive(String option, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("--" + option + " must be greater than zero.");
+        }
+        return value;
+    }
+
+    /**
+     * {@code 500ms}, {@code 30s} or {@code 2m}.
+     */
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        } else if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        } else if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        throw new IllegalArgumentException("Durations are given as e.g. 500ms, 30s or 2m, got " + value + ".");
+    }
+
+    /**
+     * Weights such as {@code deposit=20,balance=80}: each operation given once with a positive weight, the weights
+     * adding up to at most {@value #MAX_MIX_WEIGHT}. Only the ratios matter, so {@code 1,4} and {@code 20,80} are the
+     * same mix.
+     */
+    static Mix parseMix(String value) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        long total = 0L;
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("The mix is given as operation=weight pairs, got " + entry + ".");
+            }
+            Operation operation = Operation.of(parts[0]);
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Mix weights must be greater than zero, got " + entry.trim() + ".");
+            }
+            if (weights.put(operation, weight) != null) {
+                throw new IllegalArgumentException("The mix names " + operation.label + " more than once.");
+            }
+            total += weight;
+            if (total > MAX_MIX_WEIGHT) {
+                throw new IllegalArgumentException("Mix weights must add up to at most " + MAX_MIX_WEIGHT + ".");
+            }
+        }
+        Operation[] operations = weights.keySet().toArray(Operation[]::new);
+        int[] cumulative = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulative[i] = sum;
+        }
+        return new Mix(operations, cumulative);
+    }
+
+    /**
+     * Operations with their running weight totals; a uniform draw below the total falls in one operation's share.
+     */
+    record Mix(Operation[] operations, int[] cumulative) {
+        Operation pick(Random random) {
+            int draw = random.nextInt(cumulative[cumulative.length - 1]);
+            int i = 0;
+            while (cumulative[i] <= draw) {
+                i++;
+            }
+            return operations[i];
+        }
+    }
+
+    enum Operation {
+        DEPOSIT("deposit") {
+            @Override
+            HttpRequest request(LoadGenerator generator, Random random) {
+                return generator.post("{\"amountInCents\":" + (100 + random.nextInt(10_000))
+                                      + ",\"type\":\"DEPOSIT\",\"description\":\"Load test deposit\"}");
+            }
+        },
+        WITHDRAWAL("withdrawal") {
+            @Override
+            HttpRequest request(LoadGenerator generator, Random random) {
+                return generator.post("{\"amountInCents\":" + (1 + random.nextInt(100))
+                                      + ",\"type\":\"WITHDRAWAL\",\"description\":\"Load test withdrawal\"}");
+            }
+        },
+        BALANCE("balance") {
+            @Override
+            HttpRequest request(LoadGenerator generator, Random random) {
+                return generator.get("/balance");
+            }
+        },
+        HISTORY("history") {
+            @Override
+            HttpRequest request(LoadGenerator generator, Random random) {
+                int pages = generator.maxOffset / generator.pageSize + 1;
+                return generator.get("/transactions?limit=" + generator.pageSize
+                                     + "&offset=" + random.nextInt(pages) * generator.pageSize);
+            }
+        };
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        abstract HttpRequest request(LoadGenerator generator, Random random);
+
+        static Operation of(String label) {
+            for (Operation operation : values()) {
+                if (operation.label.equals(label.trim())) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation " + label + "; expected deposit, withdrawal, balance or history.");
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                          .timeout(timeout)
+                          .GET()
+                          .build();
+    }
+
+    private HttpRequest post(String body) {
+        return HttpRequest.newBuilder(URI.create(baseUri + "/transactions"))
+                          .timeout(timeout)
+                          .header("Content-Type", "application/json")
+                          .POST(HttpRequest.BodyPublishers.ofString(body))
+                          .build();
+    }
+}
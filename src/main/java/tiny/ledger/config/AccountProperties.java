@@ -0,0 +1,11 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+@ConfigurationProperties(prefix = "ledger.accounts")
+public record AccountProperties(@DefaultValue("data/accounts") Path directory,
+                                @DefaultValue("10000") int max) {
+}
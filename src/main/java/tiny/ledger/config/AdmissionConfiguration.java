@@ -0,0 +1,51 @@
+package tiny.ledger.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tiny.ledger.service.AdmissionController;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfiguration {
+
+    /**
+     * With {@code ledger.admission.enabled=false} every request is admitted, as {@link AdmissionController#UNLIMITED}.
+     */
+    @Bean
+    public AdmissionController admissionController(AdmissionProperties properties) {
+        if (!properties.enabled()) {
+            return AdmissionController.UNLIMITED;
+        }
+        return new AdmissionController(
+                new AdmissionController.Budget("read", properties.reads().maxInFlight(),
+                                               properties.reads().maxQueueWait(), properties.retryAfter()),
+                new AdmissionController.Budget("write", properties.writes().maxInFlight(),
+                                               properties.writes().maxQueueWait(), properties.retryAfter()));
+    }
+
+    @Bean
+    public MeterBinder admissionMeterBinder(AdmissionController admissionController) {
+        return registry -> {
+            for (AdmissionController.Budget budget : List.of(admissionController.reads(), admissionController.writes())) {
+                Gauge.builder("ledger.admission.in.flight", budget, AdmissionController.Budget::inFlight)
+                     .description("Requests admitted and not yet completed")
+                     .tag("budget", budget.name())
+                     .register(registry);
+                Gauge.builder("ledger.admission.queue", budget, AdmissionController.Budget::queueDepth)
+                     .description("Requests waiting for a slot")
+                     .tag("budget", budget.name())
+                     .register(registry);
+                FunctionCounter.builder("ledger.admission.rejections", budget, AdmissionController.Budget::rejections)
+                               .description("Requests rejected after waiting the maximum queue wait")
+                               .tag("budget", budget.name())
+                               .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.admission")
+public record AdmissionProperties(@DefaultValue("false") boolean enabled,
+                                  @DefaultValue Reads reads,
+                                  @DefaultValue Writes writes,
+                                  @DefaultValue("1s") Duration retryAfter) {
+
+    public record Reads(@DefaultValue("256") int maxInFlight,
+                        @DefaultValue("50ms") Duration maxQueueWait) {
+    }
+
+    public record Writes(@DefaultValue("64") int maxInFlight,
+                         @DefaultValue("50ms") Duration maxQueueWait) {
+    }
+}
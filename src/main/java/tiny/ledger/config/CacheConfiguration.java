@@ -0,0 +1,18 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.service.VersionedResponseCache;
+
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfiguration {
+
+    @Bean
+    public VersionedResponseCache responseCache(AccountLedgers accountLedgers, CacheProperties properties) {
+        return new VersionedResponseCache(accountLedgers, properties.maxPages(), properties.maxPageSize(),
+                                          properties.maxBytes().toBytes());
+    }
+}
@@ -0,0 +1,16 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param maxPages    pages cached per account
+ * @param maxPageSize largest limit of a cached page
+ * @param maxBytes    bodies cached across all accounts
+ */
+@ConfigurationProperties(prefix = "ledger.cache")
+public record CacheProperties(@DefaultValue("64") int maxPages,
+                              @DefaultValue("100") int maxPageSize,
+                              @DefaultValue("64MB") DataSize maxBytes) {
+}
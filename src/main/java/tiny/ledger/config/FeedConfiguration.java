@@ -0,0 +1,18 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.service.MovementFeed;
+
+@Configuration
+@EnableConfigurationProperties(FeedProperties.class)
+public class FeedConfiguration {
+
+    @Bean
+    public MovementFeed movementFeed(AccountLedgers accountLedgers, FeedProperties properties) {
+        return new MovementFeed(accountLedgers, properties.maxLag(), properties.maxSubscribers(),
+                                properties.deliveryThreads(), properties.sendTimeout());
+    }
+}
@@ -0,0 +1,14 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.feed")
+public record FeedProperties(@DefaultValue("10000") long maxLag,
+                             @DefaultValue("30m") Duration timeout,
+                             @DefaultValue("1000") int maxSubscribers,
+                             @DefaultValue("8") int deliveryThreads,
+                             @DefaultValue("10s") Duration sendTimeout) {
+}
@@ -0,0 +1,11 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.idempotency")
+public record IdempotencyProperties(@DefaultValue("1h") Duration retention,
+                                    @DefaultValue("1000000") int maxKeys) {
+}
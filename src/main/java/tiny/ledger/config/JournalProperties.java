@@ -0,0 +1,19 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import tiny.ledger.persistence.FsyncPolicy;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.journal")
+public record JournalProperties(@DefaultValue("false") boolean enabled,
+                                @DefaultValue("data/ledger.journal") Path path,
+                                @DefaultValue("GROUP") FsyncPolicy fsync,
+                                @DefaultValue GroupCommit groupCommit) {
+
+    public record GroupCommit(@DefaultValue("0ms") Duration interval,
+                              @DefaultValue("256") int maxRecords) {
+    }
+}
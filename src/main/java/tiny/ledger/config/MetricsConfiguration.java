@@ -0,0 +1,52 @@
+package tiny.ledger.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tiny.ledger.metrics.LedgerMeterBinder;
+import tiny.ledger.metrics.LedgerMetrics;
+import tiny.ledger.metrics.MicrometerLedgerMetrics;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.Tiering;
+
+@Configuration
+@EnableConfigurationProperties(MetricsProperties.class)
+public class MetricsConfiguration {
+
+    /**
+     * With {@code ledger.metrics.enabled=false} the write and read paths get {@link LedgerMetrics#NOOP} and skip
+     * timing altogether.
+     */
+    @Bean
+    public LedgerMetrics ledgerMetrics(MetricsProperties properties, MeterRegistry meterRegistry) {
+        return properties.enabled() ? new MicrometerLedgerMetrics(meterRegistry) : LedgerMetrics.NOOP;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ledger.metrics.enabled", havingValue = "true", matchIfMissing = true)
+    public LedgerMeterBinder ledgerMeterBinder(AccountLedgers accountLedgers) {
+        return new LedgerMeterBinder(accountLedgers);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ledger.storage.tiering.enabled", havingValue = "true")
+    public MeterBinder tieringMeterBinder(Tiering tiering) {
+        return registry -> {
+            FunctionCounter.builder("ledger.tiering.cache", tiering, Tiering::cacheHits)
+                           .description("Segment blocks and postings read through the caches")
+                           .tag("result", "hit")
+                           .register(registry);
+            FunctionCounter.builder("ledger.tiering.cache", tiering, Tiering::cacheMisses)
+                           .description("Segment blocks and postings read through the caches")
+                           .tag("result", "miss")
+                           .register(registry);
+            FunctionCounter.builder("ledger.tiering.segments", tiering, Tiering::sealedSegments)
+                           .description("Segments sealed to disk and released from the heap")
+                           .register(registry);
+        };
+    }
+}
@@ -0,0 +1,8 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "ledger.metrics")
+public record MetricsProperties(@DefaultValue("true") boolean enabled) {
+}
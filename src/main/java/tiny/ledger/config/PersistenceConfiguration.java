@@ -0,0 +1,124 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import tiny.ledger.metrics.LedgerMetrics;
+import tiny.ledger.persistence.FileMovementJournal;
+import tiny.ledger.persistence.MappedSnapshotStore;
+import tiny.ledger.persistence.MovementJournal;
+import tiny.ledger.persistence.SnapshotStore;
+import tiny.ledger.repository.AccountLedger;
+import tiny.ledger.repository.AccountLedgerRegistry;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.IdempotencyKeyStore;
+import tiny.ledger.repository.LedgerRepository;
+import tiny.ledger.repository.LedgerRepositoryImpl;
+import tiny.ledger.repository.Tiering;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({JournalProperties.class, SnapshotProperties.class, AccountProperties.class,
+                               StorageProperties.class, IdempotencyProperties.class})
+public class PersistenceConfiguration {
+
+    @Bean
+    public MovementJournal movementJournal(JournalProperties properties) {
+        return openJournal(properties, properties.path());
+    }
+
+    @Bean
+    public SnapshotStore snapshotStore(SnapshotProperties properties) {
+        return openSnapshots(properties, properties.directory());
+    }
+
+    /**
+     * Shared by every account: the thread sealing segments and the cache of blocks read back from them.
+     */
+    @Bean
+    public Tiering tiering(StorageProperties properties) {
+        StorageProperties.Tiering tiering = properties.tiering();
+        if (!tiering.enabled()) {
+            return Tiering.DISABLED;
+        }
+        return new Tiering(tiering.hotMovements(), tiering.hotAge(), tiering.cacheBlocks());
+    }
+
+    @Bean
+    public LedgerRepository ledgerRepository(StorageProperties storageProperties,
+                                             IdempotencyProperties idempotencyProperties,
+                                             MovementJournal movementJournal,
+                                             SnapshotStore snapshotStore,
+                                             LedgerMetrics ledgerMetrics,
+                                             Tiering tiering) {
+        return new LedgerRepositoryImpl(storageProperties.layout(), idempotencyKeys(idempotencyProperties), movementJournal, snapshotStore,
+                                        ledgerMetrics, tiering, storageProperties.tiering().directory(),
+                                        storageProperties.index().maxTokens());
+    }
+
+    /**
+     * The default account is the ledger behind the unscoped endpoints; every other account gets its own
+     * journal, snapshots and segments under {@code ledger.accounts.directory/<accountId>}. Accounts are opened by
+     * their first write, up to {@code ledger.accounts.max}, and those found on disk are restored at startup.
+     */
+    @Bean
+    public AccountLedgerRegistry accountLedgers(LedgerRepository ledgerRepository,
+                                                MovementJournal movementJournal,
+                                                AccountProperties accountProperties,
+                                                StorageProperties storageProperties,
+                                                IdempotencyProperties idempotencyProperties,
+                                                JournalProperties journalProperties,
+                                                SnapshotProperties snapshotProperties,
+                                                LedgerMetrics ledgerMetrics,
+                                                Tiering tiering) {
+        AccountLedgerRegistry registry = new AccountLedgerRegistry(
+                new AccountLedger(AccountLedgers.DEFAULT_ACCOUNT, ledgerRepository, movementJournal),
+                accountId -> {
+                    Path directory = accountProperties.directory().resolve(accountId);
+                    MovementJournal journal = openJournal(journalProperties, directory.resolve("ledger.journal"));
+                    SnapshotStore snapshots = openSnapshots(snapshotProperties, directory.resolve("snapshots"));
+                    return new AccountLedger(accountId, new LedgerRepositoryImpl(storageProperties.layout(), idempotencyKeys(idempotencyProperties),
+                                                                        journal, snapshots, ledgerMetrics, tiering,
+                                                                        directory.resolve("segments"),
+                                                                        storageProperties.index().maxTokens()), journal);
+                },
+                accountProperties.max());
+        if ((journalProperties.enabled() || snapshotProperties.enabled()) && Files.isDirectory(accountProperties.directory())) {
+            try (Stream<Path> accounts = Files.list(accountProperties.directory())) {
+                accounts.filter(Files::isDirectory)
+                        .forEach(account -> registry.restore(account.getFileName().toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to recover accounts from " + accountProperties.directory(), e);
+            }
+        }
+        return registry;
+    }
+
+    private static MovementJournal openJournal(JournalProperties properties, Path path) {
+        if (!properties.enabled()) {
+            return MovementJournal.DISABLED;
+        }
+        return new FileMovementJournal(path,
+                                       properties.fsync(),
+                                       properties.groupCommit().interval(),
+                                       properties.groupCommit().maxRecords());
+    }
+
+    private static IdempotencyKeyStore idempotencyKeys(IdempotencyProperties properties) {
+        return new IdempotencyKeyStore(properties.retention(), properties.maxKeys());
+    }
+
+    private static SnapshotStore openSnapshots(SnapshotProperties properties, Path directory) {
+        if (!properties.enabled()) {
+            return SnapshotStore.DISABLED;
+        }
+        return new MappedSnapshotStore(directory, properties.retained());
+    }
+}
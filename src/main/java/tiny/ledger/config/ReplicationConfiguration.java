@@ -0,0 +1,40 @@
+package tiny.ledger.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.service.ReplicationFollower;
+
+@Configuration
+@EnableConfigurationProperties(ReplicationProperties.class)
+@ConditionalOnProperty(name = "ledger.write.mode", havingValue = "REPLICA")
+public class ReplicationConfiguration {
+
+    /**
+     * Only present in REPLICA mode; starts tailing the leader as soon as the ledgers are open.
+     */
+    @Bean
+    public ReplicationFollower replicationFollower(ReplicationProperties properties,
+                                                   AccountLedgers accountLedgers,
+                                                   ObjectMapper objectMapper) {
+        if (properties.leaderUrl() == null) {
+            throw new IllegalArgumentException("REPLICA write mode needs ledger.replication.leader-url.");
+        }
+        ReplicationFollower follower = new ReplicationFollower(properties.leaderUrl(), accountLedgers, objectMapper,
+                                                               properties.batchSize(), properties.timeout());
+        follower.start(properties.pollInterval());
+        return follower;
+    }
+
+    @Bean
+    public MeterBinder replicationMeterBinder(ReplicationFollower replicationFollower) {
+        return registry -> Gauge.builder("ledger.replication.lag", replicationFollower, ReplicationFollower::lag)
+                                .description("Movements committed on the leader and not yet applied, across all accounts")
+                                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.replication")
+public record ReplicationProperties(URI leaderUrl,
+                                    @DefaultValue("200ms") Duration pollInterval,
+                                    @DefaultValue("1000") int batchSize,
+                                    @DefaultValue("5s") Duration timeout) {
+}
@@ -0,0 +1,14 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.snapshot")
+public record SnapshotProperties(@DefaultValue("false") boolean enabled,
+                                 @DefaultValue("data/snapshots") Path directory,
+                                 @DefaultValue("5m") Duration interval,
+                                 @DefaultValue("2") int retained) {
+}
@@ -0,0 +1,31 @@
+package tiny.ledger.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tiny.ledger.repository.AccountLedger;
+import tiny.ledger.repository.AccountLedgers;
+
+@Component
+@ConditionalOnProperty(name = "ledger.snapshot.enabled", havingValue = "true")
+public class SnapshotScheduler {
+
+    private final AccountLedgers accountLedgers;
+
+    public SnapshotScheduler(AccountLedgers accountLedgers) {
+        this.accountLedgers = accountLedgers;
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.snapshot.interval:5m}", initialDelayString = "${ledger.snapshot.interval:5m}")
+    public void writeSnapshot() {
+        for (AccountLedger ledger : accountLedgers.all()) {
+            ledger.repository().writeSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void writeFinalSnapshot() {
+        writeSnapshot();
+    }
+}
@@ -0,0 +1,30 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import tiny.ledger.repository.StorageLayout;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.storage")
+public record StorageProperties(@DefaultValue("HEAP") StorageLayout layout,
+                                @DefaultValue Tiering tiering,
+                                @DefaultValue Index index) {
+
+    /**
+     * @param hotAge unset to seal by count only
+     */
+    public record Tiering(@DefaultValue("false") boolean enabled,
+                          @DefaultValue("data/segments") Path directory,
+                          @DefaultValue("1000000") long hotMovements,
+                          Duration hotAge,
+                          @DefaultValue("1024") int cacheBlocks) {
+    }
+
+    /**
+     * @param maxTokens distinct description tokens indexed per segment of 4096 movements held in the heap
+     */
+    public record Index(@DefaultValue("4096") int maxTokens) {
+    }
+}
@@ -0,0 +1,40 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tiny.ledger.controller.BinaryMessageConverter;
+
+import java.util.List;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    /**
+     * Appended after the JSON converter, so clients only get the binary encoding when they ask for it.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryMessageConverter());
+    }
+
+    /**
+     * Spring Boot hands Tomcat's requests to virtual threads for {@code spring.threads.virtual.enabled=true}, but only
+     * on Java 21 and later; before that it quietly keeps the platform thread pool. Startup fails instead, so a
+     * measurement of virtual threads never runs on platform threads by mistake.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadsCheck() {
+        int feature = Runtime.version().feature();
+        if (feature < 21) {
+            throw new IllegalStateException("spring.threads.virtual.enabled needs Java 21 or later, running on Java " + feature + ".");
+        }
+        return factory -> {
+        };
+    }
+}
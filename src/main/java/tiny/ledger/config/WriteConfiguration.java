@@ -0,0 +1,23 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import tiny.ledger.service.LedgerSequencer;
+
+@Configuration
+@EnableConfigurationProperties(WriteProperties.class)
+public class WriteConfiguration {
+
+    /**
+     * Only present in SEQUENCER mode; depends on the ledgers so it is closed, and drained, before their journals.
+     */
+    @Bean
+    @DependsOn({"accountLedgers", "movementJournal"})
+    @ConditionalOnProperty(name = "ledger.write.mode", havingValue = "SEQUENCER")
+    public LedgerSequencer ledgerSequencer(WriteProperties properties) {
+        return new LedgerSequencer(properties.sequencer().bufferSize());
+    }
+}
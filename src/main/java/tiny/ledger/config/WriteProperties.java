@@ -0,0 +1,13 @@
+package tiny.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import tiny.ledger.service.WriteMode;
+
+@ConfigurationProperties(prefix = "ledger.write")
+public record WriteProperties(@DefaultValue("LOCKED") WriteMode mode,
+                              @DefaultValue Sequencer sequencer) {
+
+    public record Sequencer(@DefaultValue("65536") int bufferSize) {
+    }
+}
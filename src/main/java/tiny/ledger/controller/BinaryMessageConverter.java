@@ -0,0 +1,305 @@
+package tiny.ledger.controller;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import tiny.ledger.dto.BalanceResponse;
+import tiny.ledger.dto.BatchTransactionRequest;
+import tiny.ledger.dto.BatchTransactionResponse;
+import tiny.ledger.dto.ErrorResponse;
+import tiny.ledger.dto.ListResponse;
+import tiny.ledger.dto.TransactionRequest;
+import tiny.ledger.dto.TransactionResponse;
+import tiny.ledger.entity.Movement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the ledger's request and response bodies, negotiated as {@code application/x-ledger-binary}.
+ * <p>
+ * Big-endian and without field names: numbers are fixed width, instants are epoch nanos (8), types, statuses and
+ * error codes are one-byte ordinals ({@code -1} for none), strings are a UTF-8 byte length (4, {@code -1} for null)
+ * followed by the bytes, and lists are a count (4) followed by the elements. A transaction is id (8), type (1),
+ * amount (8), createdOn (8) and description; a page adds count (4), limit (4), offset (4), both {@code -1} when
+ * absent, and the next cursor ahead of its transactions. Every body the API reads or writes is covered, so clients
+ * can use the same converter. It is registered after the JSON converter, which stays the default for clients
+ * accepting anything.
+ */
+public class BinaryMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType MEDIA_TYPE = new MediaType("application", "x-ledger-binary");
+
+    private static final int MAX_STRING_BYTES = 1 << 20;
+    private static final int BUFFER_SIZE = 8192;
+    private static final Movement.MovementType[] TYPES = Movement.MovementType.values();
+    private static final BatchTransactionResponse.Status[] STATUSES = BatchTransactionResponse.Status.values();
+    private static final ErrorResponse.ErrorCode[] ERROR_CODES = ErrorResponse.ErrorCode.values();
+    private static final List<Class<?>> BODIES = List.of(TransactionRequest.class,
+                                                         TransactionResponse.class,
+                                                         ListResponse.class,
+                                                         BalanceResponse.class,
+                                                         BatchTransactionResponse.class,
+                                                         ErrorResponse.class);
+
+    public BinaryMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    /**
+     * Encodes {@code body} on its own, e.g. to cache it.
+     */
+    public static byte[] encode(Object body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(bytes);
+            write(output, body);
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a body of {@code type} encoded by {@link #encode}.
+     */
+    public static Object decode(byte[] bytes, Type type) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(bytes)), type);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return BODIES.contains(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (isBatchRequest(type) || BODIES.contains(ResolvableType.forType(type).toClass())) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return BODIES.contains(clazz) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        // Other lists, such as the replication endpoints' account ids, are left to JSON or answered 406.
+        return (supports(clazz) || isBatchRequest(type)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return read(new DataInputStream(new BufferedInputStream(inputMessage.getBody(), BUFFER_SIZE)), type, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(new DataInputStream(new BufferedInputStream(inputMessage.getBody(), BUFFER_SIZE)), clazz, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody(), BUFFER_SIZE));
+        write(output, body);
+        output.flush();
+    }
+
+    private static Object read(DataInputStream input, Type type, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return read(input, type);
+        } catch (EOFException e) {
+            throw new HttpMessageNotReadableException("Truncated binary body.", e, inputMessage);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    private static Object read(DataInputStream input, Type type) throws IOException {
+        if (isBatchRequest(type)) {
+            int count = input.readInt();
+            List<BatchTransactionRequest> requests = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                long amountInCents = input.readLong();
+                String movementType = readType(input);
+                requests.add(new BatchTransactionRequest(amountInCents, readString(input), movementType, readString(input)));
+            }
+            return requests;
+        }
+        Class<?> clazz = ResolvableType.forType(type).resolve(Object.class);
+        if (clazz == TransactionRequest.class) {
+            long amountInCents = input.readLong();
+            String movementType = readType(input);
+            return new TransactionRequest(amountInCents, readString(input), movementType);
+        }
+        if (clazz == TransactionResponse.class) {
+            return readTransaction(input);
+        }
+        if (clazz == ListResponse.class) {
+            int count = input.readInt();
+            Integer limit = readOptionalInt(input);
+            Integer offset = readOptionalInt(input);
+            String nextCursor = readString(input);
+            List<TransactionResponse> transactions = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                transactions.add(readTransaction(input));
+            }
+            return new ListResponse<>(transactions, limit, offset, count, nextCursor);
+        }
+        if (clazz == BalanceResponse.class) {
+            return new BalanceResponse(input.readLong(), readInstant(input));
+        }
+        if (clazz == BatchTransactionResponse.class) {
+            int count = input.readInt();
+            List<BatchTransactionResponse.Item> items = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int index = input.readInt();
+                BatchTransactionResponse.Status status = STATUSES[ordinal(input.readByte(), STATUSES.length)];
+                items.add(new BatchTransactionResponse.Item(index, status, readTransaction(input)));
+            }
+            return new BatchTransactionResponse(items, count);
+        }
+        if (clazz == ErrorResponse.class) {
+            ErrorResponse.ErrorCode code = ERROR_CODES[ordinal(input.readByte(), ERROR_CODES.length)];
+            return new ErrorResponse(code, readString(input));
+        }
+        throw new IllegalArgumentException("No binary encoding for " + type.getTypeName() + ".");
+    }
+
+    private static void write(DataOutputStream output, Object body) throws IOException {
+        if (body instanceof List<?> list) {
+            output.writeInt(list.size());
+            for (Object element : list) {
+                if (!(element instanceof BatchTransactionRequest request)) {
+                    throw new HttpMessageNotWritableException("No binary encoding for a list of " + element.getClass().getName() + ".");
+                }
+                output.writeLong(request.amountInCents());
+                writeType(output, request.type());
+                writeString(output, request.description());
+                writeString(output, request.idempotencyKey());
+            }
+        } else if (body instanceof TransactionRequest request) {
+            output.writeLong(request.amountInCents());
+            writeType(output, request.type());
+            writeString(output, request.description());
+        } else if (body instanceof TransactionResponse transaction) {
+            writeTransaction(output, transaction);
+        } else if (body instanceof ListResponse<?> page) {
+            output.writeInt(page.data().size());
+            output.writeInt(page.limit() != null ? page.limit() : -1);
+            output.writeInt(page.offset() != null ? page.offset() : -1);
+            writeString(output, page.nextCursor());
+            for (Object element : page.data()) {
+                if (!(element instanceof TransactionResponse transaction)) {
+                    throw new HttpMessageNotWritableException("No binary encoding for a page of " + element.getClass().getName() + ".");
+                }
+                writeTransaction(output, transaction);
+            }
+        } else if (body instanceof BalanceResponse balance) {
+            output.writeLong(balance.balanceInCents());
+            writeInstant(output, balance.date());
+        } else if (body instanceof BatchTransactionResponse batch) {
+            output.writeInt(batch.results().size());
+            for (BatchTransactionResponse.Item item : batch.results()) {
+                output.writeInt(item.index());
+                output.writeByte(item.status().ordinal());
+                writeTransaction(output, item.transaction());
+            }
+        } else if (body instanceof ErrorResponse error) {
+            output.writeByte(error.code().ordinal());
+            writeString(output, error.message());
+        } else {
+            throw new HttpMessageNotWritableException("No binary encoding for " + body.getClass().getName() + ".");
+        }
+    }
+
+    private static void writeTransaction(DataOutputStream output, TransactionResponse transaction) throws IOException {
+        output.writeLong(transaction.id());
+        writeType(output, transaction.type());
+        output.writeLong(transaction.amountInCents());
+        writeInstant(output, transaction.createdOn());
+        writeString(output, transaction.description());
+    }
+
+    private static TransactionResponse readTransaction(DataInputStream input) throws IOException {
+        long id = input.readLong();
+        String type = readType(input);
+        long amountInCents = input.readLong();
+        Instant createdOn = readInstant(input);
+        return new TransactionResponse(id, amountInCents, createdOn, readString(input), type);
+    }
+
+    private static void writeType(DataOutputStream output, String type) throws IOException {
+        output.writeByte(type != null ? Movement.MovementType.valueOf(type.toUpperCase()).ordinal() : -1);
+    }
+
+    private static String readType(DataInputStream input) throws IOException {
+        byte ordinal = input.readByte();
+        return ordinal == -1 ? null : TYPES[ordinal(ordinal, TYPES.length)].name();
+    }
+
+    private static void writeInstant(DataOutputStream output, Instant instant) throws IOException {
+        output.writeLong(Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano()));
+    }
+
+    private static Instant readInstant(DataInputStream input) throws IOException {
+        long epochNanos = input.readLong();
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Invalid string length in binary body: " + length + ".");
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Integer readOptionalInt(DataInputStream input) throws IOException {
+        int value = input.readInt();
+        return value == -1 ? null : value;
+    }
+
+    private static int ordinal(byte value, int count) {
+        if (value < 0 || value >= count) {
+            throw new IllegalArgumentException("Invalid ordinal in binary body: " + value + ".");
+        }
+        return value;
+    }
+
+    private static boolean isBatchRequest(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass()) && resolved.getGeneric(0).toClass() == BatchTransactionRequest.class;
+    }
+}
@@ -1,11 +1,26 @@
 package tiny.ledger.controller;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.ElementKind;
+import jakarta.validation.Path;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import tiny.ledger.dto.ErrorResponse;
+import tiny.ledger.repository.AccountNotFoundException;
+import tiny.ledger.repository.TransactionNotFoundException;
+import tiny.ledger.service.OverloadedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @ControllerAdvice
 public class ExceptionHandlers {
@@ -17,6 +32,38 @@ public class ExceptionHandlers {
         return new ErrorResponse(ErrorResponse.ErrorCode.INVALID_INPUT, e.getMessage());
     }
 
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
+        String violations = e.getBindingResult().getFieldErrors().stream()
+                             .map(error -> error.getField() + " " + error.getDefaultMessage())
+                             .sorted()
+                             .collect(Collectors.joining(", "));
+        return new ErrorResponse(ErrorResponse.ErrorCode.INVALID_INPUT, "Invalid request: " + violations + ".");
+    }
+
+    /**
+     * Constraints on the items of a request body list, reported by their position, e.g. {@code [0].amountInCents}.
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public ErrorResponse handleConstraintViolationException(ConstraintViolationException e) {
+        String violations = e.getConstraintViolations().stream()
+                             .map(violation -> path(violation) + " " + violation.getMessage())
+                             .sorted()
+                             .collect(Collectors.joining(", "));
+        return new ErrorResponse(ErrorResponse.ErrorCode.INVALID_INPUT, "Invalid request: " + violations + ".");
+    }
+
+    @ExceptionHandler({AccountNotFoundException.class, TransactionNotFoundException.class})
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ResponseBody
+    public ErrorResponse handleNotFoundException(RuntimeException e) {
+        return new ErrorResponse(ErrorResponse.ErrorCode.NOT_FOUND, e.getMessage());
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     @ResponseBody
@@ -24,10 +71,44 @@ public class ExceptionHandlers {
         return new ErrorResponse(ErrorResponse.ErrorCode.INVALID_STATE, e.getMessage());
     }
 
+    /**
+     * Shed load is answered at once, telling the client when to come back, in whole seconds and never less than one.
+     */
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleOverloadedException(OverloadedException e) {
+        long retryAfterSeconds = Math.max(1L, (e.retryAfter().toMillis() + 999L) / 1000L);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                             .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                             .body(new ErrorResponse(ErrorResponse.ErrorCode.OVERLOADED, e.getMessage()));
+    }
+
+    /**
+     * Long-lived responses such as event streams end this way; their body is already committed, so nothing is written.
+     */
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void handleAsyncRequestTimeoutException(AsyncRequestTimeoutException e) {
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ResponseBody
     public ErrorResponse handleRuntimeException(Exception e) {
         return new ErrorResponse(ErrorResponse.ErrorCode.INTERNAL_ERROR, "An unexpected error occurred: " + e.getMessage());
     }
+
+    /**
+     * The property path below the method parameter, e.g. {@code [2].type} for the third item of a list.
+     */
+    private static String path(ConstraintViolation<?> violation) {
+        List<String> nodes = new ArrayList<>();
+        for (Path.Node node : violation.getPropertyPath()) {
+            if (node.getKind() == ElementKind.METHOD || node.getKind() == ElementKind.PARAMETER) {
+                continue;
+            }
+            String index = node.getIndex() != null ? "[" + node.getIndex() + "]" : "";
+            nodes.add(node.getKind() == ElementKind.CONTAINER_ELEMENT ? index : index + (node.getName() != null ? "." + node.getName() : ""));
+        }
+        return String.join("", nodes).replaceFirst("^\\.", "");
+    }
 }
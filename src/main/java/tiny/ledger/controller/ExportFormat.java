@@ -0,0 +1,128 @@
+package tiny.ledger.controller;
+
+import org.springframework.http.MediaType;
+import tiny.ledger.entity.Movement;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Line formats of the transaction export, written field by field so no intermediate objects are built per movement.
+ * Both carry the fields of {@link tiny.ledger.dto.TransactionResponse}.
+ */
+enum ExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson") {
+        @Override
+        void writeHeader(Writer writer) {
+        }
+
+        @Override
+        void write(Writer writer, Movement movement) throws IOException {
+            writer.write("{\"id\":");
+            writer.write(Long.toString(movement.id()));
+            writer.write(",\"amountInCents\":");
+            writer.write(Long.toString(movement.amountInCents()));
+            writer.write(",\"createdOn\":\"");
+            writer.write(movement.createdOn().toString());
+            writer.write("\",\"description\":");
+            if (movement.description() == null) {
+                writer.write("null");
+            } else {
+                writer.write('"');
+                writeJsonEscaped(writer, movement.description());
+                writer.write('"');
+            }
+            writer.write(",\"type\":\"");
+            writer.write(movement.type().name());
+            writer.write("\"}\n");
+        }
+    },
+    CSV(MediaType.parseMediaType("text/csv"), "csv") {
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writer.write("id,amountInCents,createdOn,description,type\r\n");
+        }
+
+        @Override
+        void write(Writer writer, Movement movement) throws IOException {
+            writer.write(Long.toString(movement.id()));
+            writer.write(',');
+            writer.write(Long.toString(movement.amountInCents()));
+            writer.write(',');
+            writer.write(movement.createdOn().toString());
+            writer.write(',');
+            if (movement.description() != null) {
+                writeCsvField(writer, movement.description());
+            }
+            writer.write(',');
+            writer.write(movement.type().name());
+            writer.write("\r\n");
+        }
+    };
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    MediaType mediaType() {
+        return mediaType;
+    }
+
+    String extension() {
+        return extension;
+    }
+
+    abstract void writeHeader(Writer writer) throws IOException;
+
+    abstract void write(Writer writer, Movement movement) throws IOException;
+
+    static ExportFormat parse(String value) {
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid export format: " + value + ", expected NDJSON or CSV.");
+        }
+    }
+
+    private static void writeJsonEscaped(Writer writer, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * RFC 4180: fields holding a separator, quote or line break are quoted, with quotes doubled.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
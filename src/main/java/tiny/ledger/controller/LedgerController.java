@@ -1,68 +1,363 @@
 package tiny.ledger.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import tiny.ledger.dto.AggregatesResponse;
 import tiny.ledger.dto.BalanceResponse;
+import tiny.ledger.dto.BatchTransactionRequest;
+import tiny.ledger.dto.BatchTransactionResponse;
 import tiny.ledger.dto.ListResponse;
+import tiny.ledger.dto.PageCursor;
 import tiny.ledger.dto.TransactionRequest;
 import tiny.ledger.dto.TransactionResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import tiny.ledger.entity.Movement;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.AggregateGranularity;
+import tiny.ledger.repository.MovementFilter;
 import tiny.ledger.service.LedgerService;
+import tiny.ledger.service.MovementCommand;
+import tiny.ledger.service.MovementResult;
+import tiny.ledger.service.VersionedResponseCache;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @RestController
+@Validated
 public class LedgerController {
+    private static final int DEFAULT_AGGREGATE_BUCKETS = 60;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
 
     private final LedgerService ledgerService;
+    private final VersionedResponseCache responseCache;
+    private final ObjectMapper objectMapper;
 
     public LedgerController(LedgerService ledgerService) {
+        this(ledgerService, VersionedResponseCache.DISABLED, new ObjectMapper());
+    }
+
+    @Autowired
+    public LedgerController(LedgerService ledgerService, VersionedResponseCache responseCache, ObjectMapper objectMapper) {
         this.ledgerService = ledgerService;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
     }
 
-    @GetMapping("/transactions")
-    @ResponseStatus(HttpStatus.OK)
-    public ListResponse<TransactionResponse> getTransactions(@RequestParam(required = false) Integer limit,
-                                                             @RequestParam(required = false) Integer offset) {
+    /**
+     * History newest first, paged by offset or cursor. Any of the filters narrows it through the ledger's secondary
+     * indexes; filtered pages are paged by cursor only. Tagged with the ledger version: a matching
+     * {@code If-None-Match} is answered with 304 without reading the history, and unfiltered pages are served from
+     * the response cache while the version holds.
+     */
+    @GetMapping({"/transactions", "/accounts/{accountId}/transactions"})
+    public ResponseEntity<?> getTransactions(@PathVariable(required = false) String accountId,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) Integer offset,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(required = false) String type,
+                                             @RequestParam(required = false) Long minAmountInCents,
+                                             @RequestParam(required = false) Long maxAmountInCents,
+                                             @RequestParam(required = false) String createdFrom,
+                                             @RequestParam(required = false) String createdTo,
+                                             @RequestParam(required = false) String descriptionToken,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
 
         if (limit != null && limit <= 0 || offset != null && offset < 0) {
             throw new IllegalArgumentException("Invalid pagination parameters: limit must be > 0 and offset must be >= 0.");
 
         }
-        List<Movement> movements = ledgerService.getMovementHistory(limit, offset);
-        return new ListResponse<>(movements.stream()
-                                           .map(TransactionResponse::fromMovement).toList(),
-                                  limit, offset, movements.size());
+        if (after != null && offset != null) {
+            throw new IllegalArgumentException("Invalid pagination parameters: offset cannot be combined with a cursor.");
+        }
+        MovementFilter filter = new MovementFilter(type != null ? parseType(type) : null,
+                                                   minAmountInCents,
+                                                   maxAmountInCents,
+                                                   createdFrom != null ? instant(createdFrom) : null,
+                                                   createdTo != null ? instant(createdTo) : null,
+                                                   descriptionToken);
+        if (!filter.isEmpty() && offset != null) {
+            throw new IllegalArgumentException("Invalid pagination parameters: offset cannot be combined with filters.");
+        }
+        Long beforeId = after != null ? PageCursor.decode(after).lastId() : null;
+
+        String account = account(accountId);
+        long version = ledgerService.getVersion(account);
+        boolean binary = prefersBinary(accept);
+        String eTag = eTag(version, binary);
+        if (notModified(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        // Only the first page of a bounded size is polled often enough to be worth caching.
+        if (filter.isEmpty() && offset == null && after == null && responseCache.caches(limit)) {
+            String page = "transactions?limit=" + limit + "&binary=" + binary;
+            byte[] body = responseCache.get(account, page, version, () -> {
+                ListResponse<TransactionResponse> history = history(account, filter, limit, offset, beforeId);
+                return binary ? BinaryMessageConverter.encode(history) : json(history);
+            });
+            return ResponseEntity.ok()
+                                 .eTag(eTag)
+                                 .varyBy(HttpHeaders.ACCEPT)
+                                 .contentType(binary ? BinaryMessageConverter.MEDIA_TYPE : MediaType.APPLICATION_JSON)
+                                 .body(body);
+        }
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(history(account, filter, limit, offset, beforeId));
     }
 
-    @PostMapping("/transactions")
+    /**
+     * Streams the movements with ids in {@code [fromId, toId]}, oldest first, without materializing the history.
+     * An interrupted export is resumed from the id after the last line received.
+     */
+    @GetMapping({"/transactions/export", "/accounts/{accountId}/transactions/export"})
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@PathVariable(required = false) String accountId,
+                                                                    @RequestParam(defaultValue = "ndjson") String format,
+                                                                    @RequestParam(defaultValue = "1") long fromId,
+                                                                    @RequestParam(required = false) Long toId) {
+        if (fromId < 1 || toId != null && toId < fromId) {
+            throw new IllegalArgumentException("Invalid export range: fromId must be >= 1 and toId >= fromId.");
+        }
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        Stream<Movement> movements = ledgerService.exportMovements(account(accountId), fromId, toId != null ? toId : Long.MAX_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            exportFormat.writeHeader(writer);
+            for (Movement movement : (Iterable<Movement>) movements::iterator) {
+                exportFormat.write(writer, movement);
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                             .contentType(exportFormat.mediaType())
+                             .header(HttpHeaders.CONTENT_DISPOSITION,
+                                     "attachment; filename=\"transactions." + exportFormat.extension() + "\"")
+                             .body(body);
+    }
+
+    @PostMapping({"/transactions", "/accounts/{accountId}/transactions"})
     @ResponseStatus(HttpStatus.CREATED)
-    public TransactionResponse recordTransaction(@RequestHeader(value = "Idempotency-Key", required = false) String idemKey,
-                                                 @Valid @RequestBody TransactionRequest request) {
-        Movement movement = ledgerService.recordMovement(
+    public CompletableFuture<TransactionResponse> recordTransaction(@PathVariable(required = false) String accountId,
+                                                                    @RequestHeader(value = "Idempotency-Key", required = false) String idemKey,
+                                                                    @Valid @RequestBody TransactionRequest request) {
+        return ledgerService.submitMovement(
+                account(accountId),
                 request.amountInCents(),
-                Movement.MovementType.valueOf(request.type().toUpperCase()),
+                movementType(request.type()),
                 request.description(),
                 idemKey
-        );
-        return TransactionResponse.fromMovement(movement);
+        ).thenApply(TransactionResponse::fromMovement);
     }
 
-    @GetMapping("/balance")
+    /**
+     * Every item is validated like a single transaction request, null items included, before anything is recorded.
+     */
+    @PostMapping({"/transactions/batch", "/accounts/{accountId}/transactions/batch"})
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<BatchTransactionResponse> recordTransactions(@PathVariable(required = false) String accountId,
+                                                                          @Valid @RequestBody List<@NotNull @Valid BatchTransactionRequest> requests) {
+        List<MovementCommand> commands = requests.stream()
+                .map(request -> new MovementCommand(request.amountInCents(),
+                                                    movementType(request.type()),
+                                                    request.description(),
+                                                    request.idempotencyKey()))
+                .toList();
+        return ledgerService.submitMovements(account(accountId), commands)
+                            .thenApply(LedgerController::batchResponse);
+    }
+
+    /**
+     * Tagged with the ledger version like the history, per encoding; a matching {@code If-None-Match} is answered with 304.
+     */
+    @GetMapping({"/balance", "/accounts/{accountId}/balance"})
+    public ResponseEntity<BalanceResponse> getCurrentBalance(@PathVariable(required = false) String accountId,
+                                                             @RequestParam(required = false) String asOf,
+                                                             @RequestParam(required = false) Long atId,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (asOf != null && atId != null) {
+            throw new IllegalArgumentException("Invalid balance parameters: asOf cannot be combined with atId.");
+        }
+        Instant instant = asOf != null ? instant(asOf) : null;
+        String eTag = eTag(ledgerService.getVersion(account(accountId)), prefersBinary(accept));
+        if (notModified(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        BalanceResponse balance;
+        if (instant != null) {
+            balance = BalanceResponse.fromBalanceAtInstant(ledgerService.getBalanceInCentsAsOf(account(accountId), instant), instant);
+        } else if (atId != null) {
+            balance = BalanceResponse.fromBalanceAtInstant(ledgerService.getBalanceInCentsAtId(account(accountId), atId), Instant.now());
+        } else {
+            balance = BalanceResponse.fromBalanceAtInstant(
+                    ledgerService.getCurrentBalanceInCents(account(accountId)),
+                    Instant.now()
+            );
+        }
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(balance);
+    }
+
+    @GetMapping({"/aggregates", "/accounts/{accountId}/aggregates"})
     @ResponseStatus(HttpStatus.OK)
-    public BalanceResponse getCurrentBalance() {
-        return BalanceResponse.fromBalanceAtInstant(
-                ledgerService.getCurrentBalanceInCents(),
-                Instant.now()
-        );
+    public AggregatesResponse getAggregates(@PathVariable(required = false) String accountId,
+                                            @RequestParam String granularity,
+                                            @RequestParam(required = false) String from,
+                                            @RequestParam(required = false) String to) {
+        AggregateGranularity bucketSize = granularity(granularity);
+        Instant end = to != null ? instant(to) : Instant.now();
+        Instant start = from != null ? instant(from) : end.minusSeconds(DEFAULT_AGGREGATE_BUCKETS * bucketSize.seconds());
+        return AggregatesResponse.fromBuckets(bucketSize, start, end,
+                                              ledgerService.getAggregates(account(accountId), bucketSize, start, end));
+    }
+
+    private ListResponse<TransactionResponse> history(String account,
+                                                      MovementFilter filter,
+                                                      Integer limit,
+                                                      Integer offset,
+                                                      Long beforeId) {
+        List<Movement> movements;
+        if (!filter.isEmpty()) {
+            movements = ledgerService.getFilteredMovementHistory(account, filter, beforeId != null ? beforeId : Long.MAX_VALUE, limit);
+        } else {
+            movements = beforeId != null
+                    ? ledgerService.getMovementHistoryAfter(account, beforeId, limit)
+                    : ledgerService.getMovementHistory(account, limit, offset);
+        }
+        return new ListResponse<>(movements.stream()
+                                           .map(TransactionResponse::fromMovement).toList(),
+                                  limit, offset, movements.size(), nextCursor(movements, limit));
+    }
+
+    private byte[] json(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response.", e);
+        }
     }
 
+    /**
+     * Whether the client ranks the binary encoding at least as high as JSON, as content negotiation would for bodies
+     * that are not pre-serialized.
+     */
+    private static boolean prefersBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        double binary = 0.0;
+        double json = 0.0;
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.equalsTypeAndSubtype(BinaryMessageConverter.MEDIA_TYPE)) {
+                    binary = Math.max(binary, mediaType.getQualityValue());
+                } else if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                    json = Math.max(json, mediaType.getQualityValue());
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return binary > 0.0 && binary >= json;
+    }
+
+    /**
+     * The ledger version, suffixed with {@code -b} for the binary encoding: a tag names one representation, and the
+     * responses say {@code Vary: Accept} so caches keep the two apart.
+     */
+    private static String eTag(long version, boolean binary) {
+        return "\"" + version + (binary ? "-b" : "") + "\"";
+    }
+
+    /**
+     * Whether {@code If-None-Match} lists {@code eTag}, compared weakly as RFC 9110 asks for GET, or is {@code *}.
+     */
+    private static boolean notModified(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BatchTransactionResponse batchResponse(List<MovementResult> results) {
+        List<BatchTransactionResponse.Item> items = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            MovementResult result = results.get(i);
+            items.add(new BatchTransactionResponse.Item(i,
+                                                        result.replayed() ? BatchTransactionResponse.Status.REPLAYED : BatchTransactionResponse.Status.CREATED,
+                                                        TransactionResponse.fromMovement(result.movement())));
+        }
+        return new BatchTransactionResponse(items, items.size());
+    }
+
+    private static Movement.MovementType movementType(String type) {
+        if (type == null || type.isBlank()) {
+            throw new IllegalArgumentException("Transaction type is required.");
+        }
+        return parseType(type);
+    }
+
+    private static Movement.MovementType parseType(String value) {
+        try {
+            return Movement.MovementType.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid type: " + value + ", expected DEPOSIT or WITHDRAWAL.");
+        }
+    }
+
+    private static AggregateGranularity granularity(String value) {
+        try {
+            return AggregateGranularity.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid granularity: " + value + ", expected MINUTE, HOUR or DAY.");
+        }
+    }
+
+    private static Instant instant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid instant: " + value + ", expected ISO-8601 such as 2025-01-15T10:30:00Z.");
+        }
+    }
+
+    private static String account(String accountId) {
+        return accountId != null ? accountId : AccountLedgers.DEFAULT_ACCOUNT;
+    }
+
+    private static String nextCursor(List<Movement> movements, Integer limit) {
+        if (limit == null || movements.size() < limit) {
+            return null;
+        }
+        return new PageCursor(movements.get(movements.size() - 1).id()).encode();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package tiny.ledger.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tiny.ledger.config.FeedProperties;
+import tiny.ledger.dto.TransactionResponse;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.service.MovementFeed;
+
+import java.io.IOException;
+
+@RestController
+public class MovementFeedController {
+
+    private final MovementFeed movementFeed;
+    private final FeedProperties properties;
+
+    public MovementFeedController(MovementFeed movementFeed, FeedProperties properties) {
+        this.movementFeed = movementFeed;
+        this.properties = properties;
+    }
+
+    /**
+     * Server-sent events of newly committed transactions, each with its id as the event id. The stream resumes after
+     * the standard {@code Last-Event-ID} header on reconnect, or from {@code fromId}. A subscriber that falls too far
+     * behind receives a {@code lagging} event carrying the last id it got, and the stream is closed.
+     */
+    @GetMapping({"/transactions/stream", "/accounts/{accountId}/transactions/stream"})
+    public SseEmitter streamTransactions(@PathVariable(required = false) String accountId,
+                                         @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                         @RequestParam(required = false) Long fromId) {
+        SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+        MovementFeed.Subscription subscription = movementFeed.subscribe(
+                accountId != null ? accountId : AccountLedgers.DEFAULT_ACCOUNT,
+                fromId != null ? fromId : lastEventId != null ? Long.valueOf(lastEventId + 1) : null,
+                new MovementFeed.Sink() {
+                    @Override
+                    public void send(Movement movement) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                               .id(Long.toString(movement.id()))
+                                               .name("transaction")
+                                               .data(TransactionResponse.fromMovement(movement)));
+                    }
+
+                    @Override
+                    public void lagging(long lastSentId) throws IOException {
+                        emitter.send(SseEmitter.event().name("lagging").data(lastSentId));
+                        emitter.complete();
+                    }
+                });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+}
@@ -0,0 +1,107 @@
+package tiny.ledger.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tiny.ledger.dto.ReplicaStatus;
+import tiny.ledger.dto.ReplicationRecord;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.service.LedgerService;
+import tiny.ledger.service.ReplicationFollower;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.stream.Stream;
+
+@RestController
+public class ReplicationController {
+    public static final int MAX_LIMIT = 10_000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LedgerService ledgerService;
+    private final ObjectMapper objectMapper;
+    private final ReplicationFollower follower;
+
+    /**
+     * A leader's controller, with no replication status to report.
+     */
+    public ReplicationController(LedgerService ledgerService, ObjectMapper objectMapper) {
+        this(ledgerService, objectMapper, (ReplicationFollower) null);
+    }
+
+    /**
+     * @param follower only present in {@link tiny.ledger.service.WriteMode#REPLICA} mode
+     */
+    @Autowired
+    public ReplicationController(LedgerService ledgerService, ObjectMapper objectMapper, ObjectProvider<ReplicationFollower> follower) {
+        this(ledgerService, objectMapper, follower.getIfAvailable());
+    }
+
+    /**
+     * @param follower the replica's follower in {@link tiny.ledger.service.WriteMode#REPLICA} mode, {@code null} on a leader
+     */
+    public ReplicationController(LedgerService ledgerService, ObjectMapper objectMapper, ReplicationFollower follower) {
+        this.ledgerService = ledgerService;
+        this.objectMapper = objectMapper;
+        this.follower = follower;
+    }
+
+    /**
+     * Committed movements from {@code fromSeq}, in sequence order, one JSON record per line, up to {@code limit} of
+     * them and never past the last sequence, which is sent in the {@code Ledger-Last-Seq} header. Replicas poll it
+     * from the sequence after the last one they applied.
+     */
+    @GetMapping({"/replication/log", "/accounts/{accountId}/replication/log"})
+    public ResponseEntity<StreamingResponseBody> getReplicationLog(@PathVariable(required = false) String accountId,
+                                                                   @RequestParam(defaultValue = "1") long fromSeq,
+                                                                   @RequestParam(defaultValue = "1000") int limit) {
+        if (fromSeq < 1 || limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Invalid replication parameters: fromSeq must be >= 1 and limit between 1 and " + MAX_LIMIT + ".");
+        }
+        String account = accountId != null ? accountId : AccountLedgers.DEFAULT_ACCOUNT;
+        long lastSeq = ledgerService.getVersion(account);
+        long toSeq = lastSeq - fromSeq < limit ? lastSeq : fromSeq + limit - 1;
+        Stream<Movement> movements = ledgerService.exportMovements(account, fromSeq, toSeq);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream output = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+            for (Movement movement : (Iterable<Movement>) movements::iterator) {
+                output.write(objectMapper.writeValueAsBytes(ReplicationRecord.fromMovement(movement)));
+                output.write('\n');
+            }
+            output.flush();
+        };
+        return ResponseEntity.ok()
+                             .contentType(NDJSON)
+                             .header(ReplicationFollower.LAST_SEQ_HEADER, Long.toString(lastSeq))
+                             .body(body);
+    }
+
+    /**
+     * Accounts a replica should tail.
+     */
+    @GetMapping("/replication/accounts")
+    public List<String> getReplicatedAccounts() {
+        return ledgerService.getAccountIds();
+    }
+
+    /**
+     * Lag of every replicated account; only answered by replicas.
+     */
+    @GetMapping("/replication/status")
+    public List<ReplicaStatus> getReplicationStatus() {
+        if (follower == null) {
+            throw new IllegalStateException("This ledger is not a replica.");
+        }
+        return follower.status();
+    }
+}
@@ -0,0 +1,34 @@
+package tiny.ledger.dto;
+
+import tiny.ledger.repository.AggregateBucket;
+import tiny.ledger.repository.AggregateGranularity;
+
+import java.time.Instant;
+import java.util.List;
+
+public record AggregatesResponse(
+    AggregateGranularity granularity,
+    Instant from,
+    Instant to,
+    List<Bucket> buckets) {
+
+    public static AggregatesResponse fromBuckets(AggregateGranularity granularity, Instant from, Instant to, List<AggregateBucket> buckets) {
+        return new AggregatesResponse(granularity, from, to, buckets.stream().map(Bucket::fromAggregateBucket).toList());
+    }
+
+    public record Bucket(
+        Instant start,
+        long depositCount,
+        long depositsInCents,
+        long withdrawalCount,
+        long withdrawalsInCents) {
+
+        static Bucket fromAggregateBucket(AggregateBucket bucket) {
+            return new Bucket(bucket.start(),
+                              bucket.depositCount(),
+                              bucket.depositsInCents(),
+                              bucket.withdrawalCount(),
+                              bucket.withdrawalsInCents());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package tiny.ledger.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+public record BatchTransactionRequest(@Positive long amountInCents,
+                                      String description,
+                                      @NotBlank String type,
+                                      String idempotencyKey) {
+}
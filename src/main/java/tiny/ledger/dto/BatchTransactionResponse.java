@@ -0,0 +1,17 @@
+package tiny.ledger.dto;
+
+import java.util.List;
+
+public record BatchTransactionResponse(List<Item> results,
+                                       Integer count) {
+
+    public record Item(int index,
+                       Status status,
+                       TransactionResponse transaction) {
+    }
+
+    public enum Status {
+        CREATED,
+        REPLAYED
+    }
+}
@@ -4,7 +4,9 @@ public record ErrorResponse(ErrorCode code, String message) {
     public enum ErrorCode {
         INVALID_INPUT,
         INVALID_STATE,
-        INTERNAL_ERROR
+        INTERNAL_ERROR,
+        OVERLOADED,
+        NOT_FOUND
     }
 }
 
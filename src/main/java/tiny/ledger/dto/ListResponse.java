@@ -1,9 +1,16 @@
 package tiny.ledger.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Collection;
 
 public record ListResponse<T>(Collection<T> data,
                               Integer limit,
                               Integer offset,
-                              Integer count) {
+                              Integer count,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) String nextCursor) {
+
+    public ListResponse(Collection<T> data, Integer limit, Integer offset, Integer count) {
+        this(data, limit, offset, count, null);
+    }
 }
@@ -0,0 +1,31 @@
+package tiny.ledger.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor pointing at the last movement of a page.
+ */
+public record PageCursor(long lastId) {
+    private static final String PREFIX = "m:";
+
+    public String encode() {
+        return Base64.getUrlEncoder()
+                     .withoutPadding()
+                     .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        long lastId;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            lastId = decoded.startsWith(PREFIX) ? Long.parseLong(decoded.substring(PREFIX.length())) : 0L;
+        } catch (IllegalArgumentException e) {
+            lastId = 0L;
+        }
+        if (lastId <= 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new PageCursor(lastId);
+    }
+}
@@ -0,0 +1,17 @@
+package tiny.ledger.dto;
+
+import java.time.Instant;
+
+/**
+ * Replication progress of one account on a replica: the last sequence applied, the leader's last sequence when it
+ * was last reached and the difference between the two.
+ */
+public record ReplicaStatus(
+    String accountId,
+    long appliedSeq,
+    long leaderSeq,
+    long lag,
+    Instant lastContact,
+    String lastError
+) {
+}
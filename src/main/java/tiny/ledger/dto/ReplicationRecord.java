@@ -0,0 +1,31 @@
+package tiny.ledger.dto;
+
+import tiny.ledger.entity.Movement;
+
+import java.time.Instant;
+
+/**
+ * One committed movement of the replication log, with everything a replica needs to apply it as the leader did,
+ * idempotency key included.
+ */
+public record ReplicationRecord(
+    long seq,
+    String type,
+    long amountInCents,
+    Instant createdOn,
+    String description,
+    String idempotencyKey
+) {
+    public static ReplicationRecord fromMovement(Movement movement) {
+        return new ReplicationRecord(movement.id(),
+                                     movement.type().name(),
+                                     movement.amountInCents(),
+                                     movement.createdOn(),
+                                     movement.description(),
+                                     movement.idempotencyKey());
+    }
+
+    public Movement toMovement() {
+        return new Movement(seq, Movement.MovementType.valueOf(type), amountInCents, createdOn, description, idempotencyKey);
+    }
+}
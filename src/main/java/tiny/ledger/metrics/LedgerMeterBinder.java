@@ -0,0 +1,59 @@
+package tiny.ledger.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import tiny.ledger.repository.AccountLedger;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.IdempotencyStats;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Meters read from the ledgers when scraped rather than updated on every write: ledger size, open accounts and the
+ * idempotency counters the key stores keep anyway.
+ */
+public class LedgerMeterBinder implements MeterBinder {
+    private final AccountLedgers accountLedgers;
+
+    public LedgerMeterBinder(AccountLedgers accountLedgers) {
+        this.accountLedgers = accountLedgers;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ledger.size", accountLedgers, ledgers -> sum(ledgers, ledger -> ledger.repository().getLastId()))
+             .description("Movements recorded across all accounts")
+             .register(registry);
+        Gauge.builder("ledger.accounts", accountLedgers, ledgers -> ledgers.all().size())
+             .description("Open accounts")
+             .register(registry);
+        FunctionCounter.builder("ledger.idempotency.lookups", accountLedgers, ledgers -> sum(ledgers, idempotency(IdempotencyStats::hits)))
+                       .description("Idempotency key lookups")
+                       .tag("result", "hit")
+                       .register(registry);
+        FunctionCounter.builder("ledger.idempotency.lookups", accountLedgers, ledgers -> sum(ledgers, idempotency(IdempotencyStats::misses)))
+                       .description("Idempotency key lookups")
+                       .tag("result", "miss")
+                       .register(registry);
+        FunctionCounter.builder("ledger.idempotency.evictions", accountLedgers, ledgers -> sum(ledgers, idempotency(IdempotencyStats::evictions)))
+                       .description("Idempotency keys evicted, expired or over capacity")
+                       .register(registry);
+        Gauge.builder("ledger.idempotency.keys", accountLedgers, ledgers -> sum(ledgers, idempotency(IdempotencyStats::size)))
+             .description("Idempotency keys retained")
+             .register(registry);
+    }
+
+    private static ToLongFunction<AccountLedger> idempotency(ToLongFunction<IdempotencyStats> stat) {
+        return ledger -> stat.applyAsLong(ledger.repository().idempotencyStats());
+    }
+
+    private static double sum(AccountLedgers ledgers, ToLongFunction<AccountLedger> value) {
+        long sum = 0L;
+        for (AccountLedger ledger : ledgers.all()) {
+            sum += value.applyAsLong(ledger);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,37 @@
+package tiny.ledger.metrics;
+
+/**
+ * Timings and counts reported by the write and read paths.
+ * <p>
+ * Callers check {@link #enabled()} before reading the clock, so with {@link #NOOP} the hot path pays for one call
+ * that the JIT folds to a constant and nothing else.
+ */
+public interface LedgerMetrics {
+    LedgerMetrics NOOP = new LedgerMetrics() {
+    };
+
+    default boolean enabled() {
+        return false;
+    }
+
+    /**
+     * One acquisition of an account lock: time spent waiting for it and time it was then held.
+     */
+    default void recordLock(long waitNanos, long holdNanos) {
+    }
+
+    /**
+     * One {@code saveAll} of {@code movements} movements, journal append included.
+     */
+    default void recordSave(int movements, long nanos) {
+    }
+
+    /**
+     * One history page query; {@code limit} is {@code null} for the whole history.
+     */
+    default void recordHistoryQuery(Integer limit, long nanos) {
+    }
+
+    default void insufficientFunds() {
+    }
+}
@@ -0,0 +1,106 @@
+package tiny.ledger.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LedgerMetrics} backed by Micrometer timers with percentile histograms. Meters are created up front, so
+ * recording is a lock-free histogram update with no lookup by name or tag.
+ */
+public class MicrometerLedgerMetrics implements LedgerMetrics {
+    private static final int[] PAGE_SIZE_BOUNDS = {10, 100, 1000};
+
+    private final Timer lockWait;
+    private final Timer lockHold;
+    private final Timer save;
+    private final DistributionSummary saveBatchSize;
+    private final Counter insufficientFunds;
+    private final Timer[] historyByPageSize;
+    private final Timer historyUnbounded;
+
+    public MicrometerLedgerMetrics(MeterRegistry registry) {
+        lockWait = timer("ledger.lock.wait", "Time spent waiting for an account lock", registry);
+        lockHold = timer("ledger.lock.hold", "Time an account lock is held per write", registry);
+        save = timer("ledger.save", "Latency of saving movements, journal append included", registry);
+        saveBatchSize = DistributionSummary.builder("ledger.save.movements")
+                                           .description("Movements per save")
+                                           .register(registry);
+        insufficientFunds = Counter.builder("ledger.rejections")
+                                   .description("Writes rejected by the funds check")
+                                   .tag("reason", "insufficient_funds")
+                                   .register(registry);
+        historyByPageSize = new Timer[PAGE_SIZE_BOUNDS.length + 1];
+        int lower = 1;
+        for (int i = 0; i < PAGE_SIZE_BOUNDS.length; i++) {
+            historyByPageSize[i] = historyTimer(lower + "-" + PAGE_SIZE_BOUNDS[i], registry);
+            lower = PAGE_SIZE_BOUNDS[i] + 1;
+        }
+        historyByPageSize[PAGE_SIZE_BOUNDS.length] = historyTimer(lower + "+", registry);
+        historyUnbounded = historyTimer("all", registry);
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public void recordLock(long waitNanos, long holdNanos) {
+        lockWait.record(waitNanos, TimeUnit.NANOSECONDS);
+        lockHold.record(holdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordSave(int movements, long nanos) {
+        save.record(nanos, TimeUnit.NANOSECONDS);
+        saveBatchSize.record(movements);
+    }
+
+    @Override
+    public void recordHistoryQuery(Integer limit, long nanos) {
+        historyTimer(limit).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void insufficientFunds() {
+        insufficientFunds.increment();
+    }
+
+    private Timer historyTimer(Integer limit) {
+        if (limit == null) {
+            return historyUnbounded;
+        }
+        for (int i = 0; i < PAGE_SIZE_BOUNDS.length; i++) {
+            if (limit <= PAGE_SIZE_BOUNDS[i]) {
+                return historyByPageSize[i];
+            }
+        }
+        return historyByPageSize[PAGE_SIZE_BOUNDS.length];
+    }
+
+    private static Timer historyTimer(String pageSize, MeterRegistry registry) {
+        return Timer.builder("ledger.history")
+                    .description("Latency of history page queries")
+                    .tag("page.size", pageSize)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+    }
+
+    private static Timer timer(String name, String description, MeterRegistry registry) {
+        return Timer.builder(name)
+                    .description(description)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+    }
+}
@@ -0,0 +1,318 @@
+package tiny.ledger.persistence;
+
+import tiny.ledger.entity.Movement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of movements backed by a single file.
+ * <p>
+ * Each record is framed as payload length (4), CRC32C of the payload (4) and the payload itself, which holds
+ * a movement count (4) followed by the movements. A torn or corrupt tail, left behind by a crash mid-write,
+ * is truncated away on replay, taking every movement of that record with it.
+ * <p>
+ * A record that fails to be written is cut off again before the append fails, so later records never follow a torn
+ * one. If that is impossible, or a group fsync keeps failing after a few retries, the journal fails: later appends are
+ * rejected and threads waiting for durability get the error instead of blocking forever.
+ * <p>
+ * A journal opened on an existing file must be replayed before anything is appended: replay finds the end of the
+ * last complete record, and appending anywhere else would overwrite records or follow a torn one.
+ */
+public class FileMovementJournal implements MovementJournal {
+    private static final int HEADER_SIZE = 8;
+    private static final int SYNC_ATTEMPTS = 5;
+    private static final long SYNC_RETRY_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FsyncPolicy fsyncPolicy;
+    private final long groupCommitIntervalNanos;
+    private final int groupCommitMaxRecords;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private final Thread flusher;
+    private volatile long appendedId;
+    private volatile long lastRecordOffset;
+    private volatile long durableId;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private long endOffset;
+    private boolean replayed;
+
+    public FileMovementJournal(Path path, FsyncPolicy fsyncPolicy, Duration groupCommitInterval, int groupCommitMaxRecords) {
+        this(path, open(path), fsyncPolicy, groupCommitInterval, groupCommitMaxRecords);
+    }
+
+    FileMovementJournal(Path path, FileChannel channel, FsyncPolicy fsyncPolicy, Duration groupCommitInterval, int groupCommitMaxRecords) {
+        this.path = path;
+        this.channel = channel;
+        this.fsyncPolicy = fsyncPolicy;
+        this.groupCommitIntervalNanos = groupCommitInterval.toNanos();
+        this.groupCommitMaxRecords = groupCommitMaxRecords;
+        try {
+            this.replayed = channel.size() == 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open journal " + path, e);
+        }
+        if (fsyncPolicy == FsyncPolicy.GROUP) {
+            flusher = new Thread(this::runFlusher, "ledger-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    private static FileChannel open(Path path) {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open journal " + path, e);
+        }
+    }
+
+    @Override
+    public void replay(long fromOffset, Consumer<Movement> consumer) {
+        try {
+            long size = channel.size();
+            long position = Math.min(fromOffset, size);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (position + HEADER_SIZE <= size) {
+                header.clear();
+                channel.read(header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || position + HEADER_SIZE + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                channel.read(payload, position + HEADER_SIZE);
+                payload.flip();
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                for (int count = payload.getInt(); count > 0; count--) {
+                    Movement movement = MovementCodec.decode(payload);
+                    consumer.accept(movement);
+                    appendedId = movement.id();
+                }
+                position += HEADER_SIZE + length;
+            }
+            if (position < size) {
+                channel.truncate(position);
+            }
+            channel.position(position);
+            endOffset = position;
+            lastRecordOffset = position;
+            replayed = true;
+            durableId = appendedId;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replay journal " + path, e);
+        }
+    }
+
+    @Override
+    public void append(List<Movement> movements) {
+        if (failure != null) {
+            throw failed();
+        }
+        if (!replayed) {
+            throw new IllegalStateException("Journal " + path + " must be replayed before anything is appended.");
+        }
+        int length = 4;
+        for (Movement movement : movements) {
+            length += MovementCodec.encodedSize(movement);
+        }
+        if (buffer.capacity() < HEADER_SIZE + length) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(HEADER_SIZE + length) << 1);
+        }
+        buffer.clear();
+        buffer.position(HEADER_SIZE);
+        buffer.putInt(movements.size());
+        for (Movement movement : movements) {
+            MovementCodec.encode(buffer, movement);
+        }
+        buffer.flip();
+        crc.reset();
+        crc.update(buffer.duplicate().position(HEADER_SIZE));
+        buffer.putInt(0, buffer.limit() - HEADER_SIZE);
+        buffer.putInt(4, (int) crc.getValue());
+        long recordOffset = endOffset;
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            discardTornRecord(recordOffset, e);
+            throw new UncheckedIOException("Unable to append to journal " + path, e);
+        }
+        endOffset = recordOffset + HEADER_SIZE + length;
+        lastRecordOffset = recordOffset;
+
+        long previousId = appendedId;
+        long lastId = movements.get(movements.size() - 1).id();
+        appendedId = lastId;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            durableId = lastId;
+        } else if (fsyncPolicy == FsyncPolicy.GROUP
+                   && (previousId == durableId || lastId - durableId >= groupCommitMaxRecords)) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    @Override
+    public long checkpointOffset() {
+        if (failure != null) {
+            throw failed();
+        }
+        long offset = lastRecordOffset;
+        try {
+            // Under OS or GROUP the record may still be only in the page cache; forcing covers every written byte.
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to sync journal " + path, e);
+        }
+        return offset;
+    }
+
+    @Override
+    public void awaitDurable(long id) {
+        if (fsyncPolicy != FsyncPolicy.GROUP || durableId >= id) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (durableId < id) {
+                if (failure != null) {
+                    throw failed();
+                }
+                durableAdvanced.awaitUninterruptibly();
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (channel.isOpen()) {
+                if (failure == null) {
+                    sync();
+                }
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close journal " + path, e);
+        }
+    }
+
+    private void runFlusher() {
+        int failedSyncs = 0;
+        while (!closed) {
+            if (appendedId == durableId) {
+                LockSupport.park(this);
+                continue;
+            }
+            // Records appended while the previous sync was running form the next group on their own; an optional
+            // linger lets more writers join it, unless a full group is already waiting.
+            if (groupCommitIntervalNanos > 0 && appendedId - durableId < groupCommitMaxRecords) {
+                LockSupport.parkNanos(this, groupCommitIntervalNanos);
+            }
+            try {
+                sync();
+                failedSyncs = 0;
+            } catch (IOException e) {
+                if (++failedSyncs == SYNC_ATTEMPTS) {
+                    fail(e);
+                    return;
+                }
+                // Appends keep waking the flusher, so the backoff is waited out in full.
+                long deadline = System.nanoTime() + (SYNC_RETRY_BACKOFF_NANOS << (failedSyncs - 1));
+                long wait;
+                while (!closed && (wait = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, wait);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts a partly written record off again, so the next append starts where the last complete record ends; the
+     * journal fails if that is impossible.
+     */
+    private void discardTornRecord(long recordOffset, IOException cause) {
+        try {
+            channel.truncate(recordOffset);
+            channel.position(recordOffset);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            fail(cause);
+        }
+    }
+
+    private void fail(IOException cause) {
+        durableLock.lock();
+        try {
+            failure = cause;
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private UncheckedIOException failed() {
+        return new UncheckedIOException("Journal " + path + " has failed and accepts no further movements", failure);
+    }
+
+    private void sync() throws IOException {
+        long target = appendedId;
+        if (target <= durableId) {
+            return;
+        }
+        channel.force(false);
+        durableLock.lock();
+        try {
+            durableId = target;
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package tiny.ledger.persistence;
+
+public enum FsyncPolicy {
+    /**
+     * Force the journal to disk before every append returns.
+     */
+    ALWAYS,
+    /**
+     * Force the journal from a background flusher, acknowledging all writers covered by the same sync at once.
+     * The flusher syncs as soon as the previous sync completes, after lingering up to the group commit interval
+     * unless the group commit record count is already pending.
+     */
+    GROUP,
+    /**
+     * Never force explicitly and let the operating system decide when pages reach the disk.
+     */
+    OS
+}
@@ -0,0 +1,176 @@
+package tiny.ledger.persistence;
+
+import tiny.ledger.entity.Movement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots written to and read from memory-mapped files named {@code snapshot-<lastId>.snap}.
+ * <p>
+ * Layout: magic, last id, balance, journal offset and movement count (8 bytes each), then length-prefixed
+ * movements in id order. Idempotency keys are part of their movements, so they need no section of their own.
+ * The magic is written last, so a snapshot interrupted mid-write is never picked up.
+ */
+public class MappedSnapshotStore implements SnapshotStore {
+    private static final long MAGIC = 0x544C534E41503032L;
+    private static final int HEADER_SIZE = 5 * 8;
+    private static final long WINDOW_SIZE = 256L << 20;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    private final Path directory;
+    private final int retained;
+
+    public MappedSnapshotStore(Path directory, int retained) {
+        this.directory = directory;
+        this.retained = Math.max(1, retained);
+    }
+
+    @Override
+    public Optional<SnapshotHeader> loadLatest(Consumer<Movement> movements) {
+        for (Path snapshot : snapshotsNewestFirst()) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                if (channel.size() < HEADER_SIZE) {
+                    continue;
+                }
+                Window in = new Window(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+                ByteBuffer header = in.require(HEADER_SIZE);
+                if (header.getLong() != MAGIC) {
+                    continue;
+                }
+                SnapshotHeader snapshotHeader = new SnapshotHeader(header.getLong(), header.getLong(), header.getLong());
+                long movementCount = header.getLong();
+                for (long i = 0; i < movementCount; i++) {
+                    int length = in.require(4).getInt();
+                    movements.accept(MovementCodec.decode(in.require(length)));
+                }
+                return Optional.of(snapshotHeader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to load snapshot " + snapshot, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void write(SnapshotHeader header, LongFunction<Movement> movementsById) {
+        long size = HEADER_SIZE;
+        for (long id = 1; id <= header.lastId(); id++) {
+            size += 4 + MovementCodec.encodedSize(movementsById.apply(id));
+        }
+
+        Path target = directory.resolve(PREFIX + header.lastId() + SUFFIX);
+        Path temporary = directory.resolve(PREFIX + header.lastId() + SUFFIX + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                Window out = new Window(channel, FileChannel.MapMode.READ_WRITE, size);
+                out.skip(HEADER_SIZE);
+                for (long id = 1; id <= header.lastId(); id++) {
+                    Movement movement = movementsById.apply(id);
+                    int length = MovementCodec.encodedSize(movement);
+                    ByteBuffer buffer = out.require(4 + length);
+                    buffer.putInt(length);
+                    MovementCodec.encode(buffer, movement);
+                }
+                out.close();
+
+                MappedByteBuffer headerBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                headerBuffer.putLong(MAGIC)
+                            .putLong(header.lastId())
+                            .putLong(header.balanceInCents())
+                            .putLong(header.journalOffset())
+                            .putLong(header.lastId());
+                headerBuffer.force();
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            List<Path> snapshots = snapshotsNewestFirst();
+            for (Path expired : snapshots.subList(Math.min(retained, snapshots.size()), snapshots.size())) {
+                Files.deleteIfExists(expired);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write snapshot " + target, e);
+        }
+    }
+
+    private List<Path> snapshotsNewestFirst() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                            String name = path.getFileName().toString();
+                            return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                        })
+                        .sorted(Comparator.comparingLong(MappedSnapshotStore::lastIdOf).reversed())
+                        .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list snapshots in " + directory, e);
+        }
+    }
+
+    private static long lastIdOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Sliding mapping over a file, remapped at the current position whenever the next read or write does not fit.
+     */
+    private static final class Window {
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private final long size;
+        private MappedByteBuffer buffer;
+        private long base;
+
+        Window(FileChannel channel, FileChannel.MapMode mode, long size) {
+            this.channel = channel;
+            this.mode = mode;
+            this.size = size;
+        }
+
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer == null || buffer.remaining() < bytes) {
+                long position = buffer == null ? 0 : base + buffer.position();
+                if (position + bytes > size) {
+                    throw new IOException("Snapshot is truncated at offset " + position);
+                }
+                close();
+                base = position;
+                buffer = channel.map(mode, position, Math.max(bytes, Math.min(WINDOW_SIZE, size - position)));
+            }
+            return buffer;
+        }
+
+        void skip(int bytes) throws IOException {
+            ByteBuffer window = require(bytes);
+            window.position(window.position() + bytes);
+        }
+
+        void close() {
+            if (buffer != null && mode == FileChannel.MapMode.READ_WRITE) {
+                buffer.force();
+            }
+        }
+    }
+}
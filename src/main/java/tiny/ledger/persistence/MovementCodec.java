@@ -0,0 +1,95 @@
+package tiny.ledger.persistence;
+
+import tiny.ledger.entity.Movement;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Binary layout of a single movement:
+ * id (8), type (1), amount (8), epoch seconds (8), nanos (4),
+ * description length (4, -1 for null) and bytes, idempotency key length (4, -1 for null) and bytes.
+ */
+final class MovementCodec {
+    private static final int FIXED_SIZE = 8 + 1 + 8 + 8 + 4 + 4 + 4;
+    private static final Movement.MovementType[] TYPES = Movement.MovementType.values();
+
+    private MovementCodec() {
+    }
+
+    static int encodedSize(Movement movement) {
+        return FIXED_SIZE + utf8Length(movement.description()) + utf8Length(movement.idempotencyKey());
+    }
+
+    static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced by '?' when encoded.
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    static void encode(ByteBuffer buffer, Movement movement, byte[] description, byte[] idempotencyKey) {
+        buffer.putLong(movement.id());
+        buffer.put((byte) movement.type().ordinal());
+        buffer.putLong(movement.amountInCents());
+        buffer.putLong(movement.createdOn().getEpochSecond());
+        buffer.putInt(movement.createdOn().getNano());
+        putBytes(buffer, description);
+        putBytes(buffer, idempotencyKey);
+    }
+
+    static void encode(ByteBuffer buffer, Movement movement) {
+        encode(buffer, movement, bytes(movement.description()), bytes(movement.idempotencyKey()));
+    }
+
+    static Movement decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        Movement.MovementType type = TYPES[buffer.get()];
+        long amountInCents = buffer.getLong();
+        Instant createdOn = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        String description = getString(buffer);
+        String idempotencyKey = getString(buffer);
+        return new Movement(id, type, amountInCents, createdOn, description, idempotencyKey);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
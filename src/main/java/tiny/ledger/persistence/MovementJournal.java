@@ -0,0 +1,74 @@
+package tiny.ledger.persistence;
+
+import tiny.ledger.entity.Movement;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface MovementJournal extends AutoCloseable {
+
+    MovementJournal DISABLED = new MovementJournal() {
+        @Override
+        public void replay(long fromOffset, Consumer<Movement> consumer) {
+        }
+
+        @Override
+        public long checkpointOffset() {
+            return 0L;
+        }
+
+        @Override
+        public void append(List<Movement> movements) {
+        }
+
+        @Override
+        public void awaitDurable(long id) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Feeds every movement recorded so far to the consumer, in the order it was appended.
+     */
+    default void replay(Consumer<Movement> consumer) {
+        replay(0L, consumer);
+    }
+
+    /**
+     * Feeds the movements recorded from the given journal offset onwards, in the order they were appended.
+     */
+    void replay(long fromOffset, Consumer<Movement> consumer);
+
+    /**
+     * Offset of the most recently appended record, made durable before it is returned whatever the fsync policy, so a
+     * snapshot never points past the journal that survives a crash. Replaying from an offset read before capturing
+     * the ledger state covers every movement that state may be missing, provided appends are serialized and happen
+     * before the movement is applied.
+     */
+    long checkpointOffset();
+
+    /**
+     * Appends a committed movement. Callers must serialize appends.
+     */
+    default void append(Movement movement) {
+        append(List.of(movement));
+    }
+
+    /**
+     * Appends committed movements as a single record, so they are replayed either all together or not at all.
+     * Callers must serialize appends.
+     */
+    void append(List<Movement> movements);
+
+    /**
+     * Blocks until the movement with the given id, and every movement before it, is durable, or throws if the
+     * journal fails before then.
+     */
+    void awaitDurable(long id);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,187 @@
+package tiny.ledger.persistence;
+
+import tiny.ledger.entity.Movement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of consecutive movements, deflated in blocks of {@link #BLOCK_SIZE} so a single movement is read
+ * by inflating one block rather than the whole file.
+ * <p>
+ * Layout: magic (8), first id (8), movement count (4), block count (4), postings offset (8) and length (4), then the
+ * sparse index, the file offset of every block (8 each), then the blocks, each a compressed length (4), a raw length
+ * (4) and the deflated movements in the journal's record layout, and last the postings: secondary index entries of
+ * the movements, stored as given by the caller. The sparse index is kept in memory from the time the file is written.
+ */
+public final class SegmentFile {
+    public static final int BLOCK_SIZE = 256;
+
+    private static final long MAGIC = 0x544C53454730320AL;
+    private static final int HEADER_SIZE = 8 + 8 + 4 + 4 + 8 + 4;
+
+    private final Path path;
+    private final long firstId;
+    private final int count;
+    private final long[] blockOffsets;
+    private final long postingsOffset;
+    private final int postingsLength;
+
+    private SegmentFile(Path path, long firstId, int count, long[] blockOffsets, long postingsOffset, int postingsLength) {
+        this.path = path;
+        this.firstId = firstId;
+        this.count = count;
+        this.blockOffsets = blockOffsets;
+        this.postingsOffset = postingsOffset;
+        this.postingsLength = postingsLength;
+    }
+
+    /**
+     * Writes {@code movements}, whose ids must be consecutive, and their {@code postings} to {@code path} through a
+     * temporary file moved into place once complete.
+     */
+    public static SegmentFile write(Path path, Movement[] movements, byte[] postings) throws IOException {
+        int blocks = (movements.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long[] blockOffsets = new long[blocks];
+        long postingsOffset;
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.createDirectories(path.getParent());
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE)) {
+            long position = HEADER_SIZE + 8L * blocks;
+            for (int block = 0; block < blocks; block++) {
+                int from = block * BLOCK_SIZE;
+                int to = Math.min(from + BLOCK_SIZE, movements.length);
+                int rawLength = 0;
+                for (int i = from; i < to; i++) {
+                    rawLength += MovementCodec.encodedSize(movements[i]);
+                }
+                ByteBuffer raw = ByteBuffer.allocate(rawLength);
+                for (int i = from; i < to; i++) {
+                    MovementCodec.encode(raw, movements[i]);
+                }
+                deflater.reset();
+                deflater.setInput(raw.array());
+                deflater.finish();
+                byte[] compressed = new byte[rawLength + rawLength / 100 + 64];
+                int compressedLength = 0;
+                while (!deflater.finished()) {
+                    if (compressedLength == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+                }
+                ByteBuffer out = ByteBuffer.allocate(8 + compressedLength);
+                out.putInt(compressedLength).putInt(rawLength).put(compressed, 0, compressedLength).flip();
+                blockOffsets[block] = position;
+                position += writeFully(channel, out, position);
+            }
+            postingsOffset = position;
+            writeFully(channel, ByteBuffer.wrap(postings), postingsOffset);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 8 * blocks);
+            header.putLong(MAGIC).putLong(movements[0].id()).putInt(movements.length).putInt(blocks)
+                  .putLong(postingsOffset).putInt(postings.length);
+            for (long offset : blockOffsets) {
+                header.putLong(offset);
+            }
+            header.flip();
+            writeFully(channel, header, 0L);
+            channel.force(false);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new SegmentFile(path, movements[0].id(), movements.length, blockOffsets, postingsOffset, postings.length);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long firstId() {
+        return firstId;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int blocks() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * Inflates block {@code block}: the movements with ids from {@code firstId + block * BLOCK_SIZE}, in id order.
+     */
+    public Movement[] readBlock(int block) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer lengths = readFully(channel, 8, blockOffsets[block]);
+            int compressedLength = lengths.getInt();
+            int rawLength = lengths.getInt();
+            ByteBuffer compressed = readFully(channel, compressedLength, blockOffsets[block] + 8);
+            byte[] raw = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array());
+                int inflated = 0;
+                while (inflated < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != rawLength) {
+                    throw new IOException("Truncated block " + block + " in " + path);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt block " + block + " in " + path, e);
+            } finally {
+                inflater.end();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(raw);
+            Movement[] movements = new Movement[Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE)];
+            for (int i = 0; i < movements.length; i++) {
+                movements[i] = MovementCodec.decode(buffer);
+            }
+            return movements;
+        }
+    }
+
+    /**
+     * The postings written with the movements.
+     */
+    public byte[] readPostings() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readFully(channel, postingsLength, postingsOffset).array();
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment file at " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,8 @@
+package tiny.ledger.persistence;
+
+/**
+ * Position of a snapshot in the ledger: the last movement it contains, the balance after it,
+ * and the journal offset from which replay picks up the movements that follow.
+ */
+public record SnapshotHeader(long lastId, long balanceInCents, long journalOffset) {
+}
@@ -0,0 +1,33 @@
+package tiny.ledger.persistence;
+
+import tiny.ledger.entity.Movement;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+public interface SnapshotStore {
+
+    SnapshotStore DISABLED = new SnapshotStore() {
+        @Override
+        public Optional<SnapshotHeader> loadLatest(Consumer<Movement> movements) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void write(SnapshotHeader header, LongFunction<Movement> movementsById) {
+        }
+    };
+
+    /**
+     * Loads the most recent complete snapshot, feeding its movements in id order.
+     * Idempotency keys travel with their movements.
+     */
+    Optional<SnapshotHeader> loadLatest(Consumer<Movement> movements);
+
+    /**
+     * Writes movements {@code 1..header.lastId()}.
+     * Movements beyond the header's last id are skipped, so the source may keep growing while this runs.
+     */
+    void write(SnapshotHeader header, LongFunction<Movement> movementsById);
+}
@@ -0,0 +1,37 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.persistence.MovementJournal;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One account's ledger: its repository, its journal and the lock serializing its writes.
+ */
+public final class AccountLedger {
+    private final String accountId;
+    private final LedgerRepository repository;
+    private final MovementJournal journal;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public AccountLedger(String accountId, LedgerRepository repository, MovementJournal journal) {
+        this.accountId = accountId;
+        this.repository = repository;
+        this.journal = journal;
+    }
+
+    public String accountId() {
+        return accountId;
+    }
+
+    public LedgerRepository repository() {
+        return repository;
+    }
+
+    public MovementJournal journal() {
+        return journal;
+    }
+
+    public ReentrantLock lock() {
+        return lock;
+    }
+}
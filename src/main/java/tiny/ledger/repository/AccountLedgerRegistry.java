@@ -0,0 +1,98 @@
+package tiny.ledger.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+public class AccountLedgerRegistry implements AccountLedgers, AutoCloseable {
+    private static final Pattern ACCOUNT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final AccountLedger defaultLedger;
+    private final Function<String, AccountLedger> factory;
+    private final int maxAccounts;
+    private final ConcurrentMap<String, AccountLedger> ledgers = new ConcurrentHashMap<>();
+    private final AtomicInteger accounts = new AtomicInteger(1);
+
+    public AccountLedgerRegistry(AccountLedger defaultLedger) {
+        this(defaultLedger, null);
+    }
+
+    public AccountLedgerRegistry(AccountLedger defaultLedger, Function<String, AccountLedger> factory) {
+        this(defaultLedger, factory, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxAccounts accounts, the default one included, beyond which writes to new accounts are rejected
+     */
+    public AccountLedgerRegistry(AccountLedger defaultLedger, Function<String, AccountLedger> factory, int maxAccounts) {
+        if (maxAccounts < 1) {
+            throw new IllegalArgumentException("The account limit must be at least 1.");
+        }
+        this.defaultLedger = defaultLedger;
+        this.factory = factory;
+        this.maxAccounts = maxAccounts;
+        ledgers.put(defaultLedger.accountId(), defaultLedger);
+    }
+
+    @Override
+    public Optional<AccountLedger> find(String accountId) {
+        return Optional.ofNullable(ledgers.get(accountId));
+    }
+
+    @Override
+    public AccountLedger open(String accountId) {
+        return open(accountId, true);
+    }
+
+    /**
+     * Opens an account found on disk at startup; these are restored even past the account limit, so no recorded
+     * movements are hidden, but they count towards it.
+     */
+    public AccountLedger restore(String accountId) {
+        return open(accountId, false);
+    }
+
+    private AccountLedger open(String accountId, boolean limited) {
+        AccountLedger ledger = ledgers.get(accountId);
+        if (ledger != null) {
+            return ledger;
+        }
+        if (factory == null || !ACCOUNT_ID.matcher(accountId).matches()) {
+            throw new IllegalArgumentException("Invalid account: " + accountId);
+        }
+        return ledgers.computeIfAbsent(accountId, id -> {
+            if (accounts.incrementAndGet() > maxAccounts && limited) {
+                accounts.decrementAndGet();
+                throw new IllegalStateException("The limit of " + maxAccounts + " accounts is reached; no new accounts can be opened.");
+            }
+            try {
+                return factory.apply(id);
+            } catch (RuntimeException e) {
+                accounts.decrementAndGet();
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public Collection<AccountLedger> all() {
+        return List.copyOf(ledgers.values());
+    }
+
+    /**
+     * Closes the journals of the accounts opened by this registry; the default account's journal is owned elsewhere.
+     */
+    @Override
+    public void close() {
+        for (AccountLedger ledger : ledgers.values()) {
+            if (ledger != defaultLedger) {
+                ledger.journal().close();
+            }
+        }
+    }
+}
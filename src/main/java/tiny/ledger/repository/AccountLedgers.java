@@ -0,0 +1,26 @@
+package tiny.ledger.repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+public interface AccountLedgers {
+    String DEFAULT_ACCOUNT = "default";
+
+    /**
+     * Returns the ledger of an account that has been written to, without opening anything.
+     *
+     * @throws AccountNotFoundException if the account has no ledger
+     */
+    default AccountLedger get(String accountId) {
+        return find(accountId).orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    Optional<AccountLedger> find(String accountId);
+
+    /**
+     * Returns the ledger of the given account, opening it on first use; only writes open accounts.
+     */
+    AccountLedger open(String accountId);
+
+    Collection<AccountLedger> all();
+}
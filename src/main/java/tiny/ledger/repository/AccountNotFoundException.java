@@ -0,0 +1,11 @@
+package tiny.ledger.repository;
+
+/**
+ * Thrown when reading an account that has never been written to; reads never open accounts.
+ */
+public class AccountNotFoundException extends RuntimeException {
+
+    public AccountNotFoundException(String accountId) {
+        super("Unknown account: " + accountId);
+    }
+}
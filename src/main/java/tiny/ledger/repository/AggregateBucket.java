@@ -0,0 +1,13 @@
+package tiny.ledger.repository;
+
+import java.time.Instant;
+
+/**
+ * Counts and totals of the movements created in {@code [start, start + granularity)}.
+ */
+public record AggregateBucket(Instant start,
+                              long depositCount,
+                              long depositsInCents,
+                              long withdrawalCount,
+                              long withdrawalsInCents) {
+}
@@ -0,0 +1,28 @@
+package tiny.ledger.repository;
+
+import java.time.Duration;
+
+/**
+ * Bucket sizes of the movement aggregates, each retained for a fixed number of the most recent buckets.
+ */
+public enum AggregateGranularity {
+    MINUTE(Duration.ofMinutes(1), 24 * 60),
+    HOUR(Duration.ofHours(1), 90 * 24),
+    DAY(Duration.ofDays(1), 5 * 366);
+
+    private final long seconds;
+    private final int retainedBuckets;
+
+    AggregateGranularity(Duration size, int retainedBuckets) {
+        this.seconds = size.toSeconds();
+        this.retainedBuckets = retainedBuckets;
+    }
+
+    public long seconds() {
+        return seconds;
+    }
+
+    public int retainedBuckets() {
+        return retainedBuckets;
+    }
+}
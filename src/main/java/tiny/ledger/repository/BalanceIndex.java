@@ -0,0 +1,117 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Running-balance checkpoints taken every {@code 64} movements, answering balance queries at any id or instant
+ * from the nearest checkpoint plus at most 63 movements of the store.
+ * <p>
+ * Instant queries, including the id ranges of filtered history, binary search the checkpoints by time. Clocks may
+ * step backwards, so every movement is placed at the latest {@code createdOn} seen up to it, which keeps times
+ * non-decreasing along ids. Writes are serialized by the caller; readers see checkpoints published through the
+ * volatile {@code count}.
+ */
+final class BalanceIndex {
+    private static final int CHECKPOINT_SHIFT = 6;
+    private static final int CHECKPOINT_INTERVAL = 1 << CHECKPOINT_SHIFT;
+
+    private volatile Checkpoints checkpoints = new Checkpoints(new long[64], new long[64]);
+    private volatile int count;
+    private long size;
+    private long balance;
+    private long latestNanos = Long.MIN_VALUE;
+
+    void append(Movement movement) {
+        balance += signedAmount(movement);
+        latestNanos = Math.max(latestNanos, epochNanos(movement.createdOn()));
+        if (++size % CHECKPOINT_INTERVAL == 0) {
+            Checkpoints current = checkpoints;
+            if (count == current.balances.length) {
+                current = new Checkpoints(Arrays.copyOf(current.balances, count * 2), Arrays.copyOf(current.epochNanos, count * 2));
+                checkpoints = current;
+            }
+            current.balances[count] = balance;
+            current.epochNanos[count] = latestNanos;
+            count = count + 1;
+        }
+    }
+
+    /**
+     * Balance right after movement {@code id}, which must be stored and at most {@code lastId}.
+     */
+    long balanceAtId(long id, MovementStore store) {
+        int checkpoint = (int) (id >>> CHECKPOINT_SHIFT);
+        long balance = checkpoint == 0 ? 0L : checkpoints.balances[checkpoint - 1];
+        for (long next = ((long) checkpoint << CHECKPOINT_SHIFT) + 1; next <= id; next++) {
+            balance += signedAmount(store.get(next));
+        }
+        return balance;
+    }
+
+    /**
+     * Balance after the last movement created at or before {@code instant}, considering movements up to
+     * {@code lastId} only.
+     */
+    long balanceAsOf(Instant instant, long lastId, MovementStore store) {
+        return asOf(instant, lastId, store, true);
+    }
+
+    /**
+     * Id of the last movement created at or before {@code instant}, considering movements up to {@code lastId}
+     * only, or {@code 0} if there is none.
+     */
+    long idAsOf(Instant instant, long lastId, MovementStore store) {
+        return asOf(instant, lastId, store, false);
+    }
+
+    private long asOf(Instant instant, long lastId, MovementStore store, boolean balanceWanted) {
+        long nanos;
+        try {
+            nanos = epochNanos(instant);
+        } catch (ArithmeticException e) {
+            // Beyond the range of epoch nanos, i.e. before every movement or after all of them.
+            nanos = instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        // Read the count before the arrays: arrays published after it are never shorter.
+        int published = count;
+        Checkpoints current = checkpoints;
+        // Number of checkpoints, within lastId, taken at or before the instant.
+        int low = 0;
+        int high = (int) Math.min(published, lastId >>> CHECKPOINT_SHIFT);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (current.epochNanos[middle] <= nanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        long balance = low == 0 ? 0L : current.balances[low - 1];
+        long effectiveNanos = low == 0 ? Long.MIN_VALUE : current.epochNanos[low - 1];
+        long id = (long) low << CHECKPOINT_SHIFT;
+        while (id < lastId) {
+            Movement movement = store.get(id + 1);
+            effectiveNanos = Math.max(effectiveNanos, epochNanos(movement.createdOn()));
+            if (effectiveNanos > nanos) {
+                break;
+            }
+            balance += signedAmount(movement);
+            id++;
+        }
+        return balanceWanted ? balance : id;
+    }
+
+    private static long signedAmount(Movement movement) {
+        return movement.type() == Movement.MovementType.DEPOSIT ? movement.amountInCents() : -movement.amountInCents();
+    }
+
+    private static long epochNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    private record Checkpoints(long[] balances, long[] epochNanos) {
+    }
+}
@@ -0,0 +1,183 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Column-oriented movement storage that keeps no {@link Movement} objects around.
+ * <p>
+ * Each chunk of {@code 1 << 14} movements holds primitive columns for amount, epoch nanos and type, plus references
+ * into a byte arena where descriptions and idempotency keys are stored as length-prefixed UTF-8. Ids are implicit,
+ * movement {@code id} lives at index {@code id - 1}. {@link Movement} objects are materialized on read only.
+ */
+final class ColumnarMovementStore implements MovementStore {
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long NO_BYTES = -1L;
+    private static final Movement.MovementType[] TYPES = Movement.MovementType.values();
+
+    private final ByteArena arena = new ByteArena();
+    private volatile Chunk[] chunks = new Chunk[16];
+    private volatile long size;
+
+    @Override
+    public void append(Movement movement) {
+        long index = size;
+        if (movement.id() != index + 1) {
+            throw new IllegalStateException("Movement id " + movement.id() + " is out of sequence, expected " + (index + 1));
+        }
+        int chunkIndex = (int) (index >>> CHUNK_SHIFT);
+        Chunk[] current = chunks;
+        if (chunkIndex == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            chunks = current;
+        }
+        if (current[chunkIndex] == null) {
+            current[chunkIndex] = new Chunk();
+        }
+        Chunk chunk = current[chunkIndex];
+        int slot = (int) (index & CHUNK_MASK);
+        Instant createdOn = movement.createdOn();
+        chunk.amounts[slot] = movement.amountInCents();
+        chunk.epochNanos[slot] = Math.addExact(Math.multiplyExact(createdOn.getEpochSecond(), 1_000_000_000L), createdOn.getNano());
+        chunk.types[slot] = (byte) movement.type().ordinal();
+        chunk.descriptions[slot] = arena.add(bytes(movement.description()));
+        chunk.idempotencyKeys[slot] = arena.add(bytes(movement.idempotencyKey()));
+        size = index + 1;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Movement get(long id) {
+        if (id < 1 || id > size) {
+            return null;
+        }
+        long index = id - 1;
+        Chunk chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+        int slot = (int) (index & CHUNK_MASK);
+        long epochNanos = chunk.epochNanos[slot];
+        return new Movement(id,
+                            TYPES[chunk.types[slot]],
+                            chunk.amounts[slot],
+                            Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L)),
+                            arena.string(chunk.descriptions[slot]),
+                            arena.string(chunk.idempotencyKeys[slot]));
+    }
+
+    /**
+     * Bytes held by the column and arena arrays, without object headers; deterministic, unlike heap measurements.
+     */
+    long allocatedBytes() {
+        long bytes = 0L;
+        for (Chunk chunk : chunks) {
+            if (chunk != null) {
+                bytes += 4L * Long.BYTES * CHUNK_SIZE + CHUNK_SIZE;
+            }
+        }
+        return bytes + arena.allocatedBytes();
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static final class Chunk {
+        final long[] amounts = new long[CHUNK_SIZE];
+        final long[] epochNanos = new long[CHUNK_SIZE];
+        final byte[] types = new byte[CHUNK_SIZE];
+        final long[] descriptions = new long[CHUNK_SIZE];
+        final long[] idempotencyKeys = new long[CHUNK_SIZE];
+    }
+
+    /**
+     * Append-only byte pages. A reference packs the page index in its upper 32 bits and the offset within the page
+     * in the lower ones; the value there is a varint length followed by the bytes. Values too large for a regular
+     * page get a page of their own.
+     */
+    private static final class ByteArena {
+        private static final int PAGE_SIZE = 1 << 20;
+
+        private volatile byte[][] pages = new byte[16][];
+        private int pageCount;
+        private int position = PAGE_SIZE;
+
+        long add(byte[] value) {
+            if (value == null) {
+                return NO_BYTES;
+            }
+            int required = varintSize(value.length) + value.length;
+            byte[] page;
+            if (position + required <= PAGE_SIZE) {
+                page = pages[pageCount - 1];
+            } else {
+                page = new byte[Math.max(PAGE_SIZE, required)];
+                byte[][] current = pages;
+                if (pageCount == current.length) {
+                    current = Arrays.copyOf(current, current.length * 2);
+                }
+                current[pageCount++] = page;
+                pages = current;
+                position = 0;
+            }
+            long reference = (long) (pageCount - 1) << 32 | position;
+            int offset = putVarint(page, position, value.length);
+            System.arraycopy(value, 0, page, offset, value.length);
+            position = page.length > PAGE_SIZE ? PAGE_SIZE : offset + value.length;
+            return reference;
+        }
+
+        long allocatedBytes() {
+            long bytes = 0L;
+            for (int i = 0; i < pageCount; i++) {
+                bytes += pages[i].length;
+            }
+            return bytes;
+        }
+
+        String string(long reference) {
+            if (reference == NO_BYTES) {
+                return null;
+            }
+            byte[] page = pages[(int) (reference >>> 32)];
+            int length = length(page, (int) reference);
+            return new String(page, (int) reference + varintSize(length), length, StandardCharsets.UTF_8);
+        }
+
+        private static int length(byte[] page, int offset) {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = page[offset++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return length;
+        }
+
+        private static int varintSize(int value) {
+            int size = 1;
+            while ((value >>>= 7) != 0) {
+                size++;
+            }
+            return size;
+        }
+
+        private static int putVarint(byte[] page, int offset, int value) {
+            while ((value & ~0x7F) != 0) {
+                page[offset++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            page[offset++] = (byte) value;
+            return offset;
+        }
+    }
+}
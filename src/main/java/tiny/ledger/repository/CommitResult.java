@@ -0,0 +1,10 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+/**
+ * Outcome of one movement of {@link LedgerRepository#commitAll}: the movement recorded for it, or the one already
+ * recorded under its idempotency key when {@code replayed}.
+ */
+public record CommitResult(Movement movement, boolean replayed) {
+}
@@ -0,0 +1,53 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every {@link Movement} object as it was saved.
+ * <p>
+ * Movements live in fixed-size chunks addressed by {@code id - 1}, so appends never copy existing entries
+ * and pages are read newest-first by walking ids backwards.
+ */
+final class HeapMovementStore implements MovementStore {
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile Movement[][] chunks = new Movement[16][];
+    private volatile long size;
+
+    @Override
+    public void append(Movement movement) {
+        long index = size;
+        if (movement.id() != index + 1) {
+            throw new IllegalStateException("Movement id " + movement.id() + " is out of sequence, expected " + (index + 1));
+        }
+        int chunk = (int) (index >>> CHUNK_SHIFT);
+        Movement[][] current = chunks;
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            chunks = current;
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new Movement[CHUNK_SIZE];
+        }
+        current[chunk][(int) (index & CHUNK_MASK)] = movement;
+        size = index + 1;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Movement get(long id) {
+        if (id < 1 || id > size) {
+            return null;
+        }
+        long index = id - 1;
+        return chunks[(int) (index >>> CHUNK_SHIFT)][(int) (index & CHUNK_MASK)];
+    }
+}
@@ -0,0 +1,297 @@
+package tiny.ledger.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bounded map from idempotency key to movement id, forgetting keys after a retention window.
+ * <p>
+ * Keys are not retained: each one is reduced to a 128-bit MurmurHash3 of its UTF-8 bytes. Entries sit in a ring in
+ * insertion order, which is also expiry order, and an open-addressing index maps hashes to ring positions. Every
+ * {@link #put} evicts a few expired entries from the head of the ring, and the oldest one when the store is full,
+ * so expired keys go away incrementally rather than in sweeps. Both arrays grow on demand up to {@code maxKeys}.
+ * <p>
+ * Like the movement store, {@link #put} is expected to be serialized by the account's writer. {@link #find} may run
+ * alongside it, as lock-free commits do: it probes under an optimistic read and retries under a read lock if a put
+ * got in between.
+ */
+public class IdempotencyKeyStore {
+    public static final Duration DEFAULT_RETENTION = Duration.ofHours(1);
+    public static final int DEFAULT_MAX_KEYS = 1_000_000;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int EVICTIONS_PER_PUT = 4;
+
+    private final long retentionMillis;
+    private final int maxKeys;
+    private final Clock clock;
+
+    private long[] hashHigh = new long[INITIAL_CAPACITY];
+    private long[] hashLow = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] createdOnMillis = new long[INITIAL_CAPACITY];
+    private long[] index = new long[INITIAL_CAPACITY * 2];
+    private volatile long head;
+    private volatile long tail;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IdempotencyKeyStore() {
+        this(DEFAULT_RETENTION, DEFAULT_MAX_KEYS);
+    }
+
+    public IdempotencyKeyStore(Duration retention, int maxKeys) {
+        this(retention, maxKeys, Clock.systemUTC());
+    }
+
+    public IdempotencyKeyStore(Duration retention, int maxKeys, Clock clock) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("Idempotency store must hold at least one key.");
+        }
+        this.retentionMillis = retention.toMillis();
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the id of the movement recorded with {@code key} within the retention window, or {@code 0}.
+     */
+    public long find(String key) {
+        long[] hash = murmur3(key.getBytes(StandardCharsets.UTF_8));
+        long now = clock.millis();
+        long id;
+        long stamp = lock.tryOptimisticRead();
+        try {
+            id = lookup(hash[0], hash[1], now);
+        } catch (RuntimeException e) {
+            // A racing put can leave the arrays torn, e.g. mid-grow; the stamp check below discards the result.
+            id = 0L;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                id = lookup(hash[0], hash[1], now);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (id != 0L) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return id;
+    }
+
+    /**
+     * Remembers {@code key} for the movement {@code id}, created at {@code createdOn}. Keys already past the
+     * retention window, e.g. while replaying an old journal, are not stored at all.
+     */
+    public void put(String key, long id, Instant createdOn) {
+        long stamp = lock.writeLock();
+        try {
+            insert(key, id, createdOn);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public IdempotencyStats stats() {
+        return new IdempotencyStats(hits.sum(), misses.sum(), evictions.sum(), tail - head);
+    }
+
+    private long lookup(long high, long low, long now) {
+        long position = position(high, low);
+        if (position >= 0 && now - createdOnMillis[ring(position)] <= retentionMillis) {
+            return ids[ring(position)];
+        }
+        return 0L;
+    }
+
+    private void insert(String key, long id, Instant createdOn) {
+        long now = clock.millis();
+        evictExpired(now);
+        long createdOnMillis = createdOn.toEpochMilli();
+        if (now - createdOnMillis > retentionMillis) {
+            return;
+        }
+        if (tail - head == maxKeys) {
+            evictOldest();
+        }
+        if (tail - head == ids.length) {
+            grow();
+        }
+
+        long[] hash = murmur3(key.getBytes(StandardCharsets.UTF_8));
+        long high = hash[0];
+        long low = hash[1];
+        int slot = ring(tail);
+        hashHigh[slot] = high;
+        hashLow[slot] = low;
+        ids[slot] = id;
+        this.createdOnMillis[slot] = createdOnMillis;
+
+        // A key re-recorded after it expired takes over the index slot of its stale entry.
+        int mask = index.length - 1;
+        int probe = home(low, mask);
+        while (index[probe] != 0L) {
+            long position = index[probe] - 1;
+            if (hashHigh[ring(position)] == high && hashLow[ring(position)] == low) {
+                break;
+            }
+            probe = (probe + 1) & mask;
+        }
+        index[probe] = tail + 1;
+        tail++;
+    }
+
+    private void evictExpired(long now) {
+        for (int i = 0; i < EVICTIONS_PER_PUT && head < tail && now - createdOnMillis[ring(head)] > retentionMillis; i++) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        long position = head++;
+        evictions.increment();
+        int mask = index.length - 1;
+        int slot = home(hashLow[ring(position)], mask);
+        while (index[slot] != position + 1) {
+            if (index[slot] == 0L) {
+                // Superseded by a newer entry for the same key.
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Backward-shift deletion keeps every remaining entry reachable from its home slot without tombstones.
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (index[next] == 0L) {
+                break;
+            }
+            int home = home(hashLow[ring(index[next] - 1)], mask);
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                index[hole] = index[next];
+                hole = next;
+            }
+        }
+        index[hole] = 0L;
+    }
+
+    private long position(long high, long low) {
+        long[] index = this.index;
+        int mask = index.length - 1;
+        for (int slot = home(low, mask); index[slot] != 0L; slot = (slot + 1) & mask) {
+            long position = index[slot] - 1;
+            if (hashHigh[ring(position)] == high && hashLow[ring(position)] == low) {
+                return position;
+            }
+        }
+        return -1L;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        long[] newHashHigh = new long[capacity];
+        long[] newHashLow = new long[capacity];
+        long[] newIds = new long[capacity];
+        long[] newCreatedOnMillis = new long[capacity];
+        for (long position = head; position < tail; position++) {
+            int from = ring(position);
+            int to = (int) (position & (capacity - 1));
+            newHashHigh[to] = hashHigh[from];
+            newHashLow[to] = hashLow[from];
+            newIds[to] = ids[from];
+            newCreatedOnMillis[to] = createdOnMillis[from];
+        }
+        long[] newIndex = new long[capacity * 2];
+        int mask = newIndex.length - 1;
+        for (long slot : index) {
+            if (slot != 0L) {
+                int probe = home(newHashLow[(int) ((slot - 1) & (capacity - 1))], mask);
+                while (newIndex[probe] != 0L) {
+                    probe = (probe + 1) & mask;
+                }
+                newIndex[probe] = slot;
+            }
+        }
+        hashHigh = newHashHigh;
+        hashLow = newHashLow;
+        ids = newIds;
+        createdOnMillis = newCreatedOnMillis;
+        index = newIndex;
+    }
+
+    private int ring(long position) {
+        return (int) (position & (ids.length - 1));
+    }
+
+    private static int home(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * MurmurHash3 x64 128-bit with seed 0.
+     */
+    private static long[] murmur3(byte[] bytes) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = bytes.length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = littleEndian(bytes, i * 16, 8);
+            long k2 = littleEndian(bytes, i * 16 + 8, 8);
+            h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+            h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+            h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+            h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+        }
+        int offset = blocks * 16;
+        int remaining = bytes.length - offset;
+        if (remaining > 8) {
+            long k2 = littleEndian(bytes, offset + 8, remaining - 8);
+            h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+        }
+        if (remaining > 0) {
+            long k1 = littleEndian(bytes, offset, Math.min(remaining, 8));
+            h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+        }
+        h1 ^= bytes.length;
+        h2 ^= bytes.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long littleEndian(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
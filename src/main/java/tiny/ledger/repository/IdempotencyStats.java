@@ -0,0 +1,7 @@
+package tiny.ledger.repository;
+
+/**
+ * Counters of an {@link IdempotencyKeyStore}; {@code size} is the number of keys currently retained.
+ */
+public record IdempotencyStats(long hits, long misses, long evictions, long size) {
+}
@@ -0,0 +1,20 @@
+package tiny.ledger.repository;
+
+/**
+ * Thrown by {@link LedgerRepository#commitAll} when a withdrawal would overdraw the account; nothing is committed.
+ */
+public class InsufficientFundsException extends IllegalStateException {
+    private final int index;
+
+    public InsufficientFundsException(int index) {
+        super("Insufficient funds for this transaction (transaction " + index + ").");
+        this.index = index;
+    }
+
+    /**
+     * Position of the rejected withdrawal in the committed list.
+     */
+    public int index() {
+        return index;
+    }
+}
@@ -0,0 +1,13 @@
+package tiny.ledger.repository;
+
+/**
+ * Last committed movement id together with the balance right after it, published as one value
+ * so readers never see the id and the balance of different commits.
+ */
+record LedgerHead(long lastId, long balanceInCents) {
+    static final LedgerHead EMPTY = new LedgerHead(0L, 0L);
+
+    LedgerHead next(long id, long signedAmountInCents) {
+        return new LedgerHead(id, balanceInCents + signedAmountInCents);
+    }
+}
@@ -3,14 +3,56 @@ package tiny.ledger.repository;
 import org.springframework.stereotype.Repository;
 import tiny.ledger.entity.Movement;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 @Repository
 public interface LedgerRepository {
     Optional<Movement> findById(long id);
     Optional<Long> findIdByIdempotencyKey(String idempotencyKey);
     List<Movement> findMovements(Integer limit, Integer offset);
+    List<Movement> findMovementsOlderThan(long id, Integer limit);
+
+    /**
+     * Up to {@code limit} movements matching {@code filter} with ids below {@code beforeId}, newest first, served by
+     * secondary indexes so the cost follows the number of movements returned rather than the size of the ledger.
+     */
+    List<Movement> findMovements(MovementFilter filter, long beforeId, Integer limit);
+    Stream<Movement> streamMovements(long fromId, long toId);
     Movement save(Movement movement);
+    List<Movement> saveAll(List<Movement> movements);
+
+    /**
+     * Lock-free, all-or-nothing commit that may be called concurrently: idempotency keys are claimed, withdrawals are
+     * checked against the running balance and ids are assigned in one atomic step, throwing
+     * {@link InsufficientFundsException} if any withdrawal would overdraw the account. Not to be mixed with
+     * {@link #saveAll} on the same ledger.
+     */
+    List<CommitResult> commitAll(List<Movement> movements);
+
+    /**
+     * Applies movements committed by another ledger as they are, ids and timestamps included: those already applied
+     * are skipped and the rest must follow the last id without a gap. Callers make sure only one write runs at a time.
+     */
+    List<Movement> replicate(List<Movement> movements);
     long getCurrentBalanceInCents();
+
+    /**
+     * Last committed id; it only ever grows, so it doubles as the version of the ledger.
+     */
+    long getLastId();
+    long getBalanceInCentsAtId(long id);
+    long getBalanceInCentsAsOf(Instant instant);
+    List<AggregateBucket> findAggregates(AggregateGranularity granularity, Instant from, Instant to);
+    IdempotencyStats idempotencyStats();
+    void writeSnapshot();
+
+    /**
+     * Registers a listener called on the writing thread with the last id each time movements are committed; it must
+     * return quickly and never block.
+     */
+    void addCommitListener(LongConsumer listener);
 }
@@ -1,23 +1,121 @@
 package tiny.ledger.repository;
 
-import org.springframework.stereotype.Repository;
 import tiny.ledger.entity.Movement;
+import tiny.ledger.metrics.LedgerMetrics;
+import tiny.ledger.persistence.MovementJournal;
+import tiny.ledger.persistence.SnapshotHeader;
+import tiny.ledger.persistence.SnapshotStore;
 
+import java.nio.file.Path;
 import java.time.Instant;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
-@Repository
 public class LedgerRepositoryImpl implements LedgerRepository {
-    private final ConcurrentMap<Long, Movement> tinyLedger = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, Long> idsByIdempotencyKey = new ConcurrentHashMap<>();
+    private final MovementStore tinyLedger;
+    private final IdempotencyKeyStore idempotencyKeys;
+    private final BalanceIndex balances = new BalanceIndex();
+    private final MovementAggregates aggregates = new MovementAggregates();
+    private final MovementIndex index;
 
-    private final AtomicLong idCounter = new AtomicLong();
-    private final AtomicLong balanceInCents = new AtomicLong(0L);
+    private volatile LedgerHead head = LedgerHead.EMPTY;
+    private final List<LongConsumer> commitListeners = new CopyOnWriteArrayList<>();
+
+    // Lock-free commits: ids and balance are reserved by CAS here, then inserted and published through head in id order.
+    private final AtomicReference<LedgerHead> reserved = new AtomicReference<>(LedgerHead.EMPTY);
+    private final ConcurrentMap<String, CompletableFuture<Movement>> claims = new ConcurrentHashMap<>();
+    private volatile boolean failed;
+
+    private final MovementJournal journal;
+    private final SnapshotStore snapshots;
+    private final LedgerMetrics metrics;
+    private long lastSnapshotId;
+
+    public LedgerRepositoryImpl() {
+        this(MovementJournal.DISABLED);
+    }
+
+    public LedgerRepositoryImpl(MovementJournal journal) {
+        this(journal, SnapshotStore.DISABLED);
+    }
+
+    public LedgerRepositoryImpl(MovementJournal journal, SnapshotStore snapshots) {
+        this(StorageLayout.HEAP, new IdempotencyKeyStore(), journal, snapshots);
+    }
+
+    public LedgerRepositoryImpl(StorageLayout layout,
+                                IdempotencyKeyStore idempotencyKeys,
+                                MovementJournal journal,
+                                SnapshotStore snapshots) {
+        this(layout, idempotencyKeys, journal, snapshots, LedgerMetrics.NOOP);
+    }
+
+    public LedgerRepositoryImpl(StorageLayout layout,
+                                IdempotencyKeyStore idempotencyKeys,
+                                MovementJournal journal,
+                                SnapshotStore snapshots,
+                                LedgerMetrics metrics) {
+        this(layout, idempotencyKeys, journal, snapshots, metrics, Tiering.DISABLED, null);
+    }
+
+    public LedgerRepositoryImpl(StorageLayout layout,
+                                IdempotencyKeyStore idempotencyKeys,
+                                MovementJournal journal,
+                                SnapshotStore snapshots,
+                                LedgerMetrics metrics,
+                                Tiering tiering,
+                                Path segmentDirectory) {
+        this(layout, idempotencyKeys, journal, snapshots, metrics, tiering, segmentDirectory, MovementIndex.DEFAULT_MAX_TOKENS);
+    }
+
+    /**
+     * @param tiering          when enabled, movements past its thresholds are moved to segment files in
+     *                         {@code segmentDirectory} and the {@link StorageLayout#HEAP} layout is used for the rest
+     * @param segmentDirectory directory owned by this ledger's segment files; ignored unless tiering is enabled
+     * @param maxIndexedTokens distinct description tokens indexed per segment of movements held in the heap
+     */
+    public LedgerRepositoryImpl(StorageLayout layout,
+                                IdempotencyKeyStore idempotencyKeys,
+                                MovementJournal journal,
+                                SnapshotStore snapshots,
+                                LedgerMetrics metrics,
+                                Tiering tiering,
+                                Path segmentDirectory,
+                                int maxIndexedTokens) {
+        if (tiering.enabled() && layout != StorageLayout.HEAP) {
+            throw new IllegalArgumentException("Tiered storage keeps recent movements in the HEAP layout.");
+        }
+        this.metrics = metrics;
+        this.index = new MovementIndex(maxIndexedTokens);
+        this.tinyLedger = tiering.enabled() ? tiering.newStore(segmentDirectory) : layout.newStore();
+        this.idempotencyKeys = idempotencyKeys;
+        this.journal = journal;
+        this.snapshots = snapshots;
+        long journalOffset = snapshots.loadLatest(this::restore)
+                .map(snapshot -> {
+                    head = new LedgerHead(snapshot.lastId(), snapshot.balanceInCents());
+                    lastSnapshotId = snapshot.lastId();
+                    return snapshot.journalOffset();
+                })
+                .orElse(0L);
+        journal.replay(journalOffset, movement -> {
+            if (movement.id() > head.lastId()) {
+                head = apply(head, movement);
+            }
+        });
+        reserved.set(head);
+    }
 
     @Override
     public Optional<Movement> findById(long id) {
@@ -26,45 +124,334 @@ public class LedgerRepositoryImpl implements LedgerRepository {
 
     @Override
     public Optional<Long> findIdByIdempotencyKey(String idempotencyKey) {
-        return Optional.ofNullable(idsByIdempotencyKey.get(idempotencyKey));
+        long id = idempotencyKeys.find(idempotencyKey);
+        return id != 0L ? Optional.of(id) : Optional.empty();
     }
 
 
     @Override
     public List<Movement> findMovements(Integer limit, Integer offset) {
-        return tinyLedger.values().stream()
-                .sorted(Comparator.comparing(Movement::createdOn).reversed())
-                .skip(offset != null ? offset : 0)
-                .limit(limit != null ? limit : Long.MAX_VALUE)
-                .toList();
+        long newestId = tinyLedger.size() - (offset != null ? offset : 0);
+        return tinyLedger.newestFirst(newestId + 1, limit != null ? limit : Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<Movement> findMovementsOlderThan(long id, Integer limit) {
+        return tinyLedger.newestFirst(id, limit != null ? limit : Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<Movement> findMovements(MovementFilter filter, long beforeId, Integer limit) {
+        long last = Math.min(beforeId - 1, head.lastId());
+        if (last < 1) {
+            return List.of();
+        }
+        long first = 1L;
+        if (filter.createdFrom() != null) {
+            first = balances.idAsOf(filter.createdFrom().minusNanos(1), last, tinyLedger) + 1;
+        }
+        if (filter.createdTo() != null) {
+            last = balances.idAsOf(filter.createdTo().minusNanos(1), last, tinyLedger);
+        }
+        return index.newestFirst(filter, first, last, limit != null ? limit : Long.MAX_VALUE, tinyLedger);
+    }
+
+    /**
+     * Movements with ids in {@code [fromId, toId]}, oldest first, read lazily one at a time. The range is capped at
+     * the last id committed when this is called, so movements saved while the stream is consumed are left out.
+     */
+    @Override
+    public Stream<Movement> streamMovements(long fromId, long toId) {
+        return LongStream.rangeClosed(Math.max(fromId, 1L), Math.min(toId, head.lastId()))
+                         .mapToObj(tinyLedger::get);
     }
 
     @Override
     public Movement save(Movement movement) {
-        long newId = idCounter.incrementAndGet();
-
-        long currentBalance = balanceInCents.get();
-        long balance = movement.type() == Movement.MovementType.DEPOSIT
-                          ? currentBalance + movement.amountInCents()
-                          : currentBalance - movement.amountInCents();
-        balanceInCents.set(balance);
-
-        Movement newMovement = new Movement(newId,
-                                            movement.type(),
-                                            movement.amountInCents(),
-                                            Instant.now(),
-                                            movement.description(),
-                                            movement.idempotencyKey());
-        tinyLedger.put(newId, newMovement);
-        if (movement.idempotencyKey() != null) {
-            idsByIdempotencyKey.put(movement.idempotencyKey(), newId);
+        return saveAll(List.of(movement)).get(0);
+    }
+
+    @Override
+    public List<Movement> saveAll(List<Movement> movements) {
+        List<Movement> saved = append(movements);
+        reserved.set(head);
+        return saved;
+    }
+
+    @Override
+    public List<CommitResult> commitAll(List<Movement> movements) {
+        while (true) {
+            if (failed) {
+                throw new IllegalStateException("The ledger is unavailable after a failed write.");
+            }
+            CommitResult[] results = new CommitResult[movements.size()];
+            Map<String, Integer> firstIndexes = new HashMap<>();
+            Map<String, CompletableFuture<Movement>> owned = new HashMap<>();
+            try {
+                CompletableFuture<Movement> busy = claimKeys(movements, results, firstIndexes, owned);
+                if (busy != null) {
+                    // Wait for the other writer holding no claims, so writers can never wait on each other in a cycle.
+                    release(owned);
+                    busy.join();
+                    continue;
+                }
+
+                List<Integer> pending = new ArrayList<>();
+                for (int i = 0; i < results.length; i++) {
+                    String key = movements.get(i).idempotencyKey();
+                    if (results[i] == null && (key == null || firstIndexes.get(key) == i)) {
+                        pending.add(i);
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    List<Movement> saved = insertInOrder(reserve(movements, pending), pending.stream().map(movements::get).toList());
+                    for (int i = 0; i < saved.size(); i++) {
+                        results[pending.get(i)] = new CommitResult(saved.get(i), false);
+                    }
+                }
+                for (Map.Entry<String, CompletableFuture<Movement>> claim : owned.entrySet()) {
+                    claim.getValue().complete(results[firstIndexes.get(claim.getKey())].movement());
+                    claims.remove(claim.getKey(), claim.getValue());
+                }
+                owned.clear();
+                // Repeated keys within the list resolve to the movement of their first occurrence.
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] == null) {
+                        results[i] = new CommitResult(results[firstIndexes.get(movements.get(i).idempotencyKey())].movement(), true);
+                    }
+                }
+                return List.of(results);
+            } catch (RuntimeException e) {
+                release(owned);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public long getBalanceInCentsAtId(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid transaction id: " + id + ", expected >= 0.");
         }
+        if (id > head.lastId()) {
+            throw new TransactionNotFoundException(id);
+        }
+        return balances.balanceAtId(id, tinyLedger);
+    }
+
+    @Override
+    public long getBalanceInCentsAsOf(Instant instant) {
+        return balances.balanceAsOf(instant, head.lastId(), tinyLedger);
+    }
 
-        return newMovement;
+    @Override
+    public List<AggregateBucket> findAggregates(AggregateGranularity granularity, Instant from, Instant to) {
+        return aggregates.buckets(granularity, from, to);
+    }
+
+    @Override
+    public IdempotencyStats idempotencyStats() {
+        return idempotencyKeys.stats();
     }
 
     @Override
     public long getCurrentBalanceInCents() {
-        return balanceInCents.get();
+        return head.balanceInCents();
+    }
+
+    @Override
+    public long getLastId() {
+        return head.lastId();
+    }
+
+    @Override
+    public void addCommitListener(LongConsumer listener) {
+        commitListeners.add(listener);
+    }
+
+    @Override
+    public void writeSnapshot() {
+        // Read the journal offset before the head, so replaying from it covers everything after the snapshot.
+        long journalOffset = journal.checkpointOffset();
+        LedgerHead current = head;
+        if (current.lastId() == lastSnapshotId) {
+            return;
+        }
+        snapshots.write(new SnapshotHeader(current.lastId(), current.balanceInCents(), journalOffset),
+                        tinyLedger::get);
+        lastSnapshotId = current.lastId();
+    }
+
+    @Override
+    public List<Movement> replicate(List<Movement> movements) {
+        long lastId = head.lastId();
+        List<Movement> newMovements = new ArrayList<>(movements.size());
+        for (Movement movement : movements) {
+            if (movement.id() <= lastId) {
+                continue;
+            }
+            if (movement.id() != lastId + 1) {
+                throw new IllegalStateException("Replication gap: expected movement " + (lastId + 1) + " but got " + movement.id() + ".");
+            }
+            newMovements.add(movement);
+            lastId++;
+        }
+        if (!newMovements.isEmpty()) {
+            publish(newMovements);
+            reserved.set(head);
+        }
+        return newMovements;
+    }
+
+    /**
+     * Assigns ids after {@code head} and publishes the movements. Callers make sure only one append runs at a time.
+     */
+    private List<Movement> append(List<Movement> movements) {
+        long id = head.lastId();
+        Instant createdOn = Instant.now();
+        List<Movement> newMovements = new ArrayList<>(movements.size());
+        for (Movement movement : movements) {
+            newMovements.add(new Movement(++id,
+                                          movement.type(),
+                                          movement.amountInCents(),
+                                          createdOn,
+                                          movement.description(),
+                                          movement.idempotencyKey()));
+        }
+        publish(newMovements);
+        return newMovements;
+    }
+
+    /**
+     * Journal, store, indexes, then head, for movements whose ids follow {@code head}.
+     */
+    private void publish(List<Movement> newMovements) {
+        boolean timed = metrics.enabled();
+        long start = timed ? System.nanoTime() : 0L;
+        journal.append(newMovements);
+        LedgerHead next = head;
+        for (Movement newMovement : newMovements) {
+            next = apply(next, newMovement);
+        }
+        // Publish the balance once, so readers never observe half of a batch.
+        head = next;
+        for (LongConsumer listener : commitListeners) {
+            listener.accept(next.lastId());
+        }
+        if (timed) {
+            metrics.recordSave(newMovements.size(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Claims the idempotency keys of {@code movements}, filling in replays of keys already committed. Returns the
+     * claim of another writer to wait for if one of the keys is in flight, or {@code null} once every key is handled.
+     */
+    private CompletableFuture<Movement> claimKeys(List<Movement> movements,
+                                                  CommitResult[] results,
+                                                  Map<String, Integer> firstIndexes,
+                                                  Map<String, CompletableFuture<Movement>> owned) {
+        for (int i = 0; i < movements.size(); i++) {
+            String key = movements.get(i).idempotencyKey();
+            if (key == null || firstIndexes.putIfAbsent(key, i) != null) {
+                continue;
+            }
+            CompletableFuture<Movement> claim = new CompletableFuture<>();
+            CompletableFuture<Movement> existing = claims.putIfAbsent(key, claim);
+            if (existing != null) {
+                Movement committed = existing.getNow(null);
+                if (committed == null && owned.isEmpty()) {
+                    committed = existing.join();
+                }
+                if (committed == null) {
+                    return existing;
+                }
+                results[i] = new CommitResult(committed, true);
+                continue;
+            }
+            owned.put(key, claim);
+            long id = idempotencyKeys.find(key);
+            if (id != 0L) {
+                results[i] = new CommitResult(tinyLedger.get(id), true);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives up claims without a movement, so writers waiting on them retry.
+     */
+    private void release(Map<String, CompletableFuture<Movement>> owned) {
+        for (Map.Entry<String, CompletableFuture<Movement>> claim : owned.entrySet()) {
+            claim.getValue().complete(null);
+            claims.remove(claim.getKey(), claim.getValue());
+        }
+        owned.clear();
+    }
+
+    /**
+     * Checks the pending movements against the reserved balance and reserves their ids in one CAS, retried until
+     * it wins. Returns the id right before the reserved ones.
+     */
+    private long reserve(List<Movement> movements, List<Integer> pending) {
+        while (true) {
+            LedgerHead current = reserved.get();
+            long balance = current.balanceInCents();
+            for (int i : pending) {
+                Movement movement = movements.get(i);
+                if (movement.type() == Movement.MovementType.WITHDRAWAL) {
+                    if (balance - movement.amountInCents() < 0) {
+                        throw new InsufficientFundsException(i);
+                    }
+                    balance -= movement.amountInCents();
+                } else {
+                    balance += movement.amountInCents();
+                }
+            }
+            if (reserved.compareAndSet(current, new LedgerHead(current.lastId() + pending.size(), balance))) {
+                return current.lastId();
+            }
+        }
+    }
+
+    /**
+     * Appends movements whose ids follow {@code afterId} once every earlier reservation is published, so the store,
+     * the indexes and the journal keep seeing one writer at a time, in id order. A failed append leaves a gap later
+     * reservations can never fill, so the ledger stops accepting commits.
+     */
+    private List<Movement> insertInOrder(long afterId, List<Movement> movements) {
+        for (int spins = 0; head.lastId() != afterId; spins++) {
+            if (failed) {
+                throw new IllegalStateException("The ledger is unavailable after a failed write.");
+            }
+            if (spins < 64) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        try {
+            return append(movements);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private void restore(Movement movement) {
+        tinyLedger.append(movement);
+        balances.append(movement);
+        aggregates.add(movement);
+        index.append(movement, tinyLedger);
+        if (movement.idempotencyKey() != null) {
+            idempotencyKeys.put(movement.idempotencyKey(), movement.id(), movement.createdOn());
+        }
+    }
+
+    private LedgerHead apply(LedgerHead current, Movement movement) {
+        restore(movement);
+        return current.next(movement.id(), movement.type() == Movement.MovementType.DEPOSIT
+                                           ? movement.amountInCents()
+                                           : -movement.amountInCents());
     }
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Deposit and withdrawal counts and totals per minute, hour and day, updated as movements are appended.
+ * <p>
+ * Each granularity keeps a ring of its most recent buckets in primitive arrays, slot {@code bucket % capacity};
+ * a movement for a newer bucket recycles the slot, one for a bucket already recycled is dropped. Rings start at
+ * {@value #INITIAL_CAPACITY} slots on the first movement and double whenever two buckets still retained would share a
+ * slot, up to the retained bucket count, so an account pays for the span of time it has been active rather than the
+ * full retention: about 2KB at first, at most about 217KB. A grown ring replaces the old one, whose arrays are never
+ * written again. Queries cost O(buckets): readers copy the range under an optimistic read and retry with a read lock
+ * only if a write got in between.
+ */
+final class MovementAggregates {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final AggregateGranularity[] GRANULARITIES = AggregateGranularity.values();
+
+    private final StampedLock lock = new StampedLock();
+    private final Ring[] rings = new Ring[GRANULARITIES.length];
+
+    void add(Movement movement) {
+        long epochSecond = movement.createdOn().getEpochSecond();
+        boolean deposit = movement.type() == Movement.MovementType.DEPOSIT;
+        long stamp = lock.writeLock();
+        try {
+            for (AggregateGranularity granularity : GRANULARITIES) {
+                long bucket = Math.floorDiv(epochSecond, granularity.seconds());
+                Ring ring = rings[granularity.ordinal()];
+                if (ring == null) {
+                    ring = new Ring(Math.min(INITIAL_CAPACITY, granularity.retainedBuckets()), granularity.retainedBuckets());
+                    rings[granularity.ordinal()] = ring;
+                }
+                while (ring.collides(bucket)) {
+                    ring = ring.grown();
+                    rings[granularity.ordinal()] = ring;
+                }
+                ring.add(bucket, deposit, movement.amountInCents());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Buckets starting in {@code [from, to)}, {@code from} rounded down to a bucket boundary, oldest first.
+     * Buckets without movements are included with zero counts.
+     */
+    List<AggregateBucket> buckets(AggregateGranularity granularity, Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Invalid aggregate range: from must be before to.");
+        }
+        long first = Math.floorDiv(from.getEpochSecond(), granularity.seconds());
+        // Exclusive: the bucket holding the instant just before to, plus one.
+        boolean onBoundary = Math.floorMod(to.getEpochSecond(), granularity.seconds()) == 0 && to.getNano() == 0;
+        long end = Math.floorDiv(to.getEpochSecond(), granularity.seconds()) + (onBoundary ? 0 : 1);
+        if (end - first > granularity.retainedBuckets()) {
+            throw new IllegalArgumentException("Invalid aggregate range: at most " + granularity.retainedBuckets() + " "
+                                               + granularity + " buckets can be requested.");
+        }
+        int count = (int) (end - first);
+        long[] copy = new long[count * 4];
+
+        long stamp = lock.tryOptimisticRead();
+        long newest = read(granularity, first, copy);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                newest = read(granularity, first, copy);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (newest != Long.MIN_VALUE && first <= newest - granularity.retainedBuckets()) {
+            throw new IllegalArgumentException("Invalid aggregate range: only the last " + granularity.retainedBuckets() + " "
+                                               + granularity + " buckets are retained.");
+        }
+
+        List<AggregateBucket> buckets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buckets.add(new AggregateBucket(Instant.ofEpochSecond((first + i) * granularity.seconds()),
+                                            copy[i * 4], copy[i * 4 + 1], copy[i * 4 + 2], copy[i * 4 + 3]));
+        }
+        return buckets;
+    }
+
+    /**
+     * Copies the buckets from {@code first} into {@code copy} and returns the newest bucket written so far.
+     */
+    private long read(AggregateGranularity granularity, long first, long[] copy) {
+        Arrays.fill(copy, 0L);
+        Ring ring = rings[granularity.ordinal()];
+        if (ring == null) {
+            return Long.MIN_VALUE;
+        }
+        int capacity = ring.buckets.length;
+        for (int i = 0; i < copy.length / 4; i++) {
+            long bucket = first + i;
+            int slot = (int) Math.floorMod(bucket, (long) capacity);
+            if (ring.buckets[slot] == bucket) {
+                copy[i * 4] = ring.depositCounts[slot];
+                copy[i * 4 + 1] = ring.deposits[slot];
+                copy[i * 4 + 2] = ring.withdrawalCounts[slot];
+                copy[i * 4 + 3] = ring.withdrawals[slot];
+            }
+        }
+        return ring.newest;
+    }
+
+    /**
+     * Capacity of the rings of one granularity, for tests.
+     */
+    int capacity(AggregateGranularity granularity) {
+        Ring ring = rings[granularity.ordinal()];
+        return ring != null ? ring.buckets.length : 0;
+    }
+
+    private static final class Ring {
+        final int retained;
+        final long[] buckets;
+        final long[] depositCounts;
+        final long[] deposits;
+        final long[] withdrawalCounts;
+        final long[] withdrawals;
+        long newest = Long.MIN_VALUE;
+
+        Ring(int capacity, int retained) {
+            this.retained = retained;
+            buckets = new long[capacity];
+            Arrays.fill(buckets, Long.MIN_VALUE);
+            depositCounts = new long[capacity];
+            deposits = new long[capacity];
+            withdrawalCounts = new long[capacity];
+            withdrawals = new long[capacity];
+        }
+
+        /**
+         * Whether {@code bucket} would share its slot with another bucket that is still retained once it is added.
+         */
+        boolean collides(long bucket) {
+            if (buckets.length == retained) {
+                return false;
+            }
+            long cutoff = Math.max(newest, bucket) - retained;
+            long occupant = buckets[(int) Math.floorMod(bucket, (long) buckets.length)];
+            return occupant != Long.MIN_VALUE && occupant != bucket && occupant > cutoff && bucket > cutoff;
+        }
+
+        /**
+         * A ring twice as large, capped at the retained count, holding the buckets still retained. Retained buckets
+         * span at most the new capacity, so none of them share a slot.
+         */
+        Ring grown() {
+            Ring grown = new Ring(Math.min(retained, buckets.length * 2), retained);
+            grown.newest = newest;
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] != Long.MIN_VALUE && buckets[i] > newest - retained) {
+                    int slot = (int) Math.floorMod(buckets[i], (long) grown.buckets.length);
+                    grown.buckets[slot] = buckets[i];
+                    grown.depositCounts[slot] = depositCounts[i];
+                    grown.deposits[slot] = deposits[i];
+                    grown.withdrawalCounts[slot] = withdrawalCounts[i];
+                    grown.withdrawals[slot] = withdrawals[i];
+                }
+            }
+            return grown;
+        }
+
+        void add(long bucket, boolean deposit, long amountInCents) {
+            int slot = (int) Math.floorMod(bucket, (long) buckets.length);
+            if (buckets[slot] > bucket || newest != Long.MIN_VALUE && bucket <= newest - retained) {
+                return;
+            }
+            if (buckets[slot] < bucket) {
+                buckets[slot] = bucket;
+                depositCounts[slot] = 0L;
+                deposits[slot] = 0L;
+                withdrawalCounts[slot] = 0L;
+                withdrawals[slot] = 0L;
+            }
+            if (deposit) {
+                depositCounts[slot]++;
+                deposits[slot] += amountInCents;
+            } else {
+                withdrawalCounts[slot]++;
+                withdrawals[slot] += amountInCents;
+            }
+            newest = Math.max(newest, bucket);
+        }
+    }
+}
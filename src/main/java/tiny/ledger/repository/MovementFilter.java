@@ -0,0 +1,42 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+import java.time.Instant;
+
+/**
+ * Criteria of a filtered history query; {@code null} components match everything.
+ * <p>
+ * The createdOn range is inclusive of {@code createdFrom} and exclusive of {@code createdTo}, and is resolved on the
+ * same clock-monotonic times as balances as of an instant. The description token is matched against whole words of
+ * the description, case-insensitively.
+ */
+public record MovementFilter(Movement.MovementType type,
+                             Long minAmountInCents,
+                             Long maxAmountInCents,
+                             Instant createdFrom,
+                             Instant createdTo,
+                             String descriptionToken) {
+    public static final MovementFilter NONE = new MovementFilter(null, null, null, null, null, null);
+
+    public MovementFilter {
+        if (minAmountInCents != null && maxAmountInCents != null && minAmountInCents > maxAmountInCents) {
+            throw new IllegalArgumentException("Invalid filter: minAmountInCents must not exceed maxAmountInCents.");
+        }
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            throw new IllegalArgumentException("Invalid filter: createdFrom must be before createdTo.");
+        }
+        if (descriptionToken != null) {
+            descriptionToken = MovementIndex.token(descriptionToken);
+        }
+    }
+
+    public boolean isEmpty() {
+        return equals(NONE);
+    }
+
+    boolean matchesAmount(Movement movement) {
+        return (minAmountInCents == null || movement.amountInCents() >= minAmountInCents)
+               && (maxAmountInCents == null || movement.amountInCents() <= maxAmountInCents);
+    }
+}
@@ -0,0 +1,491 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary indexes of filtered history: the ids of each movement type, the ids of each power-of-two amount bucket,
+ * and an inverted index from description token to ids. Time ranges need no index of their own: ids follow creation
+ * order, so {@link BalanceIndex} turns them into id ranges.
+ * <p>
+ * The indexes are split like {@link TieredMovementStore} into segments of {@link TieredMovementStore#SEGMENT_SIZE}
+ * ids, each with its own {@link Postings}: ascending offsets within the segment in growable primitive arrays, so the
+ * part of a list within an id range is found by binary search. Once the store seals a segment, its postings are
+ * dropped from the heap and read back from the segment file instead, so the heap held by the index follows the hot
+ * segments rather than the ledger size.
+ * <p>
+ * A query visits the segments of its id range newest first. In each it walks whichever source has the fewest ids in
+ * range: a type or token list, the buckets covering the amount range merged by id, or the range itself when nothing
+ * is shorter. It checks the other criteria on each movement and stops once the page is full, so its cost follows the
+ * page size and the selectivity of the best source rather than the ledger size; the two edge buckets of an amount
+ * range hold at most twice the amounts asked for. Writes are serialized by the caller; readers see offsets published
+ * through each list's volatile size.
+ * <p>
+ * Descriptions are client input, so each segment in the heap indexes at most {@code maxTokens} distinct tokens; later
+ * new tokens are left out and the segment marked saturated. A query for a token a saturated segment does not list
+ * checks the token on each movement of its next best source, at worst every movement of that segment. Sealed
+ * postings cost no heap and index every token.
+ */
+final class MovementIndex {
+    private static final int SEGMENT_SHIFT = TieredMovementStore.SEGMENT_SHIFT;
+    private static final int SEGMENT_SIZE = TieredMovementStore.SEGMENT_SIZE;
+    static final int DEFAULT_MAX_TOKENS = 4096;
+
+    private final int maxTokens;
+    private volatile Postings[] segments = new Postings[16];
+    // Leading segments whose postings were dropped once sealed; only touched by the writer.
+    private int released;
+
+    MovementIndex() {
+        this(DEFAULT_MAX_TOKENS);
+    }
+
+    /**
+     * @param maxTokens distinct description tokens indexed per segment held in the heap
+     */
+    MovementIndex(int maxTokens) {
+        if (maxTokens < 0) {
+            throw new IllegalArgumentException("The index needs maxTokens >= 0.");
+        }
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Indexes {@code movement}, which must already be in {@code store}, and drops the postings of the segments the
+     * store has sealed since.
+     */
+    void append(Movement movement, MovementStore store) {
+        int segment = segment(movement.id());
+        Postings[] current = segments;
+        if (segment >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, segment + 1));
+            segments = current;
+        }
+        if (segment >= released) {
+            if (current[segment] == null) {
+                current[segment] = new Postings(segment, maxTokens);
+            }
+            current[segment].add(movement);
+        }
+        for (int sealed = Math.min(store.sealedSegments(), segment + 1); released < sealed; released++) {
+            current[released] = null;
+        }
+    }
+
+    /**
+     * Up to {@code limit} movements with ids in {@code [first, last]} matching {@code filter}, newest first. The
+     * createdOn range of the filter is expected to be resolved into the id range already.
+     */
+    List<Movement> newestFirst(MovementFilter filter, long first, long last, long limit, MovementStore store) {
+        List<Movement> page = new ArrayList<>();
+        if (first > last || limit <= 0) {
+            return page;
+        }
+        for (int segment = segment(last); segment >= segment(first) && page.size() < limit; segment--) {
+            long base = (long) segment << SEGMENT_SHIFT;
+            int from = (int) (Math.max(first, base + 1) - base - 1);
+            int to = (int) (Math.min(last, base + SEGMENT_SIZE) - base - 1);
+            postings(segment, store).newestFirst(page, filter, from, to, limit, store);
+        }
+        return page;
+    }
+
+    /**
+     * Bytes held by the posting arrays of the segments still in the heap, without object headers or the token map.
+     */
+    long allocatedBytes() {
+        long bytes = 0L;
+        for (Postings postings : segments) {
+            if (postings != null) {
+                bytes += postings.allocatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private Postings postings(int segment, MovementStore store) {
+        Postings postings = segments[segment];
+        // Dropped only after the store published the segment file.
+        return postings != null ? postings : store.sealedPostings(segment);
+    }
+
+    private static int segment(long id) {
+        return (int) ((id - 1) >>> SEGMENT_SHIFT);
+    }
+
+    /**
+     * Bucket {@code 0} for amounts below one cent, else one plus the position of the highest set bit, so bucket
+     * {@code b} holds the amounts in {@code [2^(b-1), 2^b)}.
+     */
+    private static int amountBucket(long amountInCents) {
+        return amountInCents <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(amountInCents);
+    }
+
+    /**
+     * Normalizes a description token given in a query, rejecting anything that is not exactly one token.
+     */
+    static String token(String value) {
+        List<String> tokens = tokens(value);
+        if (tokens.size() != 1 || tokens.get(0).length() != value.length()) {
+            throw new IllegalArgumentException("Invalid filter: description token must be a single word of letters, digits, '-' or '_'.");
+        }
+        return tokens.get(0);
+    }
+
+    /**
+     * Lower-cased runs of letters, digits, {@code -} and {@code _}, so identifiers such as {@code INV-2024-17} stay
+     * one token.
+     */
+    static List<String> tokens(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && isTokenChar(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+
+    private static void addIfMatching(List<Movement> page,
+                                      Movement movement,
+                                      MovementFilter filter,
+                                      boolean checkType,
+                                      boolean checkToken) {
+        if (checkType && movement.type() != filter.type()
+            || !filter.matchesAmount(movement)
+            || checkToken && !tokens(movement.description()).contains(filter.descriptionToken())) {
+            return;
+        }
+        page.add(movement);
+    }
+
+    /**
+     * Index of the first of the {@code size} offsets that is at least {@code offset}.
+     */
+    private static int position(short[] offsets, int size, int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The type, amount and token lists of one segment, holding offsets from its first id. Built incrementally for a
+     * segment in the heap, or all at once for a segment being sealed and written to its {@code SegmentFile} with
+     * {@link #encode()}.
+     */
+    static final class Postings {
+        private static final byte TYPE = 0;
+        private static final byte AMOUNT = 1;
+        private static final byte TOKEN = 2;
+
+        private final long base;
+        private final OffsetList[] byType = new OffsetList[Movement.MovementType.values().length];
+        private final OffsetList[] byAmount = new OffsetList[Long.SIZE];
+        private final Map<String, OffsetList> byToken;
+        private final int maxTokens;
+        private int indexedTokens;
+        // Set before the first token left out is published.
+        private volatile boolean saturated;
+
+        private Postings(int segment, int maxTokens) {
+            this((long) segment << SEGMENT_SHIFT, new ConcurrentHashMap<>(), maxTokens);
+        }
+
+        private Postings(long base, Map<String, OffsetList> byToken, int maxTokens) {
+            this.base = base;
+            this.byToken = byToken;
+            this.maxTokens = maxTokens;
+        }
+
+        /**
+         * Postings of a full segment about to be sealed.
+         */
+        static Postings of(Movement[] movements) {
+            Postings postings = new Postings((long) segment(movements[0].id()) << SEGMENT_SHIFT, new HashMap<>(), Integer.MAX_VALUE);
+            for (Movement movement : movements) {
+                postings.add(movement);
+            }
+            return postings;
+        }
+
+        /**
+         * Reads postings written by {@link #encode()} for the segment starting at {@code firstId}.
+         */
+        static Postings decode(long firstId, byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            Postings postings = new Postings(firstId - 1, new HashMap<>(), Integer.MAX_VALUE);
+            int lists = buffer.getInt();
+            for (int i = 0; i < lists; i++) {
+                byte kind = buffer.get();
+                String token = null;
+                int key = 0;
+                if (kind == TOKEN) {
+                    byte[] utf8 = new byte[buffer.getInt()];
+                    buffer.get(utf8);
+                    token = new String(utf8, StandardCharsets.UTF_8);
+                } else {
+                    key = buffer.get();
+                }
+                OffsetList list = new OffsetList(buffer.getInt());
+                buffer.asShortBuffer().get(list.offsets, 0, list.offsets.length);
+                buffer.position(buffer.position() + Short.BYTES * list.offsets.length);
+                list.size = list.offsets.length;
+                switch (kind) {
+                    case TYPE -> postings.byType[key] = list;
+                    case AMOUNT -> postings.byAmount[key] = list;
+                    default -> postings.byToken.put(token, list);
+                }
+            }
+            return postings;
+        }
+
+        byte[] encode() {
+            int lists = 0;
+            int bytes = Integer.BYTES;
+            for (OffsetList list : byType) {
+                if (list != null) {
+                    lists++;
+                    bytes += 1 + 1 + Integer.BYTES + Short.BYTES * list.size;
+                }
+            }
+            for (OffsetList list : byAmount) {
+                if (list != null) {
+                    lists++;
+                    bytes += 1 + 1 + Integer.BYTES + Short.BYTES * list.size;
+                }
+            }
+            List<byte[]> tokens = new ArrayList<>(byToken.size());
+            List<OffsetList> tokenLists = new ArrayList<>(byToken.size());
+            for (Map.Entry<String, OffsetList> entry : byToken.entrySet()) {
+                byte[] utf8 = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                tokens.add(utf8);
+                tokenLists.add(entry.getValue());
+                lists++;
+                bytes += 1 + Integer.BYTES + utf8.length + Integer.BYTES + Short.BYTES * entry.getValue().size;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(bytes).putInt(lists);
+            for (int type = 0; type < byType.length; type++) {
+                if (byType[type] != null) {
+                    put(buffer.put(TYPE).put((byte) type), byType[type]);
+                }
+            }
+            for (int bucket = 0; bucket < byAmount.length; bucket++) {
+                if (byAmount[bucket] != null) {
+                    put(buffer.put(AMOUNT).put((byte) bucket), byAmount[bucket]);
+                }
+            }
+            for (int i = 0; i < tokens.size(); i++) {
+                put(buffer.put(TOKEN).putInt(tokens.get(i).length).put(tokens.get(i)), tokenLists.get(i));
+            }
+            return buffer.array();
+        }
+
+        private static void put(ByteBuffer buffer, OffsetList list) {
+            buffer.putInt(list.size);
+            for (int i = 0; i < list.size; i++) {
+                buffer.putShort(list.offsets[i]);
+            }
+        }
+
+        private void add(Movement movement) {
+            short offset = (short) (movement.id() - base - 1);
+            list(byType, movement.type().ordinal()).add(offset);
+            list(byAmount, amountBucket(movement.amountInCents())).add(offset);
+            for (String token : tokens(movement.description())) {
+                OffsetList list = byToken.get(token);
+                if (list == null) {
+                    if (indexedTokens == maxTokens) {
+                        saturated = true;
+                        continue;
+                    }
+                    list = new OffsetList(8);
+                    byToken.put(token, list);
+                    indexedTokens++;
+                }
+                list.add(offset);
+            }
+        }
+
+        private static OffsetList list(OffsetList[] lists, int key) {
+            if (lists[key] == null) {
+                lists[key] = new OffsetList(8);
+            }
+            return lists[key];
+        }
+
+        private long allocatedBytes() {
+            long bytes = 0L;
+            for (OffsetList list : byType) {
+                bytes += list != null ? Short.BYTES * list.offsets.length : 0;
+            }
+            for (OffsetList list : byAmount) {
+                bytes += list != null ? Short.BYTES * list.offsets.length : 0;
+            }
+            for (Map.Entry<String, OffsetList> entry : byToken.entrySet()) {
+                bytes += entry.getKey().length() + Short.BYTES * entry.getValue().offsets.length;
+            }
+            return bytes;
+        }
+
+        /**
+         * Adds the movements of this segment with offsets in {@code [from, to]} matching {@code filter} to
+         * {@code page}, newest first, until it holds {@code limit}.
+         */
+        private void newestFirst(List<Movement> page, MovementFilter filter, int from, int to, long limit, MovementStore store) {
+            OffsetList typed = filter.type() != null ? orEmpty(byType[filter.type().ordinal()]) : null;
+            OffsetList tokened = null;
+            boolean hasToken = filter.descriptionToken() != null;
+            if (hasToken) {
+                tokened = byToken.get(filter.descriptionToken());
+                if (tokened == null && !saturated) {
+                    return;
+                }
+            }
+
+            OffsetList source = null;
+            short[] offsets = null;
+            int low = 0;
+            int high = 0;
+            for (OffsetList list : new OffsetList[]{typed, tokened}) {
+                if (list == null) {
+                    continue;
+                }
+                // Read the size before the array: arrays published after it are never shorter.
+                int size = list.size;
+                short[] listOffsets = list.offsets;
+                int listLow = position(listOffsets, size, from);
+                int listHigh = position(listOffsets, size, to + 1);
+                if (listHigh - listLow < (source == null ? to - from + 1 : high - low)) {
+                    source = list;
+                    offsets = listOffsets;
+                    low = listLow;
+                    high = listHigh;
+                }
+            }
+
+            boolean checkType = typed != null && source != typed;
+            boolean checkToken = hasToken && (tokened == null || source != tokened);
+            if (filter.minAmountInCents() != null || filter.maxAmountInCents() != null) {
+                AmountRange amounts = amountRange(filter, from, to);
+                if (amounts.count < (source == null ? to - from + 1 : high - low)) {
+                    amounts.newestFirst(page, filter, typed != null, hasToken, limit, store);
+                    return;
+                }
+            }
+            if (source == null) {
+                for (int offset = to; offset >= from && page.size() < limit; offset--) {
+                    addIfMatching(page, store.get(base + offset + 1), filter, checkType, checkToken);
+                }
+            } else {
+                for (int i = high - 1; i >= low && page.size() < limit; i--) {
+                    addIfMatching(page, store.get(base + offsets[i] + 1), filter, checkType, checkToken);
+                }
+            }
+        }
+
+        private AmountRange amountRange(MovementFilter filter, int from, int to) {
+            int lowest = filter.minAmountInCents() != null ? amountBucket(filter.minAmountInCents()) : 0;
+            int highest = filter.maxAmountInCents() != null ? amountBucket(filter.maxAmountInCents()) : byAmount.length - 1;
+            int buckets = highest - lowest + 1;
+            short[][] offsets = new short[buckets][];
+            int[] low = new int[buckets];
+            int[] high = new int[buckets];
+            long count = 0L;
+            for (int i = 0; i < buckets; i++) {
+                OffsetList list = orEmpty(byAmount[lowest + i]);
+                int size = list.size;
+                offsets[i] = list.offsets;
+                low[i] = position(offsets[i], size, from);
+                high[i] = position(offsets[i], size, to + 1);
+                count += high[i] - low[i];
+            }
+            return new AmountRange(base, offsets, low, high, count);
+        }
+
+        private static OffsetList orEmpty(OffsetList list) {
+            return list != null ? list : OffsetList.EMPTY;
+        }
+    }
+
+    /**
+     * The parts of the amount buckets of a segment within an offset range, walked newest first by always taking the
+     * largest of their next offsets.
+     */
+    private record AmountRange(long base, short[][] offsets, int[] low, int[] high, long count) {
+        void newestFirst(List<Movement> page, MovementFilter filter, boolean checkType, boolean checkToken, long limit,
+                         MovementStore store) {
+            int[] next = high.clone();
+            while (page.size() < limit) {
+                int newest = -1;
+                for (int i = 0; i < offsets.length; i++) {
+                    if (next[i] > low[i] && (newest < 0 || offsets[i][next[i] - 1] > offsets[newest][next[newest] - 1])) {
+                        newest = i;
+                    }
+                }
+                if (newest < 0) {
+                    return;
+                }
+                int offset = offsets[newest][--next[newest]];
+                addIfMatching(page, store.get(base + offset + 1), filter, checkType, checkToken);
+            }
+        }
+    }
+
+    /**
+     * Ascending offsets within a segment, which fit a {@code short} since segments hold 4096 movements.
+     */
+    private static final class OffsetList {
+        static final OffsetList EMPTY = new OffsetList(0);
+
+        volatile short[] offsets;
+        volatile int size;
+
+        OffsetList(int capacity) {
+            offsets = new short[capacity];
+        }
+
+        void add(short offset) {
+            int count = size;
+            short[] current = offsets;
+            if (count > 0 && current[count - 1] == offset) {
+                // The token appears more than once in the description.
+                return;
+            }
+            if (count == current.length) {
+                current = Arrays.copyOf(current, count * 2);
+                offsets = current;
+            }
+            current[count] = offset;
+            size = count + 1;
+        }
+    }
+}
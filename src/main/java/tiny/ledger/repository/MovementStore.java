@@ -0,0 +1,54 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only, id-ordered movement storage.
+ * <p>
+ * Ids are dense and start at 1, so a movement is addressed by {@code id - 1}. Writes are expected to be serialized
+ * by the caller; reads are lock-free and only see movements published through {@link #size()}.
+ */
+interface MovementStore {
+
+    /**
+     * Appends the movement with the next id.
+     */
+    void append(Movement movement);
+
+    long size();
+
+    /**
+     * Returns the movement with the given id, or {@code null} if it has not been appended.
+     */
+    Movement get(long id);
+
+    /**
+     * Number of leading segments of {@link TieredMovementStore#SEGMENT_SIZE} movements moved out of the heap.
+     */
+    default int sealedSegments() {
+        return 0;
+    }
+
+    /**
+     * Index postings of a segment counted by {@link #sealedSegments()}, read back from where it was sealed to.
+     */
+    default MovementIndex.Postings sealedPostings(int segment) {
+        throw new IllegalStateException("Segment " + segment + " is not sealed.");
+    }
+
+    /**
+     * Returns up to {@code limit} movements with ids strictly lower than {@code beforeId}, newest first.
+     */
+    default List<Movement> newestFirst(long beforeId, long limit) {
+        long from = Math.min(beforeId - 1, size());
+        int count = (int) Math.max(0, Math.min(limit, from));
+        List<Movement> page = new ArrayList<>(count);
+        for (long id = from; id > from - count; id--) {
+            page.add(get(id));
+        }
+        return page;
+    }
+}
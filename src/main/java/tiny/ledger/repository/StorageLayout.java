@@ -0,0 +1,19 @@
+package tiny.ledger.repository;
+
+/**
+ * In-memory layout of an account's movements.
+ */
+public enum StorageLayout {
+    /**
+     * One {@code Movement} object per movement, kept in chunks of references.
+     */
+    HEAP,
+    /**
+     * Primitive columns and a byte arena; {@code Movement} objects are only created when read.
+     */
+    COLUMNAR;
+
+    MovementStore newStore() {
+        return this == COLUMNAR ? new ColumnarMovementStore() : new HeapMovementStore();
+    }
+}
@@ -0,0 +1,169 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+import tiny.ledger.persistence.SegmentFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Keeps recent movements as objects in fixed-size segments like {@link HeapMovementStore} and moves full segments
+ * past the {@link Tiering} thresholds to compressed {@link SegmentFile}s, dropping them from the heap.
+ * <p>
+ * Sealing runs on the tiering thread, one segment at a time per store: the file is written along with the segment's
+ * {@link MovementIndex} postings, published, and only then is the segment released, so a reader finds each movement
+ * either in memory or on disk. Segment files are derived from the journal and snapshots, which restore every movement
+ * on startup, so the directory is cleared when the store is opened. Each finished seal checks the next segment, so a
+ * ledger replayed on startup, whose appends mostly find a seal in progress, is sealed down to its hot segments without
+ * waiting for new movements. A segment that fails to seal stays in memory and is retried on the next append.
+ */
+final class TieredMovementStore implements MovementStore {
+    static final int SEGMENT_SHIFT = 12;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Tiering tiering;
+    private final Path directory;
+
+    private volatile Movement[][] segments = new Movement[16][];
+    private volatile SegmentFile[] files = new SegmentFile[0];
+    private volatile long size;
+    private volatile int sealed;
+    private final AtomicBoolean sealing = new AtomicBoolean();
+
+    TieredMovementStore(Tiering tiering, Path directory) {
+        this.tiering = tiering;
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> stale = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) stale::iterator) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to prepare segment directory " + directory, e);
+        }
+    }
+
+    @Override
+    public void append(Movement movement) {
+        long index = size;
+        if (movement.id() != index + 1) {
+            throw new IllegalStateException("Movement id " + movement.id() + " is out of sequence, expected " + (index + 1));
+        }
+        int segment = (int) (index >>> SEGMENT_SHIFT);
+        Movement[][] current = segments;
+        if (segment == current.length) {
+            // Under the same monitor as releases, so a segment released meanwhile is not copied back.
+            synchronized (this) {
+                current = Arrays.copyOf(segments, current.length * 2);
+                segments = current;
+            }
+        }
+        if (current[segment] == null) {
+            current[segment] = new Movement[SEGMENT_SIZE];
+        }
+        current[segment][(int) (index & SEGMENT_MASK)] = movement;
+        size = index + 1;
+        maybeSeal(index + 1);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Movement get(long id) {
+        if (id < 1 || id > size) {
+            return null;
+        }
+        long index = id - 1;
+        int segment = (int) (index >>> SEGMENT_SHIFT);
+        Movement[] inMemory = segments[segment];
+        if (inMemory != null) {
+            return inMemory[(int) (index & SEGMENT_MASK)];
+        }
+        return tiering.read(file(segment), (int) (index & SEGMENT_MASK));
+    }
+
+    /**
+     * Segments sealed to disk so far, oldest first.
+     */
+    @Override
+    public int sealedSegments() {
+        return sealed;
+    }
+
+    @Override
+    public MovementIndex.Postings sealedPostings(int segment) {
+        return tiering.postings(file(segment));
+    }
+
+    /**
+     * Called by the appending thread and by the sealer once a seal is done; claiming {@code sealing} first keeps the
+     * two from scheduling the same segment.
+     */
+    private void maybeSeal(long size) {
+        if (!sealing.compareAndSet(false, true)) {
+            return;
+        }
+        int next = sealed;
+        long newer = size - ((long) next + 1) * SEGMENT_SIZE;
+        if (newer < 0 || !tiering.shouldSeal(newer, segments[next][SEGMENT_MASK])) {
+            sealing.set(false);
+            return;
+        }
+        try {
+            tiering.seal(() -> seal(next));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the segment stays in memory.
+            sealing.set(false);
+        }
+    }
+
+    private void seal(int segment) {
+        boolean done = false;
+        try {
+            Movement[] movements = segments[segment];
+            SegmentFile file = SegmentFile.write(directory.resolve(String.format("%019d.segment", movements[0].id())), movements,
+                                                 MovementIndex.Postings.of(movements).encode());
+            SegmentFile[] published = Arrays.copyOf(files, segment + 1);
+            published[segment] = file;
+            files = published;
+            sealed = segment + 1;
+            synchronized (this) {
+                segments[segment] = null;
+            }
+            tiering.sealed();
+            done = true;
+        } catch (IOException | RuntimeException e) {
+            // Left in memory; the next append tries again.
+        } finally {
+            sealing.set(false);
+        }
+        if (done) {
+            maybeSeal(size);
+        }
+    }
+
+    /**
+     * The file of a segment a reader found released; published before the release, so waiting only covers the
+     * reader seeing the release first.
+     */
+    private SegmentFile file(int segment) {
+        SegmentFile[] published = files;
+        while (segment >= published.length) {
+            Thread.onSpinWait();
+            published = files;
+        }
+        return published[segment];
+    }
+}
@@ -0,0 +1,181 @@
+package tiny.ledger.repository;
+
+import tiny.ledger.entity.Movement;
+import tiny.ledger.persistence.SegmentFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * When movements leave the heap for compressed segment files, shared by every account's store: the thresholds, the
+ * thread sealing segments and bounded LRU caches of the blocks and index postings read back from them.
+ * <p>
+ * A full segment is sealed once at least {@code hotMovements} newer movements remain in memory, or once its newest
+ * movement is older than {@code hotAge}; the segment movements are being appended to is never sealed, so the newest
+ * pages are always served from the heap. Decoded postings can take as much memory as the movements of their segment,
+ * so their cache holds as many segments as the block cache could hold whole, and at least one.
+ */
+public final class Tiering implements AutoCloseable {
+    public static final Tiering DISABLED = new Tiering();
+
+    private final boolean enabled;
+    private final long hotMovements;
+    private final Duration hotAge;
+    private final int cacheBlocks;
+    private final Executor sealer;
+    private final Map<Block, Movement[]> cache;
+    private final Map<SegmentFile, MovementIndex.Postings> postingsCache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong sealedSegments = new AtomicLong();
+
+    private Tiering() {
+        this.enabled = false;
+        this.hotMovements = Long.MAX_VALUE;
+        this.hotAge = null;
+        this.cacheBlocks = 0;
+        this.sealer = null;
+        this.cache = Map.of();
+        this.postingsCache = Map.of();
+    }
+
+    /**
+     * @param hotAge age past which a full segment is sealed whatever the count, or {@code null} to go by count only
+     */
+    public Tiering(long hotMovements, Duration hotAge, int cacheBlocks) {
+        this(hotMovements, hotAge, cacheBlocks, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-tiering");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    Tiering(long hotMovements, Duration hotAge, int cacheBlocks, Executor sealer) {
+        if (hotMovements < 0 || cacheBlocks <= 0) {
+            throw new IllegalArgumentException("Tiering needs hotMovements >= 0 and cacheBlocks > 0.");
+        }
+        this.enabled = true;
+        this.hotMovements = hotMovements;
+        this.hotAge = hotAge;
+        this.cacheBlocks = cacheBlocks;
+        this.sealer = sealer;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Block, Movement[]> eldest) {
+                return size() > Tiering.this.cacheBlocks;
+            }
+        };
+        int cachePostings = Math.max(1, cacheBlocks / (TieredMovementStore.SEGMENT_SIZE / SegmentFile.BLOCK_SIZE));
+        this.postingsCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SegmentFile, MovementIndex.Postings> eldest) {
+                return size() > cachePostings;
+            }
+        };
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public long cacheHits() {
+        return hits.get();
+    }
+
+    public long cacheMisses() {
+        return misses.get();
+    }
+
+    public long sealedSegments() {
+        return sealedSegments.get();
+    }
+
+    @Override
+    public void close() {
+        if (sealer instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    MovementStore newStore(Path directory) {
+        return new TieredMovementStore(this, directory);
+    }
+
+    /**
+     * Whether a full segment whose newest movement is {@code newest} should be sealed with {@code newer} movements
+     * appended after it.
+     */
+    boolean shouldSeal(long newer, Movement newest) {
+        return newer >= hotMovements
+               || hotAge != null && newest.createdOn().isBefore(Instant.now().minus(hotAge));
+    }
+
+    void seal(Runnable task) {
+        sealer.execute(task);
+    }
+
+    void sealed() {
+        sealedSegments.incrementAndGet();
+    }
+
+    /**
+     * Movement {@code offset} of {@code segment}, inflating its block on a cache miss.
+     */
+    Movement read(SegmentFile segment, int offset) {
+        Block block = new Block(segment, offset / SegmentFile.BLOCK_SIZE);
+        Movement[] movements;
+        synchronized (cache) {
+            movements = cache.get(block);
+        }
+        if (movements == null) {
+            misses.incrementAndGet();
+            try {
+                movements = segment.readBlock(block.index());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read " + segment.path(), e);
+            }
+            synchronized (cache) {
+                cache.put(block, movements);
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return movements[offset % SegmentFile.BLOCK_SIZE];
+    }
+
+    /**
+     * The index postings of {@code segment}, decoding them on a cache miss.
+     */
+    MovementIndex.Postings postings(SegmentFile segment) {
+        MovementIndex.Postings postings;
+        synchronized (postingsCache) {
+            postings = postingsCache.get(segment);
+        }
+        if (postings == null) {
+            misses.incrementAndGet();
+            try {
+                postings = MovementIndex.Postings.decode(segment.firstId(), segment.readPostings());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read " + segment.path(), e);
+            }
+            synchronized (postingsCache) {
+                postingsCache.put(segment, postings);
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return postings;
+    }
+
+    private record Block(SegmentFile segment, int index) {
+    }
+}
@@ -0,0 +1,11 @@
+package tiny.ledger.repository;
+
+/**
+ * Thrown when a query names a transaction id the account has not committed.
+ */
+public class TransactionNotFoundException extends RuntimeException {
+
+    public TransactionNotFoundException(long id) {
+        super("Transaction not found: " + id);
+    }
+}
@@ -0,0 +1,124 @@
+package tiny.ledger.service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the requests working on the ledgers at once, with separate budgets for reads and writes so a write spike
+ * queued on the account locks never takes the slots reads need.
+ * <p>
+ * Each budget admits up to {@code maxInFlight} requests. Beyond that a request waits in FIFO order for at most
+ * {@code maxQueueWait} and is then rejected with {@link OverloadedException}, so overload turns into fast rejections
+ * rather than an ever longer queue.
+ */
+public final class AdmissionController {
+    public static final AdmissionController UNLIMITED = new AdmissionController(Budget.unlimited("read"),
+                                                                                      Budget.unlimited("write"));
+
+    private final Budget reads;
+    private final Budget writes;
+
+    public AdmissionController(Budget reads, Budget writes) {
+        this.reads = reads;
+        this.writes = writes;
+    }
+
+    public Budget reads() {
+        return reads;
+    }
+
+    public Budget writes() {
+        return writes;
+    }
+
+    public static final class Budget {
+        private final String name;
+        private final int maxInFlight;
+        private final long maxQueueWaitNanos;
+        private final Duration retryAfter;
+        private final Semaphore permits;
+        private final AtomicLong rejections = new AtomicLong();
+
+        private Budget(String name) {
+            this.name = name;
+            this.maxInFlight = Integer.MAX_VALUE;
+            this.maxQueueWaitNanos = 0L;
+            this.retryAfter = Duration.ZERO;
+            this.permits = null;
+        }
+
+        public Budget(String name, int maxInFlight, Duration maxQueueWait, Duration retryAfter) {
+            if (maxInFlight <= 0 || maxQueueWait.isNegative()) {
+                throw new IllegalArgumentException("An admission budget needs maxInFlight > 0 and a non-negative maxQueueWait.");
+            }
+            this.name = name;
+            this.maxInFlight = maxInFlight;
+            this.maxQueueWaitNanos = maxQueueWait.toNanos();
+            this.retryAfter = retryAfter;
+            this.permits = new Semaphore(maxInFlight, true);
+        }
+
+        /**
+         * A budget admitting every request at once, still carrying its name for the meters.
+         */
+        public static Budget unlimited(String name) {
+            return new Budget(name);
+        }
+
+        /**
+         * Takes a slot, waiting up to the maximum queue wait for one; every successful call must be followed by
+         * {@link #release()}.
+         */
+        public void acquire() {
+            if (permits == null || permits.tryAcquire()) {
+                return;
+            }
+            try {
+                if (maxQueueWaitNanos > 0 && permits.tryAcquire(maxQueueWaitNanos, TimeUnit.NANOSECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            rejections.incrementAndGet();
+            throw new OverloadedException(name, retryAfter);
+        }
+
+        public void release() {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+
+        public <T> T call(Supplier<T> operation) {
+            acquire();
+            try {
+                return operation.get();
+            } finally {
+                release();
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int inFlight() {
+            return permits == null ? 0 : maxInFlight - permits.availablePermits();
+        }
+
+        /**
+         * Requests currently waiting for a slot; an estimate, as the queue changes while it is counted.
+         */
+        public int queueDepth() {
+            return permits == null ? 0 : permits.getQueueLength();
+        }
+
+        public long rejections() {
+            return rejections.get();
+        }
+    }
+}
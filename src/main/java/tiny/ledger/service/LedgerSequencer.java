@@ -0,0 +1,207 @@
+package tiny.ledger.service;
+
+import tiny.ledger.repository.AccountLedger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Multi-producer, single-consumer ring buffer in front of the write path.
+ * <p>
+ * Request threads claim a sequence, fill the matching slot and publish it; one writer thread applies the published
+ * operations in sequence order, so they never contend on a lock. The writer drains everything published so far as
+ * one batch, waits once per touched journal for the batch to be durable and only then completes the futures.
+ * A full buffer makes producers spin until the writer frees slots. Once closed, commands claimed after the writer
+ * stopped are failed rather than left pending, by {@link #close()} or by the producer that claimed them.
+ */
+public class LedgerSequencer implements AutoCloseable {
+    private static final int MAX_DRAIN = 1024;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLongArray published;
+    private final Thread writer;
+    private volatile long consumed;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+
+    public LedgerSequencer(int bufferSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1L);
+        }
+        writer = new Thread(this::runWriter, "ledger-sequencer-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues {@code operation} to run on the writer thread against {@code ledger}.
+     *
+     * @param lastId highest movement id produced by the operation, awaited on the ledger's journal before completion
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(AccountLedger ledger, Supplier<T> operation, ToLongFunction<T> lastId) {
+        if (closed) {
+            throw new IllegalStateException("The ledger is shutting down.");
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed >= slots.length) {
+            Thread.onSpinWait();
+        }
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.ledger = ledger;
+        slot.operation = operation;
+        slot.lastId = (ToLongFunction<Object>) lastId;
+        slot.future = future;
+        published.set((int) (sequence & mask), sequence);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        if (closed && Thread.currentThread() != writer) {
+            // Closed after the check above: the writer may have stopped before this sequence was claimed.
+            awaitWriter();
+            failAbandoned();
+        }
+        return future;
+    }
+
+    /**
+     * Stops accepting commands and returns once everything already published has been applied.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        awaitWriter();
+        failAbandoned();
+    }
+
+    private void awaitWriter() {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fails the commands claimed after the writer stopped; does nothing while it still runs, as it then applies them.
+     */
+    private synchronized void failAbandoned() {
+        if (writer.isAlive()) {
+            return;
+        }
+        for (long sequence = consumed; sequence < claimed.get(); sequence++) {
+            int index = (int) (sequence & mask);
+            while (published.get(index) != sequence) {
+                Thread.onSpinWait();
+            }
+            CompletableFuture<?> future = slots[index].future;
+            slots[index].clear();
+            consumed = sequence + 1;
+            future.completeExceptionally(new IllegalStateException("The ledger is shutting down."));
+        }
+    }
+
+    private void runWriter() {
+        Object[] results = new Object[Math.min(MAX_DRAIN, slots.length)];
+        Throwable[] failures = new Throwable[results.length];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[results.length];
+        AccountLedger[] applied = new AccountLedger[results.length];
+        Map<AccountLedger, Long> lastIds = new HashMap<>();
+        Map<AccountLedger, RuntimeException> notDurable = new HashMap<>();
+        long next = 0;
+        while (true) {
+            long end = next;
+            while (end - next < results.length && published.get((int) (end & mask)) == end) {
+                end++;
+            }
+            if (end == next) {
+                if (closed && claimed.get() == next) {
+                    return;
+                }
+                writerParked = true;
+                if (published.get((int) (next & mask)) != next && !closed) {
+                    LockSupport.park(this);
+                }
+                writerParked = false;
+                continue;
+            }
+
+            int count = (int) (end - next);
+            for (int i = 0; i < count; i++) {
+                Slot slot = slots[(int) ((next + i) & mask)];
+                futures[i] = slot.future;
+                try {
+                    Object result = slot.operation.get();
+                    results[i] = result;
+                    long id = slot.lastId.applyAsLong(result);
+                    lastIds.merge(slot.ledger, id, Math::max);
+                    applied[i] = slot.ledger;
+                } catch (Throwable e) {
+                    // Errors included: the writer must outlive any command, or every later one would hang.
+                    failures[i] = e;
+                }
+                slot.clear();
+            }
+            for (Map.Entry<AccountLedger, Long> entry : lastIds.entrySet()) {
+                try {
+                    entry.getKey().journal().awaitDurable(entry.getValue());
+                } catch (RuntimeException e) {
+                    notDurable.put(entry.getKey(), e);
+                }
+            }
+            lastIds.clear();
+            // Free the slots before completing, so callbacks that submit again cannot wait on this thread.
+            consumed = end;
+            next = end;
+            for (int i = 0; i < count; i++) {
+                Throwable failure = applied[i] != null ? notDurable.get(applied[i]) : failures[i];
+                complete(futures[i], results[i], failure);
+                futures[i] = null;
+                results[i] = null;
+                failures[i] = null;
+                applied[i] = null;
+            }
+            notDurable.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void complete(CompletableFuture<?> future, Object result, Throwable failure) {
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            ((CompletableFuture<Object>) future).complete(result);
+        }
+    }
+
+    private static final class Slot {
+        AccountLedger ledger;
+        Supplier<?> operation;
+        ToLongFunction<Object> lastId;
+        CompletableFuture<?> future;
+
+        void clear() {
+            ledger = null;
+            operation = null;
+            lastId = null;
+            future = null;
+        }
+    }
+}
@@ -1,66 +1,488 @@
 package tiny.ledger.service;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import tiny.ledger.entity.Movement;
 import org.springframework.stereotype.Service;
+import tiny.ledger.metrics.LedgerMetrics;
+import tiny.ledger.persistence.MovementJournal;
+import tiny.ledger.repository.AccountLedger;
+import tiny.ledger.repository.AggregateBucket;
+import tiny.ledger.repository.AggregateGranularity;
+import tiny.ledger.repository.AccountLedgerRegistry;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.CommitResult;
+import tiny.ledger.repository.InsufficientFundsException;
 import tiny.ledger.repository.LedgerRepository;
+import tiny.ledger.repository.MovementFilter;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class LedgerService {
+    public static final int MAX_BATCH_SIZE = 1000;
 
-    private final LedgerRepository ledgerRepository;
-    private final ReentrantLock lock = new ReentrantLock();
+    private final AccountLedgers accountLedgers;
+    private final WriteMode mode;
+    private final LedgerSequencer sequencer;
+    private final LedgerMetrics metrics;
+    private final AdmissionController admission;
 
     public LedgerService(LedgerRepository ledgerRepository) {
-        this.ledgerRepository = ledgerRepository;
+        this(ledgerRepository, MovementJournal.DISABLED);
+    }
+
+    public LedgerService(LedgerRepository ledgerRepository, MovementJournal journal) {
+        this(new AccountLedgerRegistry(new AccountLedger(AccountLedgers.DEFAULT_ACCOUNT, ledgerRepository, journal)));
+    }
+
+    public LedgerService(AccountLedgers accountLedgers) {
+        this(accountLedgers, null);
+    }
+
+    public LedgerService(AccountLedgers accountLedgers, LedgerSequencer sequencer) {
+        this(accountLedgers, sequencer, LedgerMetrics.NOOP);
+    }
+
+    /**
+     * @param sequencer writer thread for {@link WriteMode#SEQUENCER} mode, or {@code null} to take the per-account
+     *                  lock on the calling thread ({@link WriteMode#LOCKED})
+     */
+    public LedgerService(AccountLedgers accountLedgers, LedgerSequencer sequencer, LedgerMetrics metrics) {
+        this(accountLedgers, sequencer != null ? WriteMode.SEQUENCER : WriteMode.LOCKED, sequencer, metrics);
+    }
+
+    /**
+     * @param sequencer writer thread, required in {@link WriteMode#SEQUENCER} mode and ignored otherwise
+     */
+    public LedgerService(AccountLedgers accountLedgers,
+                         WriteMode mode,
+                         LedgerSequencer sequencer,
+                         LedgerMetrics metrics) {
+        this(accountLedgers, mode, sequencer, metrics, AdmissionController.UNLIMITED);
+    }
+
+    /**
+     * @param sequencer only present in {@link WriteMode#SEQUENCER} mode
+     */
+    @Autowired
+    public LedgerService(AccountLedgers accountLedgers,
+                         @Value("${ledger.write.mode:LOCKED}") WriteMode mode,
+                         ObjectProvider<LedgerSequencer> sequencer,
+                         LedgerMetrics metrics,
+                         AdmissionController admission) {
+        this(accountLedgers, mode, sequencer.getIfAvailable(), metrics, admission);
+    }
+
+    /**
+     * @param sequencer writer thread, required in {@link WriteMode#SEQUENCER} mode and ignored otherwise
+     * @param admission read and write budgets every ledger read and write is admitted through
+     */
+    public LedgerService(AccountLedgers accountLedgers,
+                         WriteMode mode,
+                         LedgerSequencer sequencer,
+                         LedgerMetrics metrics,
+                         AdmissionController admission) {
+        if (mode == WriteMode.SEQUENCER && sequencer == null) {
+            throw new IllegalArgumentException("SEQUENCER write mode needs a sequencer.");
+        }
+        this.accountLedgers = accountLedgers;
+        this.mode = mode;
+        this.sequencer = mode == WriteMode.SEQUENCER ? sequencer : null;
+        this.metrics = metrics;
+        this.admission = admission;
     }
 
     public List<Movement> getMovementHistory(Integer limit,
                                              Integer offset) {
-        return ledgerRepository.findMovements(limit, offset);
+        return getMovementHistory(AccountLedgers.DEFAULT_ACCOUNT, limit, offset);
+    }
+
+    public List<Movement> getMovementHistory(String accountId,
+                                             Integer limit,
+                                             Integer offset) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        return history(limit, () -> repository.findMovements(limit, offset));
+    }
+
+    public List<Movement> getMovementHistoryAfter(long cursorId,
+                                                  Integer limit) {
+        return getMovementHistoryAfter(AccountLedgers.DEFAULT_ACCOUNT, cursorId, limit);
+    }
+
+    public List<Movement> getMovementHistoryAfter(String accountId,
+                                                  long cursorId,
+                                                  Integer limit) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        return history(limit, () -> repository.findMovementsOlderThan(cursorId, limit));
+    }
+
+    public List<Movement> getFilteredMovementHistory(String accountId,
+                                                     MovementFilter filter,
+                                                     long beforeId,
+                                                     Integer limit) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        return history(limit, () -> repository.findMovements(filter, beforeId, limit));
+    }
+
+    /**
+     * Not counted against the read budget: the stream is consumed long after this returns, so a slot would be held
+     * for the whole download.
+     */
+    public Stream<Movement> exportMovements(String accountId,
+                                            long fromId,
+                                            long toId) {
+        return accountLedgers.get(accountId).repository().streamMovements(fromId, toId);
     }
 
     public Movement recordMovement(long amountInCents,
                                    Movement.MovementType type,
                                    String description,
                                    String idempotencyKey) {
+        return recordMovement(AccountLedgers.DEFAULT_ACCOUNT, amountInCents, type, description, idempotencyKey);
+    }
+
+    public Movement recordMovement(String accountId,
+                                   long amountInCents,
+                                   Movement.MovementType type,
+                                   String description,
+                                   String idempotencyKey) {
+        return await(submitMovement(accountId, amountInCents, type, description, idempotencyKey));
+    }
+
+    /**
+     * Records a movement and completes once it is durable. In {@link WriteMode#LOCKED} mode the calling thread does
+     * the work and the returned future is already complete, as in {@link WriteMode#LOCK_FREE} mode; in
+     * {@link WriteMode#SEQUENCER} mode it is completed by the sequencer's writer thread.
+     */
+    public CompletableFuture<Movement> submitMovement(String accountId,
+                                                      long amountInCents,
+                                                      Movement.MovementType type,
+                                                      String description,
+                                                      String idempotencyKey) {
         if (amountInCents <= 0) {
             throw new IllegalArgumentException("Transaction amount must be greater than zero.");
         }
+        rejectOnReplica();
+        return admitted(() -> writeMovement(accountId, amountInCents, type, description, idempotencyKey));
+    }
 
-        lock.lock();
+    private CompletableFuture<Movement> writeMovement(String accountId,
+                                                      long amountInCents,
+                                                      Movement.MovementType type,
+                                                      String description,
+                                                      String idempotencyKey) {
+        AccountLedger ledger = accountLedgers.open(accountId);
+        if (sequencer != null) {
+            return sequencer.submit(ledger,
+                                    () -> applyMovement(ledger.repository(), amountInCents, type, description, idempotencyKey),
+                                    Movement::id);
+        }
+        if (mode == WriteMode.LOCK_FREE) {
+            Movement movement = commitMovement(ledger.repository(), new Movement(0L, type, amountInCents, Instant.now(), description, idempotencyKey));
+            ledger.journal().awaitDurable(movement.id());
+            return CompletableFuture.completedFuture(movement);
+        }
+        Movement movement = underLock(ledger, () -> applyMovement(ledger.repository(), amountInCents, type, description, idempotencyKey));
+        // Wait for the fsync outside the lock so concurrent writers can share the same group commit.
+        ledger.journal().awaitDurable(movement.id());
+        return CompletableFuture.completedFuture(movement);
+    }
+
+    public List<MovementResult> recordMovements(String accountId,
+                                                List<MovementCommand> commands) {
+        return await(submitMovements(accountId, commands));
+    }
+
+    /**
+     * Records a batch as a single write. Every command is checked against the running balance before anything is
+     * saved, so either the whole batch is applied or none of it is.
+     */
+    public CompletableFuture<List<MovementResult>> submitMovements(String accountId,
+                                                                   List<MovementCommand> commands) {
+        if (commands.isEmpty() || commands.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch must contain between 1 and " + MAX_BATCH_SIZE + " transactions.");
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i).amountInCents() <= 0) {
+                throw new IllegalArgumentException("Transaction amount must be greater than zero (transaction " + i + ").");
+            }
+        }
+        rejectOnReplica();
+        return admitted(() -> writeMovements(accountId, commands));
+    }
+
+    private CompletableFuture<List<MovementResult>> writeMovements(String accountId,
+                                                                   List<MovementCommand> commands) {
+        AccountLedger ledger = accountLedgers.open(accountId);
+        if (sequencer != null) {
+            return sequencer.submit(ledger, () -> applyMovements(ledger.repository(), commands), LedgerService::lastId);
+        }
+        if (mode == WriteMode.LOCK_FREE) {
+            List<MovementResult> results = commitMovements(ledger.repository(), commands);
+            ledger.journal().awaitDurable(lastId(results));
+            return CompletableFuture.completedFuture(results);
+        }
+        List<MovementResult> results = underLock(ledger, () -> applyMovements(ledger.repository(), commands));
+        ledger.journal().awaitDurable(lastId(results));
+        return CompletableFuture.completedFuture(results);
+    }
+
+    public long getCurrentBalanceInCents() {
+        return getCurrentBalanceInCents(AccountLedgers.DEFAULT_ACCOUNT);
+    }
+
+    public long getCurrentBalanceInCents(String accountId) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        return admission.reads().call(repository::getCurrentBalanceInCents);
+    }
+
+    /**
+     * Version of the account's ledger: the last committed id, which grows with every commit. A single volatile read,
+     * so it is not counted against the read budget.
+     */
+    public long getVersion(String accountId) {
+        return accountLedgers.get(accountId).repository().getLastId();
+    }
+
+    /**
+     * Accounts opened so far, the default one included.
+     */
+    public List<String> getAccountIds() {
+        List<String> accountIds = new ArrayList<>();
+        for (AccountLedger ledger : accountLedgers.all()) {
+            accountIds.add(ledger.accountId());
+        }
+        return accountIds;
+    }
+
+    public long getBalanceInCentsAsOf(String accountId, Instant asOf) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        return admission.reads().call(() -> repository.getBalanceInCentsAsOf(asOf));
+    }
+
+    public long getBalanceInCentsAtId(String accountId, long atId) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        return admission.reads().call(() -> repository.getBalanceInCentsAtId(atId));
+    }
+
+    public List<AggregateBucket> getAggregates(String accountId,
+                                               AggregateGranularity granularity,
+                                               Instant from,
+                                               Instant to) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        return admission.reads().call(() -> repository.findAggregates(granularity, from, to));
+    }
+
+    /**
+     * Runs a history query within the read budget, timing it only when metrics are enabled.
+     */
+    private List<Movement> history(Integer limit, Supplier<List<Movement>> query) {
+        return admission.reads().call(() -> {
+            if (!metrics.enabled()) {
+                return query.get();
+            }
+            long start = System.nanoTime();
+            List<Movement> movements = query.get();
+            metrics.recordHistoryQuery(limit, System.nanoTime() - start);
+            return movements;
+        });
+    }
+
+    /**
+     * Starts a write within the write budget, holding its slot until the write completes, so queued sequencer
+     * commands and journal waits count as in flight.
+     */
+    private <T> CompletableFuture<T> admitted(Supplier<CompletableFuture<T>> write) {
+        AdmissionController.Budget writes = admission.writes();
+        writes.acquire();
+        CompletableFuture<T> future;
         try {
-            if (type == Movement.MovementType.WITHDRAWAL &&
-                ledgerRepository.getCurrentBalanceInCents() - amountInCents < 0) {
-                throw new IllegalStateException("Insufficient funds for this transaction.");
+            future = write.get();
+        } catch (RuntimeException e) {
+            writes.release();
+            throw e;
+        }
+        future.whenComplete((result, failure) -> writes.release());
+        return future;
+    }
+
+    private void rejectOnReplica() {
+        if (mode == WriteMode.REPLICA) {
+            throw new IllegalStateException("This ledger is a read-only replica; send writes to the leader.");
+        }
+    }
+
+    /**
+     * Runs {@code operation} holding the account lock, timing the wait and the hold only when metrics are enabled.
+     */
+    private <T> T underLock(AccountLedger ledger, Supplier<T> operation) {
+        ReentrantLock lock = ledger.lock();
+        if (!metrics.enabled()) {
+            lock.lock();
+            try {
+                return operation.get();
+            } finally {
+                lock.unlock();
             }
+        }
+        long requested = System.nanoTime();
+        lock.lock();
+        long acquired = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlock();
+            metrics.recordLock(acquired - requested, System.nanoTime() - acquired);
+        }
+    }
+
+    /**
+     * Funds check, idempotency lookup and save; callers must serialize calls per account.
+     */
+    private Movement applyMovement(LedgerRepository ledgerRepository,
+                                          long amountInCents,
+                                          Movement.MovementType type,
+                                          String description,
+                                          String idempotencyKey) {
+        if (type == Movement.MovementType.WITHDRAWAL &&
+            ledgerRepository.getCurrentBalanceInCents() - amountInCents < 0) {
+            metrics.insufficientFunds();
+            throw new IllegalStateException("Insufficient funds for this transaction.");
+        }
+
+        Optional<Long> existingId = idempotencyKey != null
+                ? ledgerRepository.findIdByIdempotencyKey(idempotencyKey)
+                : Optional.empty();
+        if (existingId.isPresent()) {
+            return ledgerRepository.findById(existingId.get())
+                    .orElseThrow(() -> new IllegalStateException("Movement not found for idempotency key: " + idempotencyKey));
+        }
+        return ledgerRepository.save(new Movement(0L,
+                                                  type,
+                                                  amountInCents,
+                                                  Instant.now(),
+                                                  description,
+                                                  idempotencyKey
+        ));
+    }
 
+    private List<MovementResult> applyMovements(LedgerRepository ledgerRepository,
+                                                       List<MovementCommand> commands) {
+        MovementResult[] results = new MovementResult[commands.size()];
+        long balance = ledgerRepository.getCurrentBalanceInCents();
+        List<Movement> pending = new ArrayList<>();
+        List<Integer> pendingIndexes = new ArrayList<>();
+        Map<String, Integer> indexesByIdempotencyKey = new HashMap<>();
+        for (int i = 0; i < commands.size(); i++) {
+            MovementCommand command = commands.get(i);
+            String idempotencyKey = command.idempotencyKey();
             if (idempotencyKey != null) {
+                Integer earlierIndex = indexesByIdempotencyKey.putIfAbsent(idempotencyKey, i);
+                if (earlierIndex != null) {
+                    results[i] = new MovementResult(null, true);
+                    continue;
+                }
                 Optional<Long> existingId = ledgerRepository.findIdByIdempotencyKey(idempotencyKey);
                 if (existingId.isPresent()) {
-                    return ledgerRepository.findById(existingId.get())
-                            .orElseThrow(() -> new IllegalStateException("Movement not found for idempotency key: " + idempotencyKey));
+                    results[i] = new MovementResult(ledgerRepository.findById(existingId.get())
+                            .orElseThrow(() -> new IllegalStateException("Movement not found for idempotency key: " + idempotencyKey)), true);
+                    continue;
                 }
             }
+            if (command.type() == Movement.MovementType.WITHDRAWAL) {
+                if (balance - command.amountInCents() < 0) {
+                    metrics.insufficientFunds();
+                    throw new IllegalStateException("Insufficient funds for this transaction (transaction " + i + ").");
+                }
+                balance -= command.amountInCents();
+            } else {
+                balance += command.amountInCents();
+            }
+            pending.add(new Movement(0L, command.type(), command.amountInCents(), Instant.now(), command.description(), idempotencyKey));
+            pendingIndexes.add(i);
+        }
 
-            Movement movement = new Movement(0L,
-                                             type,
-                                             amountInCents,
-                                             Instant.now(),
-                                             description,
-                                             idempotencyKey
-            );
-            return ledgerRepository.save(movement);
-        } finally {
-            lock.unlock();
+        if (!pending.isEmpty()) {
+            List<Movement> saved = ledgerRepository.saveAll(pending);
+            for (int i = 0; i < saved.size(); i++) {
+                results[pendingIndexes.get(i)] = new MovementResult(saved.get(i), false);
+            }
+        }
+        // Repeated keys within the batch resolve to the movement recorded for their first occurrence.
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].movement() == null) {
+                results[i] = new MovementResult(results[indexesByIdempotencyKey.get(commands.get(i).idempotencyKey())].movement(), true);
+            }
         }
+        return List.of(results);
     }
 
-    public long getCurrentBalanceInCents() {
-        return ledgerRepository.getCurrentBalanceInCents();
+    /**
+     * {@link WriteMode#LOCK_FREE} counterpart of {@link #applyMovement}; safe to call concurrently.
+     */
+    private Movement commitMovement(LedgerRepository ledgerRepository, Movement movement) {
+        try {
+            return ledgerRepository.commitAll(List.of(movement)).get(0).movement();
+        } catch (InsufficientFundsException e) {
+            metrics.insufficientFunds();
+            throw new IllegalStateException("Insufficient funds for this transaction.");
+        }
+    }
+
+    /**
+     * {@link WriteMode#LOCK_FREE} counterpart of {@link #applyMovements}; safe to call concurrently.
+     */
+    private List<MovementResult> commitMovements(LedgerRepository ledgerRepository,
+                                                 List<MovementCommand> commands) {
+        List<Movement> movements = new ArrayList<>(commands.size());
+        for (MovementCommand command : commands) {
+            movements.add(new Movement(0L, command.type(), command.amountInCents(), Instant.now(), command.description(), command.idempotencyKey()));
+        }
+        List<CommitResult> committed;
+        try {
+            committed = ledgerRepository.commitAll(movements);
+        } catch (InsufficientFundsException e) {
+            metrics.insufficientFunds();
+            throw new IllegalStateException("Insufficient funds for this transaction (transaction " + e.index() + ").");
+        }
+        List<MovementResult> results = new ArrayList<>(committed.size());
+        for (CommitResult result : committed) {
+            results.add(new MovementResult(result.movement(), result.replayed()));
+        }
+        return results;
+    }
+
+    private static long lastId(List<MovementResult> results) {
+        long lastId = 0L;
+        for (MovementResult result : results) {
+            lastId = Math.max(lastId, result.movement().id());
+        }
+        return lastId;
+    }
+
+    /**
+     * Waits for a submitted write, rethrowing the exception it failed with.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
-}
\ No newline at end of file
+}
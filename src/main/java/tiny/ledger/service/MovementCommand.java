@@ -0,0 +1,9 @@
+package tiny.ledger.service;
+
+import tiny.ledger.entity.Movement;
+
+public record MovementCommand(long amountInCents,
+                              Movement.MovementType type,
+                              String description,
+                              String idempotencyKey) {
+}
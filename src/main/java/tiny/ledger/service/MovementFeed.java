@@ -0,0 +1,249 @@
+package tiny.ledger.service;
+
+import tiny.ledger.entity.Movement;
+import tiny.ledger.repository.AccountLedgers;
+import tiny.ledger.repository.LedgerRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes committed movements to live subscribers, oldest first.
+ * <p>
+ * Subscribers hold no copies of movements: each one tracks the next id to send and reads it back from the account's
+ * store, which keeps every movement anyway. A commit only records the new last id and, if the subscriber is idle,
+ * hands its delivery to a pool thread, so the write path never waits on a subscriber. The per-subscriber buffer is
+ * therefore a bound on lag: a subscriber more than {@code maxLag} movements behind is told the last id it received
+ * and dropped, and resumes from there once it has caught up through the export.
+ * <p>
+ * Deliveries share a fixed pool of threads and the number of subscribers is capped, so neither grows with the number
+ * of clients. A send blocked for longer than {@code sendTimeout} drops its subscriber; as the blocked thread only
+ * returns once the container gives up on the write, the pool gets a thread in its place until then.
+ */
+public class MovementFeed implements AutoCloseable {
+    private static final int SEND_BATCH = 256;
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final AccountLedgers accountLedgers;
+    private final long maxLag;
+    private final int maxSubscribers;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor delivery;
+    private final ScheduledExecutorService watchdog;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ConcurrentMap<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    public MovementFeed(AccountLedgers accountLedgers, long maxLag) {
+        this(accountLedgers, maxLag, 1000, 8, Duration.ofSeconds(10));
+    }
+
+    public MovementFeed(AccountLedgers accountLedgers, long maxLag, int maxSubscribers, int deliveryThreads,
+                        Duration sendTimeout) {
+        if (maxLag <= 0) {
+            throw new IllegalArgumentException("Feed max lag must be greater than zero.");
+        }
+        if (maxSubscribers <= 0 || deliveryThreads <= 0) {
+            throw new IllegalArgumentException("Feed subscribers and delivery threads must be greater than zero.");
+        }
+        if (sendTimeout.toMillis() <= 0) {
+            throw new IllegalArgumentException("Feed send timeout must be at least one millisecond.");
+        }
+        this.accountLedgers = accountLedgers;
+        this.maxLag = maxLag;
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        AtomicInteger threads = new AtomicInteger();
+        // At most one task per subscriber is queued, so the queue is bounded by the subscriber cap.
+        this.delivery = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 60L, TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "ledger-feed-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "ledger-feed-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = Math.max(1L, sendTimeout.toMillis() / 4);
+        watchdog.scheduleWithFixedDelay(this::dropStalledSubscribers, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes {@code sink} to the account's movements from {@code fromId} on, or to new movements only when
+     * {@code fromId} is {@code null}.
+     */
+    public Subscription subscribe(String accountId, Long fromId, Sink sink) {
+        LedgerRepository repository = accountLedgers.get(accountId).repository();
+        long lastId = repository.getLastId();
+        long nextId = fromId != null ? fromId : lastId + 1;
+        if (nextId < 1) {
+            throw new IllegalArgumentException("Invalid feed position: fromId must be >= 1.");
+        }
+        if (lastId - nextId + 1 > maxLag) {
+            throw new IllegalArgumentException("Feed position " + nextId + " is more than " + maxLag
+                                               + " transactions behind, catch up through /transactions/export first.");
+        }
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new OverloadedException("feed subscriber", RETRY_AFTER);
+        }
+        List<Subscription> accountSubscriptions = subscriptions.computeIfAbsent(accountId, id -> {
+            List<Subscription> list = new CopyOnWriteArrayList<>();
+            repository.addCommitListener(committedId -> {
+                for (Subscription subscription : list) {
+                    subscription.committed(committedId);
+                }
+            });
+            return list;
+        });
+        Subscription subscription = new Subscription(repository, accountSubscriptions, sink, nextId);
+        accountSubscriptions.add(subscription);
+        // Commits after the registration are signalled by the listener, earlier ones by this catch-up signal.
+        subscription.committed(repository.getLastId());
+        return subscription;
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+        delivery.shutdownNow();
+    }
+
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (List<Subscription> accountSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : accountSubscriptions) {
+                subscription.expireSend(now);
+            }
+        }
+    }
+
+    /**
+     * Grows or shrinks the pool by one thread; the core size never exceeds the maximum in between.
+     */
+    private synchronized void resizeDelivery(int delta) {
+        if (delta > 0) {
+            delivery.setMaximumPoolSize(delivery.getMaximumPoolSize() + delta);
+            delivery.setCorePoolSize(delivery.getCorePoolSize() + delta);
+        } else {
+            delivery.setCorePoolSize(delivery.getCorePoolSize() + delta);
+            delivery.setMaximumPoolSize(delivery.getMaximumPoolSize() + delta);
+        }
+    }
+
+    /**
+     * Receives the movements of one subscription, always from a single thread at a time.
+     */
+    public interface Sink {
+        void send(Movement movement) throws IOException;
+
+        /**
+         * Called once when the subscription is dropped for falling too far behind.
+         */
+        void lagging(long lastSentId) throws IOException;
+    }
+
+    public final class Subscription {
+        private final LedgerRepository repository;
+        private final List<Subscription> accountSubscriptions;
+        private final Sink sink;
+        private final AtomicLong committedId = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private long nextId;
+        // Guarded by this subscription: the thread blocked in a send, and whether the watchdog replaced it.
+        private Thread sender;
+        private long sendStartedNanos;
+        private boolean expired;
+
+        private Subscription(LedgerRepository repository, List<Subscription> accountSubscriptions, Sink sink, long nextId) {
+            this.repository = repository;
+            this.accountSubscriptions = accountSubscriptions;
+            this.sink = sink;
+            this.nextId = nextId;
+        }
+
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                accountSubscriptions.remove(this);
+                subscribers.decrementAndGet();
+            }
+        }
+
+        private void committed(long lastId) {
+            committedId.accumulateAndGet(lastId, Math::max);
+            if (!cancelled.get() && scheduled.compareAndSet(false, true)) {
+                delivery.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            try {
+                while (true) {
+                    long committed = committedId.get();
+                    while (!cancelled.get() && nextId <= committed) {
+                        if (committed - nextId + 1 > maxLag) {
+                            cancel();
+                            sink.lagging(nextId - 1);
+                            return;
+                        }
+                        long toId = Math.min(committed, nextId + SEND_BATCH - 1);
+                        for (Movement movement : (Iterable<Movement>) repository.streamMovements(nextId, toId)::iterator) {
+                            send(movement);
+                            nextId = movement.id() + 1;
+                        }
+                        committed = committedId.get();
+                    }
+                    scheduled.set(false);
+                    // A commit signalled after the last check found the task still scheduled; pick it up here.
+                    if (cancelled.get() || committedId.get() < nextId || !scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                cancel();
+            }
+        }
+
+        private void send(Movement movement) throws IOException {
+            synchronized (this) {
+                sender = Thread.currentThread();
+                sendStartedNanos = System.nanoTime();
+            }
+            try {
+                sink.send(movement);
+            } finally {
+                synchronized (this) {
+                    sender = null;
+                    if (expired) {
+                        expired = false;
+                        resizeDelivery(-1);
+                    }
+                }
+            }
+        }
+
+        private synchronized void expireSend(long now) {
+            if (sender == null || expired || now - sendStartedNanos < sendTimeoutNanos) {
+                return;
+            }
+            cancel();
+            expired = true;
+            resizeDelivery(1);
+            sender.interrupt();
+        }
+    }
+}
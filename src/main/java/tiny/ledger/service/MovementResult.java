@@ -0,0 +1,9 @@
+package tiny.ledger.service;
+
+import tiny.ledger.entity.Movement;
+
+/**
+ * A recorded movement, flagged as replayed when it was returned for an idempotency key seen before.
+ */
+public record MovementResult(Movement movement, boolean replayed) {
+}
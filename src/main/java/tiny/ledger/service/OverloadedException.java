@@ -0,0 +1,20 @@
+package tiny.ledger.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request finds its admission budget exhausted for longer than the budget's maximum queue wait;
+ * answered with 503 and a {@code Retry-After} of {@link #retryAfter()}.
+ */
+public class OverloadedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public OverloadedException(String budget, Duration retryAfter) {
+        super("Too many concurrent " + budget + "s; retry later.");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
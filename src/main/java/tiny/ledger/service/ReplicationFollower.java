@@ -0,0 +1,211 @@
+package tiny.ledger.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import tiny.ledger.dto.ReplicaStatus;
+import tiny.ledger.dto.ReplicationRecord;
+import tiny.ledger.entity.Movement;
+import tiny.ledger.repository.AccountLedger;
+import tiny.ledger.repository.AccountLedgers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tails a leader's replication log into the local ledgers of a {@link WriteMode#REPLICA}.
+ * <p>
+ * Every poll lists the leader's accounts, then pages through each account's log from the sequence after the last one
+ * applied locally until a page comes back short. Movements are applied under the account lock with the leader's ids
+ * and timestamps, through the same journal, indexes and commit listeners as local writes, so a replica restarted on
+ * its own journal resumes where it stopped. A failed poll is recorded in the account's status and retried on the
+ * next one.
+ */
+public class ReplicationFollower implements AutoCloseable {
+    public static final String LAST_SEQ_HEADER = "Ledger-Last-Seq";
+
+    private final String leaderUrl;
+    private final AccountLedgers accountLedgers;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final ConcurrentMap<String, Progress> progress = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ReplicationFollower(URI leaderUrl,
+                               AccountLedgers accountLedgers,
+                               ObjectMapper objectMapper,
+                               int batchSize,
+                               Duration timeout) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Replication batch size must be greater than zero.");
+        }
+        String url = leaderUrl.toString();
+        this.leaderUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.accountLedgers = accountLedgers;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /**
+     * Polls the leader every {@code interval} on a background thread until closed.
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Replication is already running.");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-replication");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, 0L, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Catches every account of the leader up to the leader's last sequence at the time of the request. Returns the
+     * number of movements applied.
+     */
+    public int poll() {
+        List<String> accountIds;
+        try {
+            accountIds = List.of(objectMapper.readValue(get("/replication/accounts").body(), String[].class));
+        } catch (IOException | RuntimeException e) {
+            for (Progress account : progress.values()) {
+                account.failed(e);
+            }
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+        int applied = 0;
+        for (String accountId : accountIds) {
+            Progress account = progress.computeIfAbsent(accountId, id -> new Progress());
+            try {
+                applied += catchUp(accountLedgers.open(accountId), account);
+            } catch (IOException | RuntimeException e) {
+                account.failed(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Progress of every account replicated so far, in no particular order.
+     */
+    public List<ReplicaStatus> status() {
+        List<ReplicaStatus> statuses = new ArrayList<>(progress.size());
+        progress.forEach((accountId, account) -> {
+            long appliedSeq = accountLedgers.find(accountId).map(ledger -> ledger.repository().getLastId()).orElse(0L);
+            statuses.add(new ReplicaStatus(accountId,
+                                           appliedSeq,
+                                           account.leaderSeq,
+                                           Math.max(0L, account.leaderSeq - appliedSeq),
+                                           account.lastContact,
+                                           account.lastError));
+        });
+        return statuses;
+    }
+
+    /**
+     * Sum of the lag of every account, in movements.
+     */
+    public long lag() {
+        long lag = 0L;
+        for (ReplicaStatus status : status()) {
+            lag += status.lag();
+        }
+        return lag;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private int catchUp(AccountLedger ledger, Progress account) throws IOException, InterruptedException {
+        int applied = 0;
+        while (true) {
+            long fromSeq = ledger.repository().getLastId() + 1;
+            HttpResponse<InputStream> response = get("/accounts/" + ledger.accountId() + "/replication/log?fromSeq=" + fromSeq
+                                                     + "&limit=" + batchSize);
+            long leaderSeq = response.headers()
+                                     .firstValueAsLong(LAST_SEQ_HEADER)
+                                     .orElseThrow(() -> new IOException("Leader response without " + LAST_SEQ_HEADER + "."));
+            List<Movement> movements = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        movements.add(objectMapper.readValue(line, ReplicationRecord.class).toMovement());
+                    }
+                }
+            }
+            if (!movements.isEmpty()) {
+                ReentrantLock lock = ledger.lock();
+                lock.lock();
+                try {
+                    ledger.repository().replicate(movements);
+                } finally {
+                    lock.unlock();
+                }
+                ledger.journal().awaitDurable(movements.get(movements.size() - 1).id());
+            }
+            account.reached(leaderSeq);
+            applied += movements.size();
+            if (movements.size() < batchSize) {
+                return applied;
+            }
+        }
+    }
+
+    private HttpResponse<InputStream> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(leaderUrl + path)).timeout(timeout).GET().build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("Leader answered " + response.statusCode() + " to " + path + ".");
+        }
+        return response;
+    }
+
+    private static final class Progress {
+        volatile long leaderSeq;
+        volatile Instant lastContact;
+        volatile String lastError;
+
+        void reached(long seq) {
+            leaderSeq = seq;
+            lastContact = Instant.now();
+            lastError = null;
+        }
+
+        void failed(Exception e) {
+            lastError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+    }
+}
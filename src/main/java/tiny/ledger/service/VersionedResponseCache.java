@@ -0,0 +1,119 @@
+package tiny.ledger.service;
+
+import tiny.ledger.repository.AccountLedgers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Serialized responses of hot pages, kept per account and tagged with the ledger version they were built at.
+ * <p>
+ * An entry is only served for the version it was built at, and every commit on the account drops the account's
+ * entries, so a page is never served once the ledger moved past it. Each account holds at most {@code maxPages}
+ * entries and all accounts together at most {@code maxBytes} of bodies; once either is full, new pages are built
+ * without being cached until a commit empties the account. Only pages of at most {@code maxPageSize} movements are
+ * worth caching, so a single entry never holds a large part of the history.
+ */
+public class VersionedResponseCache {
+    public static final VersionedResponseCache DISABLED = new VersionedResponseCache(null, 0);
+    public static final int DEFAULT_MAX_PAGE_SIZE = 100;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final AccountLedgers accountLedgers;
+    private final int maxPages;
+    private final int maxPageSize;
+    private final long maxBytes;
+    private final AtomicLong bytes = new AtomicLong();
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> pagesByAccount = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VersionedResponseCache(AccountLedgers accountLedgers, int maxPages) {
+        this(accountLedgers, maxPages, DEFAULT_MAX_PAGE_SIZE, DEFAULT_MAX_BYTES);
+    }
+
+    public VersionedResponseCache(AccountLedgers accountLedgers, int maxPages, int maxPageSize, long maxBytes) {
+        if (maxPages < 0 || maxPageSize < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Response cache size must not be negative.");
+        }
+        this.accountLedgers = accountLedgers;
+        this.maxPages = maxPages;
+        this.maxPageSize = maxPageSize;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean enabled() {
+        return maxPages > 0;
+    }
+
+    /**
+     * Whether pages of {@code limit} movements are cached; unbounded pages never are.
+     */
+    public boolean caches(Integer limit) {
+        return enabled() && limit != null && limit <= maxPageSize;
+    }
+
+    /**
+     * Returns the bytes cached for {@code page} of the account at {@code version}, serializing and caching them on
+     * a miss. The version must be read before the data the serializer reads, so a cached page is never older than
+     * its version.
+     */
+    public byte[] get(String accountId, String page, long version, Supplier<byte[]> serializer) {
+        if (!enabled()) {
+            return serializer.get();
+        }
+        ConcurrentMap<String, Entry> pages = pagesByAccount.computeIfAbsent(accountId, id -> {
+            ConcurrentMap<String, Entry> accountPages = new ConcurrentHashMap<>();
+            accountLedgers.get(id).repository().addCommitListener(lastId -> {
+                for (Map.Entry<String, Entry> cached : accountPages.entrySet()) {
+                    if (accountPages.remove(cached.getKey(), cached.getValue())) {
+                        bytes.addAndGet(-cached.getValue().body().length);
+                    }
+                }
+            });
+            return accountPages;
+        });
+        Entry entry = pages.get(page);
+        if (entry != null && entry.version() == version) {
+            hits.increment();
+            return entry.body();
+        }
+        misses.increment();
+        byte[] body = serializer.get();
+        if (entry == null && pages.size() >= maxPages) {
+            return body;
+        }
+        if (bytes.addAndGet(body.length) > maxBytes) {
+            bytes.addAndGet(-body.length);
+            return body;
+        }
+        // Each entry's bytes are given back by whichever map operation removes it.
+        Entry replaced = pages.put(page, new Entry(version, body));
+        if (replaced != null) {
+            bytes.addAndGet(-replaced.body().length);
+        }
+        return body;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Bytes of bodies cached across all accounts.
+     */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    private record Entry(long version, byte[] body) {
+    }
+}
@@ -0,0 +1,25 @@
+package tiny.ledger.service;
+
+/**
+ * How writes to an account are serialized.
+ */
+public enum WriteMode {
+    /**
+     * Request threads take the account's lock and apply their own movements.
+     */
+    LOCKED,
+    /**
+     * Request threads publish commands to a ring buffer drained by a single writer thread.
+     */
+    SEQUENCER,
+    /**
+     * Request threads reserve ids and check funds with a compare-and-set on the account's head, without the account
+     * lock; only the final insertion runs one batch at a time, in id order.
+     */
+    LOCK_FREE,
+    /**
+     * Client writes are rejected; movements only arrive from a leader's replication log, applied under the account
+     * lock by {@link ReplicationFollower}.
+     */
+    REPLICA
+}
@@ -0,0 +1,108 @@
+package tiny.ledger.controller
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.core.ParameterizedTypeReference
+import org.springframework.http.MediaType
+import org.springframework.http.converter.HttpMessageNotReadableException
+import org.springframework.mock.http.MockHttpInputMessage
+import org.springframework.mock.http.MockHttpOutputMessage
+import spock.lang.Specification
+import tiny.ledger.dto.BalanceResponse
+import tiny.ledger.dto.BatchTransactionRequest
+import tiny.ledger.dto.BatchTransactionResponse
+import tiny.ledger.dto.ErrorResponse
+import tiny.ledger.dto.ListResponse
+import tiny.ledger.dto.PageCursor
+import tiny.ledger.dto.TransactionRequest
+import tiny.ledger.dto.TransactionResponse
+
+import java.time.Instant
+
+class BinaryMessageConverterTest extends Specification {
+    def converter = new BinaryMessageConverter()
+    def createdOn = Instant.parse("2025-01-15T10:30:00.123456789Z")
+
+    def "every body survives a round trip"() {
+        given:
+        def output = new MockHttpOutputMessage()
+
+        when:
+        converter.write(body, type, BinaryMessageConverter.MEDIA_TYPE, output)
+        def decoded = converter.read(type, null, new MockHttpInputMessage(output.bodyAsBytes))
+
+        then:
+        output.headers.getContentType() == BinaryMessageConverter.MEDIA_TYPE
+        decoded == body
+
+        where:
+        body << [
+                new TransactionRequest(1000L, "Rent, invoice INV-17 ✓", "WITHDRAWAL"),
+                [new BatchTransactionRequest(500L, "Deposit", "DEPOSIT", "key-1"), new BatchTransactionRequest(1L, null, null, null)],
+                new TransactionResponse(42L, 1000L, Instant.parse("2025-01-15T10:30:00.123456789Z"), "Salary", "DEPOSIT"),
+                new ListResponse<>([new TransactionResponse(2L, 300L, Instant.parse("2025-01-15T10:30:00Z"), null, "WITHDRAWAL"),
+                                    new TransactionResponse(1L, 1000L, Instant.parse("2025-01-15T10:29:00Z"), "Salary", "DEPOSIT")],
+                                   2, null, 2, new PageCursor(1L).encode()),
+                new BalanceResponse(-1L, Instant.parse("1969-12-31T23:59:59.5Z")),
+                new BatchTransactionResponse([new BatchTransactionResponse.Item(0, BatchTransactionResponse.Status.REPLAYED,
+                        new TransactionResponse(7L, 100L, Instant.parse("2025-01-15T10:30:00Z"), "Replayed", "DEPOSIT"))], 1),
+                new ErrorResponse(ErrorResponse.ErrorCode.INVALID_STATE, "Insufficient funds for this transaction.")
+        ]
+        type << [
+                TransactionRequest,
+                new ParameterizedTypeReference<List<BatchTransactionRequest>>() {}.type,
+                TransactionResponse,
+                new ParameterizedTypeReference<ListResponse<TransactionResponse>>() {}.type,
+                BalanceResponse,
+                BatchTransactionResponse,
+                ErrorResponse
+        ]
+    }
+
+    def "a transaction is fixed-width fields plus its description"() {
+        when:
+        def bytes = BinaryMessageConverter.encode(new TransactionResponse(1L, 1000L, createdOn, "Salary", "DEPOSIT"))
+
+        then: "id, type, amount and epoch nanos, then the description's length and UTF-8 bytes"
+        bytes.length == 8 + 1 + 8 + 8 + 4 + 6
+        BinaryMessageConverter.decode(bytes, TransactionResponse).createdOn() == createdOn
+    }
+
+    def "a page is several times smaller than its JSON"() {
+        given:
+        def page = new ListResponse<>((1..100).collect {
+            new TransactionResponse(it, it * 100L, createdOn.plusSeconds(it), "Card payment $it", it % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL")
+        }, 100, 0, 100)
+
+        expect:
+        BinaryMessageConverter.encode(page).length * 2 < new ObjectMapper().findAndRegisterModules().writeValueAsBytes(page).length
+    }
+
+    def "only the binary media type and the API's bodies are handled"() {
+        expect:
+        converter.canRead(TransactionRequest, BinaryMessageConverter.MEDIA_TYPE)
+        !converter.canRead(TransactionRequest, MediaType.APPLICATION_JSON)
+        !converter.canRead(String, BinaryMessageConverter.MEDIA_TYPE)
+        converter.canRead(new ParameterizedTypeReference<List<BatchTransactionRequest>>() {}.type, null, BinaryMessageConverter.MEDIA_TYPE)
+        !converter.canRead(new ParameterizedTypeReference<List<String>>() {}.type, null, BinaryMessageConverter.MEDIA_TYPE)
+        converter.canWrite(ListResponse, ListResponse, BinaryMessageConverter.MEDIA_TYPE)
+        !converter.canWrite(ListResponse, ListResponse, MediaType.APPLICATION_JSON)
+        !converter.canWrite(String, String, BinaryMessageConverter.MEDIA_TYPE)
+        converter.canWrite(new ParameterizedTypeReference<List<BatchTransactionRequest>>() {}.type, ArrayList, BinaryMessageConverter.MEDIA_TYPE)
+        !converter.canWrite(new ParameterizedTypeReference<List<String>>() {}.type, ArrayList, BinaryMessageConverter.MEDIA_TYPE)
+    }
+
+    def "malformed bodies are rejected as unreadable"() {
+        when:
+        converter.read(TransactionRequest, null, new MockHttpInputMessage(bytes as byte[]))
+
+        then:
+        def e = thrown(HttpMessageNotReadableException)
+        e.message.startsWith(message)
+
+        where:
+        bytes                                                || message
+        [0, 0, 0, 0, 0, 0, 3, -24]                           || "Truncated binary body."
+        [0, 0, 0, 0, 0, 0, 3, -24, 5, -1, -1, -1, -1]        || "Invalid ordinal in binary body: 5."
+        [0, 0, 0, 0, 0, 0, 3, -24, 0, 127, -1, -1, -1]       || "Invalid string length in binary body: 2147483647."
+    }
+}
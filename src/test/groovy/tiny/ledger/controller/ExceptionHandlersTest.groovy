@@ -0,0 +1,30 @@
+package tiny.ledger.controller
+
+import org.springframework.http.HttpStatus
+import spock.lang.Specification
+import tiny.ledger.dto.ErrorResponse
+import tiny.ledger.service.OverloadedException
+
+import java.time.Duration
+
+class ExceptionHandlersTest extends Specification {
+
+    def target = new ExceptionHandlers()
+
+    def "Overloaded requests get a 503 with Retry-After in whole seconds"() {
+        when:
+        def response = target.handleOverloadedException(new OverloadedException("write", retryAfter))
+
+        then:
+        response.statusCode == HttpStatus.SERVICE_UNAVAILABLE
+        response.headers.getFirst("Retry-After") == expected
+        response.body.code() == ErrorResponse.ErrorCode.OVERLOADED
+        response.body.message() == "Too many concurrent writes; retry later."
+
+        where:
+        retryAfter              | expected
+        Duration.ofSeconds(2)   | "2"
+        Duration.ofMillis(1500) | "2"
+        Duration.ZERO           | "1"
+    }
+}
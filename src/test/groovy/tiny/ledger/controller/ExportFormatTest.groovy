@@ -0,0 +1,59 @@
+package tiny.ledger.controller
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+
+import java.time.Instant
+
+class ExportFormatTest extends Specification {
+    def createdOn = Instant.parse("2025-01-15T10:30:00.123456789Z")
+
+    def "NDJSON lines are valid JSON documents"() {
+        given:
+        def writer = new StringWriter()
+
+        when:
+        ExportFormat.NDJSON.writeHeader(writer)
+        ExportFormat.NDJSON.write(writer, new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, createdOn, description, null))
+
+        then: "one line that reads back to the same fields"
+        writer.toString().endsWith("\n")
+        writer.toString().count("\n") == 1
+        def json = new ObjectMapper().readValue(writer.toString(), Map)
+        json == [id: 1, amountInCents: 1000, createdOn: "2025-01-15T10:30:00.123456789Z", description: description, type: "DEPOSIT"]
+
+        where:
+        description << ["Salary", null, 'Quote " and \\ back\nslash\t\u0001', "Ünïcode €"]
+    }
+
+    def "CSV fields are quoted only when needed"() {
+        given:
+        def writer = new StringWriter()
+
+        when:
+        ExportFormat.CSV.writeHeader(writer)
+        ExportFormat.CSV.write(writer, new Movement(7L, Movement.MovementType.WITHDRAWAL, 250L, createdOn, description, null))
+
+        then:
+        writer.toString() == "id,amountInCents,createdOn,description,type\r\n" +
+                "7,250,2025-01-15T10:30:00.123456789Z," + field + ",WITHDRAWAL\r\n"
+
+        where:
+        description        | field
+        "Rent"             | "Rent"
+        null               | ""
+        "Rent, January"    | '"Rent, January"'
+        'The "flat"'       | '"The ""flat"""'
+        "two\nlines"       | '"two\nlines"'
+    }
+
+    def "unknown formats are rejected"() {
+        when:
+        ExportFormat.parse("xml")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid export format: xml, expected NDJSON or CSV."
+    }
+}
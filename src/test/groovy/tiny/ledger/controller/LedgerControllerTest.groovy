@@ -1,11 +1,28 @@
 package tiny.ledger.controller
 
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpStatus
 import spock.lang.Specification
+import tiny.ledger.dto.BatchTransactionRequest
+import tiny.ledger.dto.BatchTransactionResponse
+import tiny.ledger.dto.PageCursor
 import tiny.ledger.dto.TransactionRequest
 import tiny.ledger.entity.Movement
+import tiny.ledger.persistence.MovementJournal
+import tiny.ledger.repository.AccountLedger
+import tiny.ledger.repository.AccountLedgerRegistry
+import tiny.ledger.repository.AggregateBucket
+import tiny.ledger.repository.AggregateGranularity
+import tiny.ledger.repository.LedgerRepository
+import tiny.ledger.repository.MovementFilter
 import tiny.ledger.service.LedgerService
+import tiny.ledger.service.MovementCommand
+import tiny.ledger.service.MovementResult
+import tiny.ledger.service.VersionedResponseCache
 
 import java.time.Instant
+import java.util.concurrent.CompletableFuture
 
 class LedgerControllerTest extends Specification {
     def ledgerService = Mock(LedgerService)
@@ -17,15 +34,16 @@ class LedgerControllerTest extends Specification {
         def movement = new Movement(1, Movement.MovementType.DEPOSIT, 10000L, Instant.now(), "Test transaction", null)
 
         when: "get transactions is requested"
-        def result = target.getTransactions(null, null)
+        def result = target.getTransactions(null, null, null, null, null, null, null, null, null, null, null, null)
 
         then: "the ledger service is called with the correct parameters"
-        1 * ledgerService.getMovementHistory(null, null) >> [movement]
+        1 * ledgerService.getVersion("default") >> 1L
+        1 * ledgerService.getMovementHistory("default", null, null) >> [movement]
 
         and: "the result contains the expected transaction"
-        result.data().size() == 1
-        result.data().asList().get(0).id() == movement.id()
-        result.count() == 1
+        result.body.data().size() == 1
+        result.body.data().asList().get(0).id() == movement.id()
+        result.body.count() == 1
 
         and: "no more interactions are present"
         0 * _
@@ -36,23 +54,106 @@ class LedgerControllerTest extends Specification {
         def movement = new Movement(1, Movement.MovementType.WITHDRAWAL, 5000L, Instant.now(), "Test transaction", null)
 
         when: "get transactions is requested with pagination"
-        def result = target.getTransactions(10, 0)
+        def result = target.getTransactions(null, 10, 0, null, null, null, null, null, null, null, null, null)
 
         then: "the ledger service is called with the correct parameters"
-        1 * ledgerService.getMovementHistory(10, 0) >> [movement]
+        1 * ledgerService.getVersion("default") >> 1L
+        1 * ledgerService.getMovementHistory("default", 10, 0) >> [movement]
 
         and: "the result contains the expected transaction"
-        result.data().size() == 1
-        result.data().asList().get(0).id() == movement.id()
-        result.count() == 1
+        result.body.data().size() == 1
+        result.body.data().asList().get(0).id() == movement.id()
+        result.body.count() == 1
 
         and: "no more interactions are present"
         0 * _
     }
 
+    def "Get transactions answers a matching If-None-Match without reading the history"() {
+        when: "the client already holds the current version"
+        def result = target.getTransactions(null, 10, null, null, null, null, null, null, null, null, 'W/"7", "8"', null)
+
+        then: "only the version is read"
+        1 * ledgerService.getVersion("default") >> 8L
+
+        and: "the response is not modified"
+        result.statusCode == HttpStatus.NOT_MODIFIED
+        result.headers.getETag() == '"8"'
+        result.body == null
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get transactions tags each encoding apart and varies by Accept"() {
+        when: "a binary client revalidates with the JSON tag"
+        def result = target.getTransactions(null, 10, null, null, null, null, null, null, null, null, '"8"', BinaryMessageConverter.MEDIA_TYPE.toString())
+
+        then:
+        1 * ledgerService.getVersion("default") >> 8L
+        1 * ledgerService.getMovementHistory("default", 10, null) >> []
+
+        and: "the binary page is sent with its own tag"
+        result.statusCode == HttpStatus.OK
+        result.headers.getETag() == '"8-b"'
+        result.headers.getVary() == [HttpHeaders.ACCEPT]
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get transactions serves hot pages from the response cache until the version changes"() {
+        given: "a controller with a response cache"
+        def cache = new VersionedResponseCache(new AccountLedgerRegistry(new AccountLedger("default", Stub(LedgerRepository), MovementJournal.DISABLED)), 16)
+        def controller = new LedgerController(ledgerService, cache, new ObjectMapper().findAndRegisterModules())
+        def movement = new Movement(1, Movement.MovementType.DEPOSIT, 10000L, Instant.parse("2025-01-15T10:30:00Z"), "Cached", null)
+
+        when: "the same page is requested twice at one version and once at the next"
+        def first = controller.getTransactions(null, 10, null, null, null, null, null, null, null, null, null, null)
+        def second = controller.getTransactions(null, 10, null, null, null, null, null, null, null, null, null, null)
+        def third = controller.getTransactions(null, 10, null, null, null, null, null, null, null, null, null, null)
+
+        then: "the history is read once per version"
+        3 * ledgerService.getVersion("default") >>> [1L, 1L, 2L]
+        2 * ledgerService.getMovementHistory("default", 10, null) >> [movement]
+
+        and: "the serialized page is reused"
+        second.body.is(first.body)
+        !third.body.is(first.body)
+        new String(first.body as byte[]).contains('"description":"Cached"')
+        second.headers.getETag() == '"1"'
+        third.headers.getETag() == '"2"'
+        cache.hits() == 1L
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get transactions only caches bounded first pages"() {
+        given: "a controller with a response cache"
+        def cache = new VersionedResponseCache(new AccountLedgerRegistry(new AccountLedger("default", Stub(LedgerRepository), MovementJournal.DISABLED)), 16)
+        def controller = new LedgerController(ledgerService, cache, new ObjectMapper().findAndRegisterModules())
+        ledgerService.getVersion("default") >> 1L
+
+        when: "the whole history, a later page and an oversized page are each requested twice"
+        2.times {
+            controller.getTransactions(null, null, null, null, null, null, null, null, null, null, null, null)
+            controller.getTransactions(null, 10, 10, null, null, null, null, null, null, null, null, null)
+            controller.getTransactions(null, 1000, null, null, null, null, null, null, null, null, null, null)
+        }
+
+        then: "every request reads the history"
+        2 * ledgerService.getMovementHistory("default", null, null) >> []
+        2 * ledgerService.getMovementHistory("default", 10, 10) >> []
+        2 * ledgerService.getMovementHistory("default", 1000, null) >> []
+        cache.hits() == 0L
+        cache.misses() == 0L
+        cache.bytes() == 0L
+    }
+
     def "Get transaction history with invalid pagination"() {
         when: "get transactions is requested with invalid pagination"
-        target.getTransactions(-1, -1)
+        target.getTransactions(null, -1, -1, null, null, null, null, null, null, null, null, null)
 
         then: "an exception is thrown"
         def e = thrown(IllegalArgumentException)
@@ -62,15 +163,103 @@ class LedgerControllerTest extends Specification {
         0 * _
     }
 
+    def "Get transactions after a cursor"() {
+        given: "a full page of older transactions"
+        def movement = new Movement(4, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Older", null)
+        def movement2 = new Movement(3, Movement.MovementType.DEPOSIT, 2000L, Instant.now(), "Oldest", null)
+
+        when: "get transactions is requested with a cursor"
+        def result = target.getTransactions(null, 2, null, new PageCursor(5L).encode(), null, null, null, null, null, null, null, null)
+
+        then: "the ledger service is called with the decoded cursor"
+        1 * ledgerService.getVersion("default") >> 4L
+        1 * ledgerService.getMovementHistoryAfter("default", 5L, 2) >> [movement, movement2]
+
+        and: "the result points at the next page"
+        result.body.count() == 2
+        result.body.data()*.id() == [4L, 3L]
+        PageCursor.decode(result.body.nextCursor()).lastId() == 3L
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get transactions with an invalid cursor"() {
+        when: "get transactions is requested with a malformed cursor"
+        target.getTransactions(null, 10, null, "not-a-cursor", null, null, null, null, null, null, null, null)
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid cursor: not-a-cursor"
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get transactions with filters"() {
+        given: "a full page of matching withdrawals"
+        def movement = new Movement(9, Movement.MovementType.WITHDRAWAL, 5000L, Instant.now(), "Refund INV-17", null)
+
+        when: "get transactions is filtered by type, amount, time and description token"
+        def result = target.getTransactions(null, 1, null, new PageCursor(12L).encode(),
+                "withdrawal", 1000L, null, "2025-01-15T10:00:00Z", "2025-01-15T11:00:00Z", "INV-17", null, null)
+
+        then: "the ledger service gets the filter and the decoded cursor"
+        1 * ledgerService.getVersion("default") >> 11L
+        1 * ledgerService.getFilteredMovementHistory("default",
+                new MovementFilter(Movement.MovementType.WITHDRAWAL, 1000L, null,
+                        Instant.parse("2025-01-15T10:00:00Z"), Instant.parse("2025-01-15T11:00:00Z"), "inv-17"),
+                12L, 1) >> [movement]
+
+        and: "the result points at the next page"
+        result.body.data()*.id() == [9L]
+        PageCursor.decode(result.body.nextCursor()).lastId() == 9L
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get transactions with invalid filters"() {
+        when: "get transactions is requested with an invalid filter"
+        target.getTransactions(null, null, offset, null, type, min, max, from, to, token, null, null)
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == message
+
+        and: "no more interactions are present"
+        0 * _
+
+        where:
+        offset | type    | min  | max  | from                   | to                     | token       || message
+        null   | "bonus" | null | null | null                   | null                   | null        || "Invalid type: bonus, expected DEPOSIT or WITHDRAWAL."
+        null   | null    | 500L | 100L | null                   | null                   | null        || "Invalid filter: minAmountInCents must not exceed maxAmountInCents."
+        null   | null    | null | null | "2025-01-15T11:00:00Z" | "2025-01-15T10:00:00Z" | null        || "Invalid filter: createdFrom must be before createdTo."
+        null   | null    | null | null | null                   | null                   | "two words" || "Invalid filter: description token must be a single word of letters, digits, '-' or '_'."
+        5      | null    | 100L | null | null                   | null                   | null        || "Invalid pagination parameters: offset cannot be combined with filters."
+    }
+
+    def "Get transactions with cursor and offset"() {
+        when: "get transactions is requested with both a cursor and an offset"
+        target.getTransactions(null, 10, 0, new PageCursor(5L).encode(), null, null, null, null, null, null, null, null)
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid pagination parameters: offset cannot be combined with a cursor."
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
     def "Record valid deposit transaction with no idempotency key"() {
         given: "a valid deposit transaction"
         def transactionRequest = new TransactionRequest(10000, "Test deposit", "DEPOSIT")
 
         when: "the deposit transaction is recorded"
-        def result = target.recordTransaction(null, transactionRequest)
+        def result = target.recordTransaction(null, null, transactionRequest).join()
 
         then: "the ledger service is called with the correct parameters"
-        1 * ledgerService.recordMovement(10000L, Movement.MovementType.DEPOSIT, "Test deposit", null) >> new Movement(1L, Movement.MovementType.DEPOSIT, 10000L, Instant.now(), "Test deposit", null)
+        1 * ledgerService.submitMovement("default", 10000L, Movement.MovementType.DEPOSIT, "Test deposit", null) >> CompletableFuture.completedFuture(new Movement(1L, Movement.MovementType.DEPOSIT, 10000L, Instant.now(), "Test deposit", null))
 
         and: "the result is the expected transaction"
         result.id() == 1L
@@ -85,10 +274,10 @@ class LedgerControllerTest extends Specification {
         def idempotencyKey = "unique-idempotency-key"
 
         when: "the withdrawal transaction is recorded"
-        def result = target.recordTransaction(idempotencyKey, transactionRequest)
+        def result = target.recordTransaction(null, idempotencyKey, transactionRequest).join()
 
         then: "the ledger service is called with the correct parameters"
-        1 * ledgerService.recordMovement(5000L, Movement.MovementType.WITHDRAWAL, "Test withdrawal", idempotencyKey) >> new Movement(2L, Movement.MovementType.DEPOSIT, 10000L, Instant.now(), "Test deposit", null)
+        1 * ledgerService.submitMovement("default", 5000L, Movement.MovementType.WITHDRAWAL, "Test withdrawal", idempotencyKey) >> CompletableFuture.completedFuture(new Movement(2L, Movement.MovementType.DEPOSIT, 10000L, Instant.now(), "Test deposit", null))
 
         and: "the result is the expected transaction"
         result.id() == 2L
@@ -102,17 +291,235 @@ class LedgerControllerTest extends Specification {
         def balance = 15000L
 
         when: "the balance is requested"
-        def result = target.getCurrentBalance()
+        def result = target.getCurrentBalance(null, null, null, null, null)
 
         then: "the ledger service is called to get the balance"
-        1 * ledgerService.getCurrentBalanceInCents() >> balance
+        1 * ledgerService.getVersion("default") >> 3L
+        1 * ledgerService.getCurrentBalanceInCents("default") >> balance
+
+        and: "the result contains the expected balance, tagged with the ledger version"
+        result.body.balanceInCents() == balance
+        result.body.date() != null
+        result.headers.getETag() == '"3"'
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get balance as of an instant"() {
+        when: "the balance is requested as of an instant"
+        def result = target.getCurrentBalance(null, "2025-01-15T10:30:00Z", null, null, null)
+
+        then: "the ledger service answers for that instant"
+        1 * ledgerService.getVersion("default") >> 3L
+        1 * ledgerService.getBalanceInCentsAsOf("default", Instant.parse("2025-01-15T10:30:00Z")) >> 1200L
+
+        and: "the result is dated at the instant"
+        result.body.balanceInCents() == 1200L
+        result.body.date() == Instant.parse("2025-01-15T10:30:00Z")
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get balance at a transaction id"() {
+        when: "the balance is requested right after a transaction"
+        def result = target.getCurrentBalance("acc-1", null, 42L, null, null)
 
-        and: "the result contains the expected balance"
-        result.balanceInCents() == balance
-        result.date() != null
+        then: "the ledger service answers for that transaction"
+        1 * ledgerService.getVersion("acc-1") >> 50L
+        1 * ledgerService.getBalanceInCentsAtId("acc-1", 42L) >> 300L
+
+        and:
+        result.body.balanceInCents() == 300L
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get balance with invalid point in time parameters"() {
+        when:
+        target.getCurrentBalance(null, asOf, atId, null, null)
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == message
+
+        and: "no more interactions are present"
+        0 * _
+
+        where:
+        asOf                   | atId | message
+        "2025-01-15T10:30:00Z" | 1L   | "Invalid balance parameters: asOf cannot be combined with atId."
+        "yesterday"            | null | "Invalid instant: yesterday, expected ISO-8601 such as 2025-01-15T10:30:00Z."
+    }
+
+    def "Export transactions as CSV"() {
+        given:
+        def createdOn = Instant.parse("2025-01-15T10:30:00Z")
+
+        when: "a range of transactions is exported"
+        def response = target.exportTransactions("acc-1", "csv", 2L, 3L)
+        def output = new ByteArrayOutputStream()
+        response.body.writeTo(output)
+
+        then: "the ledger service streams the range"
+        1 * ledgerService.exportMovements("acc-1", 2L, 3L) >> [
+                new Movement(2L, Movement.MovementType.DEPOSIT, 500L, createdOn, "Second", null),
+                new Movement(3L, Movement.MovementType.WITHDRAWAL, 200L, createdOn, "Third", null)].stream()
+
+        and: "the movements are written as CSV"
+        response.headers.getContentType().toString() == "text/csv"
+        output.toString("UTF-8") == "id,amountInCents,createdOn,description,type\r\n" +
+                "2,500,2025-01-15T10:30:00Z,Second,DEPOSIT\r\n" +
+                "3,200,2025-01-15T10:30:00Z,Third,WITHDRAWAL\r\n"
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Export transactions without a range"() {
+        when:
+        def response = target.exportTransactions(null, "ndjson", 1L, null)
+        def output = new ByteArrayOutputStream()
+        response.body.writeTo(output)
+
+        then:
+        1 * ledgerService.exportMovements("default", 1L, Long.MAX_VALUE) >> [].stream()
+        response.headers.getContentType().toString() == "application/x-ndjson"
+        output.size() == 0
 
         and: "no more interactions are present"
         0 * _
     }
 
+    def "Export transactions with an invalid range"() {
+        when:
+        target.exportTransactions(null, "ndjson", fromId, toId)
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid export range: fromId must be >= 1 and toId >= fromId."
+
+        and: "no more interactions are present"
+        0 * _
+
+        where:
+        fromId | toId
+        0L     | null
+        5L     | 4L
+    }
+
+    def "Get aggregates for a range"() {
+        given:
+        def from = Instant.parse("2025-01-15T10:00:00Z")
+        def to = Instant.parse("2025-01-15T12:00:00Z")
+
+        when: "hourly aggregates are requested"
+        def result = target.getAggregates("acc-1", "hour", from.toString(), to.toString())
+
+        then: "the ledger service answers for the range"
+        1 * ledgerService.getAggregates("acc-1", AggregateGranularity.HOUR, from, to) >> [
+                new AggregateBucket(from, 2L, 1500L, 1L, 300L),
+                new AggregateBucket(from.plusSeconds(3600), 0L, 0L, 0L, 0L)]
+
+        and: "the buckets are returned in order"
+        result.granularity() == AggregateGranularity.HOUR
+        result.buckets()*.start() == [from, from.plusSeconds(3600)]
+        result.buckets()[0].depositsInCents() == 1500L
+        result.buckets()[0].withdrawalCount() == 1L
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get aggregates defaults to the last 60 buckets"() {
+        when:
+        def result = target.getAggregates(null, "MINUTE", null, "2025-01-15T12:00:00Z")
+
+        then:
+        1 * ledgerService.getAggregates("default", AggregateGranularity.MINUTE,
+                                        Instant.parse("2025-01-15T11:00:00Z"), Instant.parse("2025-01-15T12:00:00Z")) >> []
+        result.from() == Instant.parse("2025-01-15T11:00:00Z")
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Get aggregates with an invalid granularity"() {
+        when:
+        target.getAggregates(null, "week", null, null)
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid granularity: week, expected MINUTE, HOUR or DAY."
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Account scoped requests are routed to the account"() {
+        given: "a deposit for an account"
+        def transactionRequest = new TransactionRequest(700, "Account deposit", "DEPOSIT")
+
+        when: "the deposit is recorded and the account is queried"
+        def recorded = target.recordTransaction("acc-1", null, transactionRequest).join()
+        def history = target.getTransactions("acc-1", 5, 0, null, null, null, null, null, null, null, null, null)
+        def balance = target.getCurrentBalance("acc-1", null, null, null, null)
+
+        then: "every call is scoped to the account"
+        1 * ledgerService.submitMovement("acc-1", 700L, Movement.MovementType.DEPOSIT, "Account deposit", null) >> CompletableFuture.completedFuture(new Movement(1L, Movement.MovementType.DEPOSIT, 700L, Instant.now(), "Account deposit", null))
+        2 * ledgerService.getVersion("acc-1") >> 1L
+        1 * ledgerService.getMovementHistory("acc-1", 5, 0) >> []
+        1 * ledgerService.getCurrentBalanceInCents("acc-1") >> 700L
+
+        and: "the results belong to the account"
+        recorded.id() == 1L
+        history.body.count() == 0
+        balance.body.balanceInCents() == 700L
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Record batch of transactions"() {
+        given: "a batch with a deposit and a replayed withdrawal"
+        def requests = [
+                new BatchTransactionRequest(1000L, "Batch deposit", "deposit", "key-1"),
+                new BatchTransactionRequest(500L, "Batch withdrawal", "WITHDRAWAL", "key-2")
+        ]
+
+        when: "the batch is recorded"
+        def result = target.recordTransactions(null, requests).join()
+
+        then: "the ledger service records all commands at once"
+        1 * ledgerService.submitMovements("default", [
+                new MovementCommand(1000L, Movement.MovementType.DEPOSIT, "Batch deposit", "key-1"),
+                new MovementCommand(500L, Movement.MovementType.WITHDRAWAL, "Batch withdrawal", "key-2")
+        ]) >> CompletableFuture.completedFuture([
+                new MovementResult(new Movement(3L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Batch deposit", "key-1"), false),
+                new MovementResult(new Movement(2L, Movement.MovementType.WITHDRAWAL, 500L, Instant.now(), "Batch withdrawal", "key-2"), true)
+        ])
+
+        and: "every item reports its result"
+        result.count() == 2
+        result.results()*.index() == [0, 1]
+        result.results()*.status() == [BatchTransactionResponse.Status.CREATED, BatchTransactionResponse.Status.REPLAYED]
+        result.results()*.transaction()*.id() == [3L, 2L]
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Record batch without a transaction type"() {
+        when: "a batch item has no type"
+        target.recordTransactions(null, [new BatchTransactionRequest(1000L, "No type", null, null)])
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == "Transaction type is required."
+
+        and: "no more interactions are present"
+        0 * _
+    }
 }
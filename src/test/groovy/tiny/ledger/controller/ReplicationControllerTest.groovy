@@ -0,0 +1,99 @@
+package tiny.ledger.controller
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import spock.lang.Specification
+import tiny.ledger.dto.ReplicaStatus
+import tiny.ledger.dto.ReplicationRecord
+import tiny.ledger.entity.Movement
+import tiny.ledger.service.LedgerService
+import tiny.ledger.service.ReplicationFollower
+
+import java.time.Instant
+
+class ReplicationControllerTest extends Specification {
+    def ledgerService = Mock(LedgerService)
+    def objectMapper = new ObjectMapper().findAndRegisterModules()
+
+    def target = new ReplicationController(ledgerService, objectMapper)
+
+    def "Replication log streams full movements up to the limit with the last sequence"() {
+        given:
+        def createdOn = Instant.parse("2025-01-15T10:30:00.123456789Z")
+        def movements = [new Movement(3L, Movement.MovementType.DEPOSIT, 500L, createdOn, "Third", "key-3"),
+                         new Movement(4L, Movement.MovementType.WITHDRAWAL, 200L, createdOn, null, null)]
+
+        when: "two movements are requested from sequence 3"
+        def response = target.getReplicationLog("acc-1", 3L, 2)
+        def output = new ByteArrayOutputStream()
+        response.body.writeTo(output)
+
+        then: "the range stops at the limit"
+        1 * ledgerService.getVersion("acc-1") >> 10L
+        1 * ledgerService.exportMovements("acc-1", 3L, 4L) >> movements.stream()
+        0 * _
+
+        and: "each line decodes back to the movement, idempotency key included"
+        response.headers.getContentType().toString() == "application/x-ndjson"
+        response.headers.getFirst(ReplicationFollower.LAST_SEQ_HEADER) == "10"
+        output.toString("UTF-8").readLines().collect { objectMapper.readValue(it, ReplicationRecord).toMovement() } == movements
+    }
+
+    def "Replication log past the last sequence is empty"() {
+        when:
+        def response = target.getReplicationLog(null, 8L, 1000)
+        def output = new ByteArrayOutputStream()
+        response.body.writeTo(output)
+
+        then:
+        1 * ledgerService.getVersion("default") >> 7L
+        1 * ledgerService.exportMovements("default", 8L, 7L) >> [].stream()
+        0 * _
+        response.headers.getFirst(ReplicationFollower.LAST_SEQ_HEADER) == "7"
+        output.size() == 0
+    }
+
+    def "Replication log with invalid parameters"() {
+        when:
+        target.getReplicationLog(null, fromSeq, limit)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid replication parameters: fromSeq must be >= 1 and limit between 1 and 10000."
+        0 * _
+
+        where:
+        fromSeq | limit
+        0L      | 10
+        1L      | 0
+        1L      | 10001
+    }
+
+    def "Replicated accounts are the open accounts"() {
+        when:
+        def accounts = target.getReplicatedAccounts()
+
+        then:
+        1 * ledgerService.getAccountIds() >> ["default", "acc-1"]
+        accounts == ["default", "acc-1"]
+    }
+
+    def "Replication status is only answered by replicas"() {
+        given:
+        def follower = Mock(ReplicationFollower)
+        def status = new ReplicaStatus("default", 5L, 7L, 2L, Instant.now(), null)
+
+        when: "a leader is asked"
+        target.getReplicationStatus()
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "This ledger is not a replica."
+
+        when: "a replica is asked"
+        def result = new ReplicationController(ledgerService, objectMapper, follower).getReplicationStatus()
+
+        then:
+        1 * follower.status() >> [status]
+        result == [status]
+    }
+}
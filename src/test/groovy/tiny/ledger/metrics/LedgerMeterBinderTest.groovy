@@ -0,0 +1,42 @@
+package tiny.ledger.metrics
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+import tiny.ledger.persistence.MovementJournal
+import tiny.ledger.repository.AccountLedger
+import tiny.ledger.repository.AccountLedgerRegistry
+import tiny.ledger.repository.LedgerRepositoryImpl
+
+import java.time.Instant
+
+class LedgerMeterBinderTest extends Specification {
+    def registry = new SimpleMeterRegistry()
+    def accountLedgers = new AccountLedgerRegistry(
+            new AccountLedger("default", new LedgerRepositoryImpl(), MovementJournal.DISABLED),
+            accountId -> new AccountLedger(accountId, new LedgerRepositoryImpl(), MovementJournal.DISABLED))
+
+    def "ledger size and idempotency counters are summed over accounts"() {
+        given:
+        new LedgerMeterBinder(accountLedgers).bindTo(registry)
+        def other = accountLedgers.open("acc-1").repository()
+        accountLedgers.get("default").repository().save(deposit("key-1"))
+        other.save(deposit("key-2"))
+        other.save(deposit(null))
+
+        when:
+        other.findIdByIdempotencyKey("key-2")
+        other.findIdByIdempotencyKey("key-3")
+
+        then:
+        registry.get("ledger.size").gauge().value() == 3d
+        registry.get("ledger.accounts").gauge().value() == 2d
+        registry.get("ledger.idempotency.lookups").tag("result", "hit").functionCounter().count() == 1d
+        registry.get("ledger.idempotency.lookups").tag("result", "miss").functionCounter().count() == 1d
+        registry.get("ledger.idempotency.keys").gauge().value() == 2d
+    }
+
+    private static Movement deposit(String key) {
+        new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), null, key)
+    }
+}
@@ -0,0 +1,50 @@
+package tiny.ledger.metrics
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class MicrometerLedgerMetricsTest extends Specification {
+    def registry = new SimpleMeterRegistry()
+    def metrics = new MicrometerLedgerMetrics(registry)
+
+    def "lock and save timings are recorded"() {
+        when:
+        metrics.recordLock(1_000L, 5_000L)
+        metrics.recordLock(3_000L, 7_000L)
+        metrics.recordSave(10, 20_000L)
+
+        then:
+        registry.get("ledger.lock.wait").timer().count() == 2L
+        registry.get("ledger.lock.wait").timer().totalTime(TimeUnit.NANOSECONDS) == 4_000d
+        registry.get("ledger.lock.hold").timer().max(TimeUnit.NANOSECONDS) == 7_000d
+        registry.get("ledger.save").timer().count() == 1L
+        registry.get("ledger.save.movements").summary().totalAmount() == 10d
+    }
+
+    def "history queries are split by page size"() {
+        when:
+        metrics.recordHistoryQuery(limit, 1_000L)
+
+        then:
+        registry.get("ledger.history").tag("page.size", pageSize).timer().count() == 1L
+
+        where:
+        limit | pageSize
+        1     | "1-10"
+        10    | "1-10"
+        11    | "11-100"
+        1000  | "101-1000"
+        5000  | "1001+"
+        null  | "all"
+    }
+
+    def "insufficient funds rejections are counted"() {
+        when:
+        3.times { metrics.insufficientFunds() }
+
+        then:
+        registry.get("ledger.rejections").tag("reason", "insufficient_funds").counter().count() == 3d
+    }
+}
@@ -0,0 +1,346 @@
+package tiny.ledger.persistence
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import spock.lang.Unroll
+import tiny.ledger.entity.Movement
+import tiny.ledger.repository.LedgerRepositoryImpl
+
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.FileLock
+import java.nio.channels.ReadableByteChannel
+import java.nio.channels.WritableByteChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.time.Duration
+import java.time.Instant
+
+class FileMovementJournalTest extends Specification {
+    @TempDir
+    Path directory
+
+    def "appended movements are replayed in order"() {
+        given:
+        def path = directory.resolve("ledger.journal")
+        def journal = open(path, FsyncPolicy.ALWAYS)
+        journal.replay {}
+        def createdOn = Instant.parse("2025-01-15T10:30:00.123456789Z")
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, createdOn, "Salary", "key-1"))
+        journal.append(new Movement(2L, Movement.MovementType.WITHDRAWAL, 300L, createdOn, null, null))
+        journal.close()
+
+        when:
+        def replayed = []
+        def reopened = open(path, FsyncPolicy.ALWAYS)
+        reopened.replay { replayed << it }
+        reopened.close()
+
+        then:
+        replayed.size() == 2
+        replayed[0] == new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, createdOn, "Salary", "key-1")
+        replayed[1] == new Movement(2L, Movement.MovementType.WITHDRAWAL, 300L, createdOn, null, null)
+    }
+
+    def "a torn batch is dropped as a whole"() {
+        given:
+        def path = directory.resolve("ledger.journal")
+        def journal = open(path, FsyncPolicy.OS)
+        journal.replay {}
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null))
+        def validSize = Files.size(path)
+        journal.append([
+                new Movement(2L, Movement.MovementType.DEPOSIT, 500L, Instant.now(), "Second", null),
+                new Movement(3L, Movement.MovementType.WITHDRAWAL, 200L, Instant.now(), "Third", null)
+        ])
+        journal.close()
+        def channel = FileChannel.open(path, StandardOpenOption.WRITE)
+        channel.truncate(Files.size(path) - 1)
+        channel.close()
+
+        when:
+        def replayed = []
+        def reopened = open(path, FsyncPolicy.OS)
+        reopened.replay { replayed << it.id() }
+        reopened.close()
+
+        then:
+        replayed == [1L]
+        Files.size(path) == validSize
+    }
+
+    def "a torn tail is truncated on replay"() {
+        given:
+        def path = directory.resolve("ledger.journal")
+        def journal = open(path, FsyncPolicy.OS)
+        journal.replay {}
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null))
+        journal.close()
+        def validSize = Files.size(path)
+        Files.write(path, [0, 0, 0, 42, 1, 2] as byte[], StandardOpenOption.APPEND)
+
+        when:
+        def replayed = []
+        def reopened = open(path, FsyncPolicy.OS)
+        reopened.replay { replayed << it }
+        reopened.append(new Movement(2L, Movement.MovementType.DEPOSIT, 500L, Instant.now(), "Second", null))
+        reopened.close()
+
+        and:
+        def afterRecovery = []
+        def again = open(path, FsyncPolicy.OS)
+        again.replay { afterRecovery << it }
+        again.close()
+
+        then:
+        replayed*.id() == [1L]
+        afterRecovery*.id() == [1L, 2L]
+        Files.size(path) > validSize
+    }
+
+    @Unroll
+    def "movements become durable with #policy fsync policy"() {
+        given:
+        def journal = open(directory.resolve("ledger.journal"), policy)
+        journal.replay {}
+
+        when:
+        (1..10).each {
+            journal.append(new Movement(it, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Deposit", null))
+        }
+        journal.awaitDurable(10L)
+        journal.close()
+
+        then:
+        noExceptionThrown()
+
+        where:
+        policy << FsyncPolicy.values()
+    }
+
+    def "repository restores movements, balance and idempotency keys from the journal"() {
+        given:
+        def path = directory.resolve("ledger.journal")
+        def journal = open(path, FsyncPolicy.GROUP)
+        def repository = new LedgerRepositoryImpl(journal)
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Deposit", "key-1"))
+        repository.save(new Movement(0L, Movement.MovementType.WITHDRAWAL, 400L, Instant.now(), "Withdrawal", null))
+        journal.close()
+
+        when:
+        def restored = new LedgerRepositoryImpl(open(path, FsyncPolicy.GROUP))
+
+        then:
+        restored.getCurrentBalanceInCents() == 600L
+        restored.findIdByIdempotencyKey("key-1") == Optional.of(1L)
+        restored.findMovements(null, null)*.id() == [2L, 1L]
+
+        and: "new movements continue the id sequence"
+        restored.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1L, Instant.now(), "Next", null)).id() == 3L
+    }
+
+    def "an existing journal rejects appends until it is replayed"() {
+        given:
+        def path = directory.resolve("ledger.journal")
+        def journal = open(path, FsyncPolicy.OS)
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null))
+        journal.close()
+        def reopened = open(path, FsyncPolicy.OS)
+
+        when: "appending straight away"
+        reopened.append(new Movement(2L, Movement.MovementType.DEPOSIT, 500L, Instant.now(), "Second", null))
+
+        then: "the first record is not overwritten"
+        def e = thrown(IllegalStateException)
+        e.message == "Journal " + path + " must be replayed before anything is appended."
+
+        when: "appending after the replay"
+        reopened.replay {}
+        reopened.append(new Movement(2L, Movement.MovementType.DEPOSIT, 500L, Instant.now(), "Second", null))
+        reopened.close()
+        def replayed = []
+        def last = open(path, FsyncPolicy.OS)
+        last.replay { replayed << it.id() }
+        last.close()
+
+        then:
+        replayed == [1L, 2L]
+    }
+
+    def "a record that fails midway is cut off so later records stay replayable"() {
+        given: "a journal whose second record is torn by a failing write"
+        def path = directory.resolve("ledger.journal")
+        def channel = new FaultyChannel(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        def journal = new FileMovementJournal(path, channel, FsyncPolicy.OS, Duration.ZERO, 4)
+        journal.replay {}
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null))
+        channel.writesBeforeFailure = 10
+
+        when:
+        journal.append(new Movement(2L, Movement.MovementType.DEPOSIT, 500L, Instant.now(), "Torn", null))
+
+        then:
+        thrown(UncheckedIOException)
+
+        when: "the next append succeeds"
+        channel.writesBeforeFailure = Integer.MAX_VALUE
+        journal.append(new Movement(2L, Movement.MovementType.DEPOSIT, 700L, Instant.now(), "Second", null))
+        journal.close()
+        def replayed = []
+        def reopened = open(path, FsyncPolicy.OS)
+        reopened.replay { replayed << it }
+        reopened.close()
+
+        then: "it is replayed after the first one"
+        replayed*.id() == [1L, 2L]
+        replayed*.amountInCents() == [1000L, 700L]
+    }
+
+    def "a journal that cannot cut off a torn record rejects later appends"() {
+        given:
+        def path = directory.resolve("ledger.journal")
+        def channel = new FaultyChannel(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        def journal = new FileMovementJournal(path, channel, FsyncPolicy.OS, Duration.ZERO, 4)
+        journal.replay {}
+        channel.writesBeforeFailure = 10
+        channel.failTruncate = true
+
+        when:
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Torn", null))
+
+        then:
+        thrown(UncheckedIOException)
+
+        when:
+        channel.writesBeforeFailure = Integer.MAX_VALUE
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Retry", null))
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.message == "Journal " + path + " has failed and accepts no further movements"
+    }
+
+    def "writers waiting for a group fsync get the error once it keeps failing"() {
+        given:
+        def path = directory.resolve("ledger.journal")
+        def channel = new FaultyChannel(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        channel.failForce = true
+        def journal = new FileMovementJournal(path, channel, FsyncPolicy.GROUP, Duration.ZERO, 4)
+        journal.replay {}
+        journal.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Deposit", null))
+
+        when:
+        journal.awaitDurable(1L)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.message == "force failed"
+        channel.forces == 5
+
+        when:
+        journal.append(new Movement(2L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Deposit", null))
+
+        then:
+        thrown(UncheckedIOException)
+
+        cleanup:
+        journal.close()
+    }
+
+    private static FileMovementJournal open(Path path, FsyncPolicy policy) {
+        new FileMovementJournal(path, policy, Duration.ofMillis(1), 4)
+    }
+
+    /**
+     * Delegates to a real channel, failing writes after a number of bytes and forces or truncations on demand.
+     */
+    static class FaultyChannel extends FileChannel {
+        final FileChannel delegate
+        volatile int writesBeforeFailure = Integer.MAX_VALUE
+        volatile boolean failForce
+        volatile boolean failTruncate
+        volatile int forces
+        volatile long forcedSize
+
+        FaultyChannel(FileChannel delegate) {
+            this.delegate = delegate
+        }
+
+        @Override
+        int write(ByteBuffer src) throws IOException {
+            if (src.remaining() > writesBeforeFailure) {
+                def partial = src.duplicate().limit(src.position() + writesBeforeFailure)
+                delegate.write(partial)
+                src.position(partial.position())
+                throw new IOException("write failed")
+            }
+            delegate.write(src)
+        }
+
+        @Override
+        void force(boolean metaData) throws IOException {
+            forces++
+            if (failForce) {
+                throw new IOException("force failed")
+            }
+            delegate.force(metaData)
+            forcedSize = delegate.size()
+        }
+
+        @Override
+        FileChannel truncate(long size) throws IOException {
+            if (failTruncate) {
+                throw new IOException("truncate failed")
+            }
+            delegate.truncate(size)
+            this
+        }
+
+        @Override
+        int read(ByteBuffer dst) throws IOException { delegate.read(dst) }
+
+        @Override
+        long read(ByteBuffer[] dsts, int offset, int length) throws IOException { delegate.read(dsts, offset, length) }
+
+        @Override
+        long write(ByteBuffer[] srcs, int offset, int length) throws IOException { delegate.write(srcs, offset, length) }
+
+        @Override
+        long position() throws IOException { delegate.position() }
+
+        @Override
+        FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition)
+            this
+        }
+
+        @Override
+        long size() throws IOException { delegate.size() }
+
+        @Override
+        long transferTo(long position, long count, WritableByteChannel target) throws IOException { delegate.transferTo(position, count, target) }
+
+        @Override
+        long transferFrom(ReadableByteChannel src, long position, long count) throws IOException { delegate.transferFrom(src, position, count) }
+
+        @Override
+        int read(ByteBuffer dst, long position) throws IOException { delegate.read(dst, position) }
+
+        @Override
+        int write(ByteBuffer src, long position) throws IOException { delegate.write(src, position) }
+
+        @Override
+        MappedByteBuffer map(FileChannel.MapMode mode, long position, long size) throws IOException { delegate.map(mode, position, size) }
+
+        @Override
+        FileLock lock(long position, long size, boolean shared) throws IOException { delegate.lock(position, size, shared) }
+
+        @Override
+        FileLock tryLock(long position, long size, boolean shared) throws IOException { delegate.tryLock(position, size, shared) }
+
+        @Override
+        protected void implCloseChannel() throws IOException { delegate.close() }
+    }
+}
@@ -0,0 +1,126 @@
+package tiny.ledger.persistence
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import tiny.ledger.entity.Movement
+import tiny.ledger.repository.LedgerRepositoryImpl
+
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.time.Duration
+import java.time.Instant
+
+class MappedSnapshotStoreTest extends Specification {
+    @TempDir
+    Path directory
+
+    def "snapshot round trips movements and head"() {
+        given:
+        def store = new MappedSnapshotStore(directory, 2)
+        def createdOn = Instant.parse("2025-01-15T10:30:00Z")
+        def movements = [
+                new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, createdOn, "Salary", "key-1"),
+                new Movement(2L, Movement.MovementType.WITHDRAWAL, 250L, createdOn, null, null),
+                new Movement(3L, Movement.MovementType.DEPOSIT, 10L, createdOn, "Not yet committed", "key-3")
+        ]
+
+        when:
+        store.write(new SnapshotHeader(2L, 750L, 128L), { long id -> movements[(int) id - 1] })
+
+        and:
+        def loaded = []
+        def header = store.loadLatest({ loaded << it })
+
+        then:
+        header.get() == new SnapshotHeader(2L, 750L, 128L)
+        loaded == movements.take(2)
+    }
+
+    def "incomplete snapshots are skipped and old ones are pruned"() {
+        given:
+        def store = new MappedSnapshotStore(directory, 2)
+        def movement = { long id -> new Movement(id, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Deposit", null) }
+        (1L..3L).each { store.write(new SnapshotHeader(it, it * 100L, 0L), movement) }
+        Files.write(directory.resolve("snapshot-9.snap"), new byte[64])
+
+        when:
+        def header = store.loadLatest({})
+
+        then:
+        header.get().lastId() == 3L
+        !Files.exists(directory.resolve("snapshot-1.snap"))
+        Files.exists(directory.resolve("snapshot-2.snap"))
+    }
+
+    def "repository restores from the latest snapshot and replays only the journal tail"() {
+        given:
+        def journalPath = directory.resolve("ledger.journal")
+        def snapshots = new MappedSnapshotStore(directory.resolve("snapshots"), 2)
+        def journal = new FileMovementJournal(journalPath, FsyncPolicy.OS, Duration.ZERO, 1)
+        def repository = new LedgerRepositoryImpl(journal, snapshots)
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "Before snapshot", "key-1"))
+        repository.save(new Movement(0L, Movement.MovementType.WITHDRAWAL, 300L, Instant.now(), "Before snapshot", null))
+        repository.writeSnapshot()
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 50L, Instant.now(), "After snapshot", "key-3"))
+        journal.close()
+
+        when:
+        def replayed = []
+        def tailJournal = new FileMovementJournal(journalPath, FsyncPolicy.OS, Duration.ZERO, 1) {
+            @Override
+            void replay(long fromOffset, java.util.function.Consumer<Movement> consumer) {
+                super.replay(fromOffset, { replayed << it.id(); consumer.accept(it) })
+            }
+        }
+        def restored = new LedgerRepositoryImpl(tailJournal, snapshots)
+
+        then: "replay starts at the last record the snapshot already covers"
+        replayed == [2L, 3L]
+        restored.getCurrentBalanceInCents() == 750L
+        restored.findIdByIdempotencyKey("key-1") == Optional.of(1L)
+        restored.findIdByIdempotencyKey("key-3") == Optional.of(3L)
+        restored.findMovements(null, null)*.id() == [3L, 2L, 1L]
+
+        cleanup:
+        tailJournal?.close()
+    }
+
+    def "a snapshot only points into the journal that survives a crash with #policy fsync policy"() {
+        given: "a snapshot followed by a movement that is never forced"
+        def journalPath = directory.resolve("ledger.journal")
+        def snapshots = new MappedSnapshotStore(directory.resolve("snapshots"), 2)
+        def channel = new FileMovementJournalTest.FaultyChannel(
+                FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        def journal = new FileMovementJournal(journalPath, channel, policy, Duration.ofHours(1), Integer.MAX_VALUE)
+        def repository = new LedgerRepositoryImpl(journal, snapshots)
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null))
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 200L, Instant.now(), "Second", null))
+        repository.writeSnapshot()
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 30L, Instant.now(), "Lost", null))
+
+        when: "the crash loses everything past the last force"
+        FileChannel.open(journalPath, StandardOpenOption.WRITE).withCloseable { it.truncate(channel.forcedSize) }
+        journal.close()
+        def restarted = new FileMovementJournal(journalPath, FsyncPolicy.OS, Duration.ZERO, 1)
+        def restored = new LedgerRepositoryImpl(restarted, snapshots)
+        restored.save(new Movement(0L, Movement.MovementType.DEPOSIT, 4L, Instant.now(), "After restart", null))
+        restarted.close()
+
+        and: "the ledger restarts once more"
+        def reopened = new FileMovementJournal(journalPath, FsyncPolicy.OS, Duration.ZERO, 1)
+        def again = new LedgerRepositoryImpl(reopened, snapshots)
+
+        then: "the movement written after the first restart is kept"
+        restored.getLastId() == 3L
+        again.findMovements(null, null)*.description() == ["After restart", "Second", "First"]
+        again.getCurrentBalanceInCents() == 1204L
+
+        cleanup:
+        reopened?.close()
+
+        where:
+        policy << [FsyncPolicy.OS, FsyncPolicy.GROUP]
+    }
+}
@@ -0,0 +1,54 @@
+package tiny.ledger.persistence
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import tiny.ledger.entity.Movement
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Instant
+
+class SegmentFileTest extends Specification {
+    @TempDir
+    Path directory
+
+    def "blocks read back the movements exactly as they were written"() {
+        given: "a segment ending in a partial block"
+        def createdOn = Instant.parse("2025-01-15T10:30:00.123456789Z")
+        def movements = (101L..700L).collect {
+            new Movement(it, it % 3 == 0 ? Movement.MovementType.WITHDRAWAL : Movement.MovementType.DEPOSIT, it * 10L,
+                         createdOn.plusMillis(it), it % 7 == 0 ? null : "Card payment ключ-€-😀 $it", it % 5 == 0 ? "key-$it" : null)
+        } as Movement[]
+
+        when:
+        def segment = SegmentFile.write(directory.resolve("segment"), movements, [1, 2, 3] as byte[])
+
+        then:
+        segment.firstId() == 101L
+        segment.count() == 600
+        segment.blocks() == 3
+        (0..2).collectMany { segment.readBlock(it) as List } == movements as List
+        segment.readBlock(2).length == 600 - 2 * SegmentFile.BLOCK_SIZE
+        segment.readPostings() == [1, 2, 3] as byte[]
+
+        and: "the file is compressed and no temporary file is left behind"
+        Files.size(segment.path()) < movements.sum { MovementCodec.encodedSize(it) } / 3
+        Files.list(directory).count() == 1
+    }
+
+    def "a damaged block is reported as an I/O error"() {
+        given:
+        def movements = (1L..10L).collect { new Movement(it, Movement.MovementType.DEPOSIT, 1L, Instant.now(), "Deposit", null) } as Movement[]
+        def segment = SegmentFile.write(directory.resolve("segment"), movements, new byte[0])
+        def bytes = Files.readAllBytes(segment.path())
+        // Past the header, the block offset and the block lengths.
+        (60..<bytes.length).each { bytes[it] = (byte) 0x55 }
+        Files.write(segment.path(), bytes)
+
+        when:
+        segment.readBlock(0)
+
+        then:
+        thrown(IOException)
+    }
+}
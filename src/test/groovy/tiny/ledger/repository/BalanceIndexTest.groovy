@@ -0,0 +1,94 @@
+package tiny.ledger.repository
+
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+
+import java.time.Duration
+import java.time.Instant
+
+class BalanceIndexTest extends Specification {
+    def store = new HeapMovementStore()
+    def index = new BalanceIndex()
+    def start = Instant.parse("2025-01-15T10:00:00Z")
+
+    def "balances at every id match a running sum"() {
+        given:
+        def movements = record(500)
+        def expected = runningBalances(movements)
+
+        expect:
+        (0L..500L).every { index.balanceAtId(it, store) == expected[(int) it] }
+    }
+
+    def "balances as of an instant include every movement created up to it"() {
+        given: "a movement every second"
+        def movements = record(500)
+        def expected = runningBalances(movements)
+
+        expect:
+        index.balanceAsOf(start.minusSeconds(1), 500L, store) == 0L
+        (0..499).every { index.balanceAsOf(start.plusSeconds(it), 500L, store) == expected[it + 1] }
+        index.balanceAsOf(start.plusMillis(130_500), 500L, store) == expected[131]
+        index.balanceAsOf(Instant.MAX, 500L, store) == expected[500]
+        index.balanceAsOf(Instant.MIN, 500L, store) == 0L
+    }
+
+    def "ids as of an instant locate the last movement created up to it"() {
+        given: "a movement every second"
+        record(500)
+
+        expect:
+        index.idAsOf(start.minusSeconds(1), 500L, store) == 0L
+        index.idAsOf(start, 500L, store) == 1L
+        index.idAsOf(start.plusMillis(130_500), 500L, store) == 131L
+        index.idAsOf(Instant.MAX, 500L, store) == 500L
+        index.idAsOf(Instant.MAX, 130L, store) == 130L
+    }
+
+    def "movements beyond the last committed id are ignored"() {
+        given:
+        def movements = record(200)
+        def expected = runningBalances(movements)
+
+        expect:
+        index.balanceAsOf(Instant.MAX, 130L, store) == expected[130]
+        index.balanceAsOf(Instant.MAX, 10L, store) == expected[10]
+    }
+
+    def "a clock stepping backwards does not hide later movements"() {
+        given: "the clock jumps back a minute after the 100th movement"
+        def movements = (1L..200L).collect { id ->
+            def createdOn = id <= 100 ? start.plusSeconds(id) : start.plusSeconds(id - 60)
+            new Movement(id, Movement.MovementType.DEPOSIT, 1L, createdOn, null, null)
+        }
+        movements.each { store.append(it); index.append(it) }
+
+        expect: "movements are placed at the latest time seen up to them"
+        index.balanceAsOf(start.plusSeconds(99), 200L, store) == 99L
+        index.balanceAsOf(start.plusSeconds(100), 200L, store) == 160L
+        index.balanceAsOf(start.plusSeconds(101), 200L, store) == 161L
+    }
+
+    private List<Movement> record(int count) {
+        def random = new Random(42)
+        (1L..count).collect { id ->
+            def movement = new Movement(id,
+                                        random.nextBoolean() ? Movement.MovementType.DEPOSIT : Movement.MovementType.WITHDRAWAL,
+                                        random.nextInt(1000) + 1,
+                                        start.plus(Duration.ofSeconds(id - 1)),
+                                        null,
+                                        null)
+            store.append(movement)
+            index.append(movement)
+            movement
+        }
+    }
+
+    private static List<Long> runningBalances(List<Movement> movements) {
+        def balances = [0L]
+        movements.each {
+            balances << balances.last() + (it.type() == Movement.MovementType.DEPOSIT ? it.amountInCents() : -it.amountInCents())
+        }
+        balances
+    }
+}
@@ -0,0 +1,65 @@
+package tiny.ledger.repository
+
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+
+import java.time.Instant
+
+class ColumnarMovementStoreTest extends Specification {
+    def store = new ColumnarMovementStore()
+
+    def "movements are materialized exactly as they were appended"() {
+        given:
+        def movements = [
+                new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.parse("2025-01-15T10:30:00.123456789Z"), "Salary", "key-1"),
+                new Movement(2L, Movement.MovementType.WITHDRAWAL, 250L, Instant.parse("1969-12-31T23:59:59.5Z"), null, null),
+                new Movement(3L, Movement.MovementType.DEPOSIT, 1L, Instant.parse("2025-01-15T10:30:00Z"), "", "ключ-€-😀"),
+                new Movement(4L, Movement.MovementType.WITHDRAWAL, Long.MAX_VALUE, Instant.parse("2025-01-15T10:30:00Z"), "x" * 300, null)
+        ]
+
+        when:
+        movements.each { store.append(it) }
+
+        then:
+        (1L..4L).collect { store.get(it) } == movements
+        store.get(0L) == null
+        store.get(5L) == null
+        store.newestFirst(4L, 2L)*.id() == [3L, 2L]
+    }
+
+    def "movements spanning many chunks and arena pages are all readable"() {
+        given: "more movements than one chunk holds and more bytes than one arena page"
+        def count = 20_000
+        (1..count).each {
+            store.append(new Movement(it, Movement.MovementType.DEPOSIT, it, Instant.now(), "Deposit number " + it + " " + "-" * 64, "key-" + it))
+        }
+
+        expect:
+        store.size() == count
+        (1..count).every { store.get(it).idempotencyKey() == "key-" + it }
+        store.get(count).description().startsWith("Deposit number " + count)
+    }
+
+    def "values larger than an arena page get their own page"() {
+        given:
+        def large = "a" * (3 << 20)
+        store.append(new Movement(1L, Movement.MovementType.DEPOSIT, 1L, Instant.now(), "Before", "before"))
+        store.append(new Movement(2L, Movement.MovementType.DEPOSIT, 1L, Instant.now(), large, "large"))
+        store.append(new Movement(3L, Movement.MovementType.DEPOSIT, 1L, Instant.now(), "After", "after"))
+
+        expect:
+        store.get(1L).description() == "Before"
+        store.get(2L).description() == large
+        store.get(3L).description() == "After"
+        store.get(2L).idempotencyKey() == "large"
+    }
+
+    def "out of sequence ids are rejected"() {
+        when:
+        store.append(new Movement(2L, Movement.MovementType.DEPOSIT, 1L, Instant.now(), null, null))
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "Movement id 2 is out of sequence, expected 1"
+    }
+}
@@ -0,0 +1,138 @@
+package tiny.ledger.repository
+
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+class IdempotencyKeyStoreTest extends Specification {
+    def clock = new MutableClock(Instant.parse("2025-01-15T10:00:00Z"))
+    def store = new IdempotencyKeyStore(Duration.ofMinutes(10), 1000, clock)
+
+    def "keys are found within the retention window and counted"() {
+        given:
+        store.put("key-1", 1L, clock.instant())
+
+        expect:
+        store.find("key-1") == 1L
+        store.find("key-2") == 0L
+        store.stats() == new IdempotencyStats(1L, 1L, 0L, 1L)
+    }
+
+    def "expired keys are missed and evicted by later puts"() {
+        given:
+        (1..10).each { store.put("old-" + it, it, clock.instant()) }
+        clock.advance(Duration.ofMinutes(11))
+
+        when:
+        def found = store.find("old-1")
+
+        then: "an expired key is a miss even before it is evicted"
+        found == 0L
+        store.stats().size() == 10L
+
+        when:
+        store.put("new-1", 11L, clock.instant())
+
+        then: "each put evicts only a few expired keys"
+        store.stats().evictions() == 4L
+        store.stats().size() == 7L
+
+        when:
+        (2..3).each { store.put("new-" + it, 10L + it, clock.instant()) }
+
+        then:
+        store.stats().evictions() == 10L
+        store.stats().size() == 3L
+        store.find("new-1") == 11L
+    }
+
+    def "the oldest key is evicted when the store is full"() {
+        given:
+        def bounded = new IdempotencyKeyStore(Duration.ofMinutes(10), 100, clock)
+
+        when:
+        (1..150).each { bounded.put("key-" + it, it, clock.instant()) }
+
+        then:
+        bounded.stats().size() == 100L
+        bounded.stats().evictions() == 50L
+        (1..50).every { bounded.find("key-" + it) == 0L }
+        (51..150).every { bounded.find("key-" + it) == it }
+    }
+
+    def "keys are found after the store grows and entries are deleted"() {
+        given:
+        def large = new IdempotencyKeyStore(Duration.ofMinutes(10), 10_000, clock)
+
+        when: "many keys are stored while the oldest keep expiring"
+        (1..5000).each {
+            large.put("key-" + it, it, clock.instant())
+            clock.advance(Duration.ofMillis(250))
+        }
+
+        then: "only keys from the last ten minutes remain, all reachable"
+        def retained = (1..5000).findAll { large.find("key-" + it) == it }
+        retained == (2601..5000).toList()
+    }
+
+    def "a key recorded again after expiring points at its new movement"() {
+        given:
+        store.put("key-1", 1L, clock.instant())
+        clock.advance(Duration.ofMinutes(11))
+
+        when:
+        store.put("key-1", 2L, clock.instant())
+        clock.advance(Duration.ofMinutes(5))
+        store.put("key-2", 3L, clock.instant())
+
+        then:
+        store.find("key-1") == 2L
+    }
+
+    def "keys older than the retention window are not restored"() {
+        when:
+        store.put("replayed", 1L, clock.instant().minus(Duration.ofHours(1)))
+
+        then:
+        store.stats().size() == 0L
+        store.find("replayed") == 0L
+    }
+
+    def "keys are reduced to their MurmurHash3 x64 128-bit hash"() {
+        expect:
+        IdempotencyKeyStore.murmur3("hello".getBytes(StandardCharsets.UTF_8)) == [0xcbd8a7b341bd9b02L, 0x5b1e906a48ae1d19L] as long[]
+        IdempotencyKeyStore.murmur3("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8)) == [0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L] as long[]
+    }
+
+    static class MutableClock extends Clock {
+        Instant now
+
+        MutableClock(Instant now) {
+            this.now = now
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration)
+        }
+
+        @Override
+        ZoneId getZone() {
+            ZoneOffset.UTC
+        }
+
+        @Override
+        Clock withZone(ZoneId zone) {
+            this
+        }
+
+        @Override
+        Instant instant() {
+            now
+        }
+    }
+}
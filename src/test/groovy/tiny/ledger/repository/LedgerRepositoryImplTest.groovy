@@ -2,8 +2,18 @@ package tiny.ledger.repository
 
 import spock.lang.Specification
 import tiny.ledger.entity.Movement
+import tiny.ledger.metrics.LedgerMetrics
+import tiny.ledger.persistence.MovementJournal
+import tiny.ledger.persistence.SnapshotStore
+
+import java.nio.file.Files
 
 import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
 
 class LedgerRepositoryImplTest extends Specification {
     def repository = new LedgerRepositoryImpl()
@@ -54,6 +64,152 @@ class LedgerRepositoryImplTest extends Specification {
         savedMovement.idempotencyKey() == null
     }
 
+    def "save all assigns consecutive ids and updates the balance once"() {
+        given:
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null))
+
+        when:
+        def saved = repository.saveAll([
+                new Movement(0L, Movement.MovementType.DEPOSIT, 500L, Instant.now(), "Second", "key-2"),
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 200L, Instant.now(), "Third", null)
+        ])
+
+        then:
+        saved*.id() == [2L, 3L]
+        repository.getCurrentBalanceInCents() == 1300L
+        repository.findIdByIdempotencyKey("key-2") == Optional.of(2L)
+    }
+
+    def "commit all assigns ids, replays known keys and resolves repeated keys"() {
+        given:
+        repository.commitAll([new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", "key-1")])
+
+        when:
+        def results = repository.commitAll([
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 300L, Instant.now(), "Second", "key-2"),
+                new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", "key-1"),
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 300L, Instant.now(), "Second", "key-2"),
+                new Movement(0L, Movement.MovementType.DEPOSIT, 50L, Instant.now(), "Third", null)
+        ])
+
+        then:
+        results*.movement()*.id() == [2L, 1L, 2L, 3L]
+        results*.replayed() == [false, true, true, false]
+        repository.getCurrentBalanceInCents() == 750L
+        repository.findIdByIdempotencyKey("key-2") == Optional.of(2L)
+    }
+
+    def "commit all rejects an overdraft without committing anything"() {
+        given:
+        repository.commitAll([new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null)])
+
+        when:
+        repository.commitAll([
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 600L, Instant.now(), "Second", "key-2"),
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 600L, Instant.now(), "Third", null)
+        ])
+
+        then:
+        def e = thrown(InsufficientFundsException)
+        e.index() == 1
+        repository.getLastId() == 1L
+        repository.getCurrentBalanceInCents() == 1000L
+        repository.findIdByIdempotencyKey("key-2").isEmpty()
+
+        and: "the key's claim was released"
+        repository.commitAll([new Movement(0L, Movement.MovementType.WITHDRAWAL, 600L, Instant.now(), "Second", "key-2")])*.replayed() == [false]
+    }
+
+    def "concurrent commits never overdraw and never record a key twice"() {
+        given: "threads racing deposits and withdrawals over a small set of shared keys"
+        def threads = 8
+        def commitsPerThread = 2_000
+        def pool = Executors.newFixedThreadPool(threads)
+        def start = new CountDownLatch(1)
+        def idsByKey = new ConcurrentHashMap<String, Set<Long>>()
+        def rejected = Collections.synchronizedList([])
+
+        when:
+        def futures = (1..threads).collect {
+            pool.submit {
+                start.await()
+                def random = ThreadLocalRandom.current()
+                commitsPerThread.times {
+                    def key = random.nextInt(4) == 0 ? null : "key-" + random.nextInt(2_000)
+                    def type = random.nextBoolean() ? Movement.MovementType.DEPOSIT : Movement.MovementType.WITHDRAWAL
+                    def batch = (1..random.nextInt(1, 4)).collect {
+                        new Movement(0L, type, random.nextLong(1L, 1_000L), Instant.now(), "Stress", key)
+                    }
+                    try {
+                        def results = repository.commitAll(batch)
+                        if (key != null) {
+                            idsByKey.computeIfAbsent(key, { ConcurrentHashMap.newKeySet() }).addAll(results*.movement()*.id())
+                        }
+                    } catch (InsufficientFundsException e) {
+                        rejected << e
+                    }
+                }
+            }
+        }
+        start.countDown()
+        futures*.get(60, TimeUnit.SECONDS)
+        pool.shutdown()
+
+        then: "every key maps to the single movement recorded for it"
+        idsByKey.every { key, ids -> ids.size() == 1 && repository.findIdByIdempotencyKey(key) == Optional.of(ids.first()) }
+        def movements = repository.streamMovements(1L, Long.MAX_VALUE).toList()
+        def keyed = movements.findAll { it.idempotencyKey() != null }
+        keyed*.idempotencyKey().toSet().size() == keyed.size()
+
+        and: "ids are dense and the running balance never drops below zero"
+        movements*.id() == (1L..repository.getLastId()).toList()
+        def balance = 0L
+        movements.every { movement ->
+            balance += movement.type() == Movement.MovementType.DEPOSIT ? movement.amountInCents() : -movement.amountInCents()
+            balance >= 0L
+        }
+        balance == repository.getCurrentBalanceInCents()
+        !rejected.isEmpty()
+    }
+
+    def "balance at a past id or instant"() {
+        given:
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null))
+        repository.save(new Movement(0L, Movement.MovementType.WITHDRAWAL, 300L, Instant.now(), "Second", null))
+
+        expect:
+        repository.getBalanceInCentsAtId(0L) == 0L
+        repository.getBalanceInCentsAtId(1L) == 1000L
+        repository.getBalanceInCentsAtId(2L) == 700L
+        repository.getBalanceInCentsAsOf(Instant.now()) == 700L
+        repository.getBalanceInCentsAsOf(Instant.now().minusSeconds(60)) == 0L
+    }
+
+    def "balance at an unknown id is rejected"() {
+        when:
+        repository.getBalanceInCentsAtId(1L)
+
+        then:
+        def e = thrown(TransactionNotFoundException)
+        e.message == "Transaction not found: 1"
+    }
+
+    def "saved movements are rolled up into aggregates"() {
+        given:
+        repository.saveAll([new Movement(0L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), "First", null),
+                            new Movement(0L, Movement.MovementType.DEPOSIT, 500L, Instant.now(), "Second", null)])
+        repository.save(new Movement(0L, Movement.MovementType.WITHDRAWAL, 300L, Instant.now(), "Third", null))
+
+        when:
+        def buckets = repository.findAggregates(AggregateGranularity.DAY, Instant.now().minusSeconds(86_400), Instant.now())
+
+        then:
+        buckets.sum { it.depositCount() } == 2L
+        buckets.sum { it.depositsInCents() } == 1500L
+        buckets.sum { it.withdrawalCount() } == 1L
+        buckets.sum { it.withdrawalsInCents() } == 300L
+    }
+
     def "find movements sorted by creation time descending"() {
         given:
         def now = Instant.now()
@@ -90,6 +246,152 @@ class LedgerRepositoryImplTest extends Specification {
         movements.size() == 2
     }
 
+    def "find movements with pagination returns newest first"() {
+        given:
+        5.times { i ->
+            repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1000L,
+                    Instant.now(), "Movement ${i}", null))
+        }
+
+        when:
+        def movements = repository.findMovements(2, 1)
+
+        then:
+        movements*.id() == [4L, 3L]
+    }
+
+    def "replicate keeps the leader's ids and timestamps and skips movements already applied"() {
+        given:
+        def createdOn = Instant.now().minusSeconds(60)
+        def first = new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, createdOn, "Salary", "key-1")
+        def second = new Movement(2L, Movement.MovementType.WITHDRAWAL, 300L, createdOn.plusSeconds(1), "Rent", null)
+        def notified = []
+        repository.addCommitListener { notified << it }
+
+        when:
+        def applied = repository.replicate([first])
+        def again = repository.replicate([first, second])
+
+        then:
+        applied == [first]
+        again == [second]
+        repository.findById(2L).get() == second
+        repository.getCurrentBalanceInCents() == 700L
+        repository.findIdByIdempotencyKey("key-1") == Optional.of(1L)
+        repository.getBalanceInCentsAsOf(createdOn) == 1000L
+        notified == [1L, 2L]
+
+        and: "local writes carry on after the replicated ids"
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1L, Instant.now(), null, null)).id() == 3L
+    }
+
+    def "replicate rejects a gap in the sequence"() {
+        given:
+        repository.replicate([new Movement(1L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), null, null)])
+
+        when:
+        repository.replicate([new Movement(3L, Movement.MovementType.DEPOSIT, 1000L, Instant.now(), null, null)])
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "Replication gap: expected movement 2 but got 3."
+        repository.getLastId() == 1L
+    }
+
+    def "tiered storage serves history and filters from sealed segments"() {
+        given: "a ledger keeping a single segment hot"
+        def directory = Files.createTempDirectory("segments")
+        def tiered = new LedgerRepositoryImpl(StorageLayout.HEAP, new IdempotencyKeyStore(), MovementJournal.DISABLED, SnapshotStore.DISABLED,
+                                              LedgerMetrics.NOOP, new Tiering(TieredMovementStore.SEGMENT_SIZE, null, 8, Runnable::run), directory)
+        def total = 3 * TieredMovementStore.SEGMENT_SIZE
+        (0..<total).collate(1000).each { ids ->
+            tiered.saveAll(ids.collect { new Movement(0L, it % 2 == 0 ? Movement.MovementType.DEPOSIT : Movement.MovementType.WITHDRAWAL,
+                                                      1L, Instant.now(), "Movement $it", null) })
+        }
+
+        expect: "all but the newest segment were sealed"
+        Files.list(directory).count() == 2
+        tiered.findById(1L).get().description() == "Movement 0"
+        tiered.findMovements(3, total - 3)*.id() == [3L, 2L, 1L]
+        tiered.findMovements(new MovementFilter(Movement.MovementType.WITHDRAWAL, null, null, null, null, null), 5L, 2)*.id() == [4L, 2L]
+        tiered.streamMovements(1L, total).count() == total
+
+        cleanup:
+        directory.toFile().deleteDir()
+    }
+
+    def "tiered storage only supports the heap layout"() {
+        when:
+        new LedgerRepositoryImpl(StorageLayout.COLUMNAR, new IdempotencyKeyStore(), MovementJournal.DISABLED, SnapshotStore.DISABLED,
+                                 LedgerMetrics.NOOP, new Tiering(1000, null, 8, Runnable::run), Files.createTempDirectory("segments"))
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Tiered storage keeps recent movements in the HEAP layout."
+    }
+
+    def "find movements older than a cursor id"() {
+        given:
+        5.times { i ->
+            repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 1000L,
+                    Instant.now(), "Movement ${i}", null))
+        }
+
+        expect:
+        repository.findMovementsOlderThan(4L, 2)*.id() == [3L, 2L]
+        repository.findMovementsOlderThan(2L, 10)*.id() == [1L]
+        repository.findMovementsOlderThan(1L, 10).isEmpty()
+        repository.findMovementsOlderThan(Long.MAX_VALUE, null)*.id() == [5L, 4L, 3L, 2L, 1L]
+    }
+
+    def "find movements matching a filter"() {
+        given:
+        def now = Instant.now()
+        repository.saveAll([
+                new Movement(0L, Movement.MovementType.DEPOSIT, 10_000L, now, "Salary", null),
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 200L, now, "Coffee", null),
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 3_000L, now, "Rent, invoice INV-17", null),
+                new Movement(0L, Movement.MovementType.DEPOSIT, 500L, now, "Refund of inv-17", null),
+                new Movement(0L, Movement.MovementType.WITHDRAWAL, 4_000L, now, "Car", null)
+        ])
+
+        expect:
+        repository.findMovements(new MovementFilter(Movement.MovementType.WITHDRAWAL, 1_000L, null, null, null, null), Long.MAX_VALUE, null)*.id() == [5L, 3L]
+        repository.findMovements(new MovementFilter(null, null, null, null, null, "INV-17"), Long.MAX_VALUE, null)*.id() == [4L, 3L]
+        repository.findMovements(new MovementFilter(Movement.MovementType.DEPOSIT, null, 1_000L, null, null, "inv-17"), Long.MAX_VALUE, null)*.id() == [4L]
+        repository.findMovements(new MovementFilter(null, null, null, null, null, "unknown"), Long.MAX_VALUE, null).isEmpty()
+
+        and: "pages continue below a cursor id"
+        repository.findMovements(new MovementFilter(Movement.MovementType.WITHDRAWAL, null, null, null, null, null), Long.MAX_VALUE, 2)*.id() == [5L, 3L]
+        repository.findMovements(new MovementFilter(Movement.MovementType.WITHDRAWAL, null, null, null, null, null), 3L, 2)*.id() == [2L]
+    }
+
+    def "find movements created in a time range"() {
+        given: "movements saved on either side of two instants"
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "First", null))
+        def first = instantBetweenSaves()
+        repository.saveAll([new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Second", null),
+                            new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Third", null)])
+        def second = instantBetweenSaves()
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Fourth", null))
+
+        expect: "createdFrom is inclusive and createdTo exclusive"
+        repository.findMovements(new MovementFilter(null, null, null, first, second, null), Long.MAX_VALUE, null)*.id() == [3L, 2L]
+        repository.findMovements(new MovementFilter(null, null, null, null, first, null), Long.MAX_VALUE, null)*.id() == [1L]
+        repository.findMovements(new MovementFilter(null, null, null, second, null, null), Long.MAX_VALUE, null)*.id() == [4L]
+        repository.findMovements(new MovementFilter(null, null, null, first, null, null), Long.MAX_VALUE, 1)*.id() == [4L]
+    }
+
+    def "stream movements in an id range"() {
+        given:
+        (1..5).each { repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, it * 100L, Instant.now(), "Deposit $it", null)) }
+
+        expect: "ids are streamed oldest first, capped at the last saved id"
+        repository.streamMovements(2L, 4L).toList()*.id() == [2L, 3L, 4L]
+        repository.streamMovements(4L, Long.MAX_VALUE).toList()*.id() == [4L, 5L]
+        repository.streamMovements(6L, 10L).toList().isEmpty()
+    }
+
     def "find movement by id"() {
         given:
         def movement = new Movement(0L, Movement.MovementType.DEPOSIT, 1000L,
@@ -145,4 +447,11 @@ class LedgerRepositoryImplTest extends Specification {
         then:
         balance == 0L
     }
+
+    private static Instant instantBetweenSaves() {
+        Thread.sleep(2)
+        def instant = Instant.now()
+        Thread.sleep(2)
+        return instant
+    }
 }
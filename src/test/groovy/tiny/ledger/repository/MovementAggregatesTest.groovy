@@ -0,0 +1,114 @@
+package tiny.ledger.repository
+
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+
+import java.time.Instant
+
+import static tiny.ledger.entity.Movement.MovementType.DEPOSIT
+import static tiny.ledger.entity.Movement.MovementType.WITHDRAWAL
+
+class MovementAggregatesTest extends Specification {
+    def aggregates = new MovementAggregates()
+    def start = Instant.parse("2025-01-15T10:00:00Z")
+    def id = 0L
+
+    def "movements are summed per bucket and type"() {
+        given: "deposits and withdrawals over three minutes"
+        add(DEPOSIT, 100L, start)
+        add(DEPOSIT, 50L, start.plusSeconds(59))
+        add(WITHDRAWAL, 30L, start.plusSeconds(30))
+        add(WITHDRAWAL, 20L, start.plusSeconds(150))
+
+        when:
+        def buckets = aggregates.buckets(AggregateGranularity.MINUTE, start, start.plusSeconds(180))
+
+        then: "every bucket of the range is present, empty ones with zeros"
+        buckets == [
+                new AggregateBucket(start, 2L, 150L, 1L, 30L),
+                new AggregateBucket(start.plusSeconds(60), 0L, 0L, 0L, 0L),
+                new AggregateBucket(start.plusSeconds(120), 0L, 0L, 1L, 20L)
+        ]
+
+        and: "coarser granularities roll up the same movements"
+        aggregates.buckets(AggregateGranularity.HOUR, start, start.plusSeconds(3600)) ==
+                [new AggregateBucket(start, 2L, 150L, 2L, 50L)]
+        aggregates.buckets(AggregateGranularity.DAY, start, start.plusSeconds(1)) ==
+                [new AggregateBucket(Instant.parse("2025-01-15T00:00:00Z"), 2L, 150L, 2L, 50L)]
+    }
+
+    def "the range is widened to whole buckets"() {
+        given:
+        add(DEPOSIT, 10L, start.plusSeconds(61))
+
+        expect:
+        aggregates.buckets(AggregateGranularity.MINUTE, start.plusSeconds(90), start.plusSeconds(121))*.start() ==
+                [start.plusSeconds(60), start.plusSeconds(120)]
+        aggregates.buckets(AggregateGranularity.MINUTE, start.plusSeconds(90), start.plusSeconds(120))*.depositCount() == [1L]
+    }
+
+    def "buckets beyond the ring are recycled"() {
+        given: "a movement every minute for a day and a half"
+        def minutes = (AggregateGranularity.MINUTE.retainedBuckets() * 3).intdiv(2)
+        (0..<minutes).each { add(DEPOSIT, 1L, start.plusSeconds(it * 60L)) }
+        def newest = start.plusSeconds((minutes - 1) * 60L)
+
+        expect: "the retained minutes are still complete"
+        def retained = aggregates.buckets(AggregateGranularity.MINUTE,
+                                          newest.minusSeconds((AggregateGranularity.MINUTE.retainedBuckets() - 1) * 60L),
+                                          newest.plusSeconds(60))
+        retained.size() == AggregateGranularity.MINUTE.retainedBuckets()
+        retained.every { it.depositCount() == 1L && it.depositsInCents() == 1L }
+
+        when: "recycled minutes are requested"
+        aggregates.buckets(AggregateGranularity.MINUTE, start, start.plusSeconds(60))
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid aggregate range: only the last 1440 MINUTE buckets are retained."
+
+        and: "a late movement for a recycled minute leaves the ring untouched"
+        add(DEPOSIT, 1L, start)
+        aggregates.buckets(AggregateGranularity.MINUTE, newest, newest.plusSeconds(60))*.depositCount() == [1L]
+    }
+
+    def "rings grow with the span of retained buckets, not the retention"() {
+        when: "movements a day apart"
+        add(DEPOSIT, 1L, start)
+        add(DEPOSIT, 2L, start.plusSeconds(86_400L))
+
+        then: "the first minute has left the retention, so the minute ring stays small"
+        aggregates.capacity(AggregateGranularity.MINUTE) == 16
+        aggregates.capacity(AggregateGranularity.HOUR) == 16
+        aggregates.capacity(AggregateGranularity.DAY) == 16
+
+        when: "a movement every minute for the next hundred minutes"
+        (1..100).each { add(DEPOSIT, it, start.plusSeconds(86_400L + it * 60L)) }
+
+        then: "the ring doubles to hold them and keeps what it held"
+        aggregates.capacity(AggregateGranularity.MINUTE) == 128
+        aggregates.buckets(AggregateGranularity.MINUTE, start.plusSeconds(86_400L), start.plusSeconds(86_400L + 101 * 60L))*.depositsInCents() ==
+                [2L] + (1L..100L).toList()
+        aggregates.buckets(AggregateGranularity.DAY, start, start.plusSeconds(2 * 86_400L))*.depositsInCents() ==
+                [1L, 2L + (1L..100L).sum(), 0L]
+    }
+
+    def "invalid ranges are rejected"() {
+        when:
+        aggregates.buckets(AggregateGranularity.HOUR, from, to)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == message
+
+        where:
+        from                                  | to                                    | message
+        Instant.parse("2025-01-15T10:00:00Z") | Instant.parse("2025-01-15T10:00:00Z") | "Invalid aggregate range: from must be before to."
+        Instant.parse("2025-01-15T10:00:00Z") | Instant.parse("2024-01-15T10:00:00Z") | "Invalid aggregate range: from must be before to."
+        Instant.parse("2020-01-15T10:00:00Z") | Instant.parse("2025-01-15T10:00:00Z") | "Invalid aggregate range: at most 2160 HOUR buckets can be requested."
+    }
+
+    private void add(Movement.MovementType type, long amountInCents, Instant createdOn) {
+        aggregates.add(new Movement(++id, type, amountInCents, createdOn, null, null))
+    }
+}
@@ -0,0 +1,200 @@
+package tiny.ledger.repository
+
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+
+import java.nio.file.Files
+import java.time.Instant
+
+class MovementIndexTest extends Specification {
+    def store = new HeapMovementStore()
+    def index = new MovementIndex()
+    def reads = 0
+    def countingStore = [append: { store.append(it) },
+                         size  : { store.size() },
+                         get   : { long id -> reads++; store.get(id) }] as MovementStore
+
+    def "descriptions are split into lower-cased tokens"() {
+        expect:
+        MovementIndex.tokens("Rent, invoice INV-2024-17 (paid_late)") == ["rent", "invoice", "inv-2024-17", "paid_late"]
+        MovementIndex.tokens("  ") == []
+        MovementIndex.tokens(null) == []
+        MovementIndex.token("INV-17") == "inv-17"
+    }
+
+    def "a query token must be exactly one token"() {
+        when:
+        MovementIndex.token(value)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid filter: description token must be a single word of letters, digits, '-' or '_'."
+
+        where:
+        value << ["", "two words", "inv-17,"]
+    }
+
+    def "a rare token is served from its list without scanning the ledger"() {
+        given: "ten thousand movements, three of them mentioning an invoice"
+        (1L..10_000L).each { id ->
+            def description = id % 4_000 == 0 ? "Payment of invoice INV-9 part ${id.intdiv(4_000)}" : "Transfer $id"
+            record(id, id % 2 == 0 ? Movement.MovementType.DEPOSIT : Movement.MovementType.WITHDRAWAL, id, description)
+        }
+
+        when:
+        def page = index.newestFirst(new MovementFilter(null, null, null, null, null, "inv-9"), 1L, 10_000L, 10L, countingStore)
+
+        then: "only the matching movements are read"
+        page*.id() == [8_000L, 4_000L]
+        reads == 2
+    }
+
+    def "the shortest list drives the query and the others are checked per movement"() {
+        given:
+        (1L..1_000L).each { id ->
+            record(id, id % 10 == 0 ? Movement.MovementType.WITHDRAWAL : Movement.MovementType.DEPOSIT, id, id % 3 == 0 ? "Card fee" : "Transfer")
+        }
+
+        when: "withdrawals are rarer than the token and the amount buckets"
+        def page = index.newestFirst(new MovementFilter(Movement.MovementType.WITHDRAWAL, 500L, 900L, null, null, "fee"), 1L, 1_000L, 100L, countingStore)
+
+        then:
+        page*.id() == (500L..900L).findAll { it % 30 == 0 }.reverse()
+        reads == 100
+    }
+
+    def "a selective amount range is served from its buckets"() {
+        given: "ten thousand small movements and a few large ones"
+        (1L..10_000L).each { id ->
+            record(id, Movement.MovementType.DEPOSIT, id % 2_500 == 0 ? 1_000_000L + id : 100L + id % 50, "Transfer")
+        }
+
+        when:
+        def page = index.newestFirst(new MovementFilter(null, 1_000_000L, null, null, null, null), 1L, 10_000L, 10L, countingStore)
+
+        then: "only the movements of the top buckets are read"
+        page*.id() == [10_000L, 7_500L, 5_000L, 2_500L]
+        reads == 4
+    }
+
+    def "amount buckets are merged newest first and checked at the edges"() {
+        given:
+        (1L..100L).each { record(it, Movement.MovementType.DEPOSIT, it * 10, "Transfer") }
+
+        when: "amounts 300 to 450 span the buckets [256, 512)"
+        def page = index.newestFirst(new MovementFilter(null, 300L, 450L, null, null, null), 1L, 100L, 100L, countingStore)
+
+        then: "ids 26 to 51 are read and those outside the range skipped"
+        page*.id() == (45L..30L).toList()
+        reads == 26
+    }
+
+    def "a query stops once the page is full and keeps to the id range"() {
+        given:
+        (1L..1_000L).each { record(it, Movement.MovementType.DEPOSIT, 100L, "Deposit") }
+
+        when:
+        def page = index.newestFirst(new MovementFilter(Movement.MovementType.DEPOSIT, null, null, null, null, "deposit"), 200L, 600L, 5L, countingStore)
+
+        then:
+        page*.id() == [600L, 599L, 598L, 597L, 596L]
+        reads == 5
+    }
+
+    def "tokens past the vocabulary cap are left out but still found"() {
+        given: "an index of ten tokens per segment and a description with a new token per movement"
+        index = new MovementIndex(10)
+        (1L..100L).each { record(it, Movement.MovementType.DEPOSIT, it, "Invoice inv-$it") }
+
+        when: "a token that made it into the index is queried"
+        def indexed = index.newestFirst(new MovementFilter(null, null, null, null, null, "inv-5"), 1L, 100L, 10L, countingStore)
+
+        then: "its list is used"
+        indexed*.id() == [5L]
+        reads == 1
+
+        when: "a token that was left out is queried"
+        reads = 0
+        def leftOut = index.newestFirst(new MovementFilter(null, null, null, null, null, "inv-77"), 1L, 100L, 10L, countingStore)
+
+        then: "the descriptions of the segment are checked instead"
+        leftOut*.id() == [77L]
+        reads == 100
+
+        when: "a token never seen is queried"
+        reads = 0
+        def unknown = index.newestFirst(new MovementFilter(Movement.MovementType.DEPOSIT, null, null, null, null, "refund"), 1L, 100L, 10L, countingStore)
+
+        then:
+        unknown.isEmpty()
+        reads == 100
+    }
+
+    def "a negative vocabulary cap is rejected"() {
+        when:
+        new MovementIndex(-1)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "The index needs maxTokens >= 0."
+    }
+
+    def "postings of a sealed segment answer like those in the heap"() {
+        given:
+        def movements = (1L..TieredMovementStore.SEGMENT_SIZE).collect { id ->
+            new Movement(id, id % 3 == 0 ? Movement.MovementType.WITHDRAWAL : Movement.MovementType.DEPOSIT, id * 10,
+                         Instant.now(), id % 500 == 0 ? "Refund Über-$id" : "Transfer $id", null)
+        }
+        movements.each { store.append(it); index.append(it, store) }
+        def sealed = MovementIndex.Postings.decode(1L, MovementIndex.Postings.of(movements as Movement[]).encode())
+        def sealedStore = [append        : { throw new UnsupportedOperationException() },
+                           size          : { store.size() },
+                           get           : { long id -> store.get(id) },
+                           sealedSegments: { 1 },
+                           sealedPostings: { int segment -> sealed }] as MovementStore
+
+        expect:
+        index.newestFirst(filter, 1L, TieredMovementStore.SEGMENT_SIZE, 20L, sealedStore) == index.newestFirst(filter, 1L, TieredMovementStore.SEGMENT_SIZE, 20L, store)
+        !index.newestFirst(filter, 1L, TieredMovementStore.SEGMENT_SIZE, 20L, store).isEmpty()
+
+        where:
+        filter << [new MovementFilter(null, null, null, null, null, "über-1500"),
+                   new MovementFilter(Movement.MovementType.WITHDRAWAL, 1_000L, 2_000L, null, null, null),
+                   new MovementFilter(Movement.MovementType.DEPOSIT, null, null, null, null, "refund")]
+    }
+
+    def "postings of sealed segments leave the heap and are read back from the store"() {
+        given: "a tiered store keeping one segment hot"
+        def directory = Files.createTempDirectory("segments")
+        def tiering = new Tiering(TieredMovementStore.SEGMENT_SIZE, null, 16, Runnable::run)
+        def tiered = new TieredMovementStore(tiering, directory)
+        def untiered = new MovementIndex()
+        def total = 5L * TieredMovementStore.SEGMENT_SIZE
+
+        when:
+        (1L..total).each { id ->
+            def movement = new Movement(id, Movement.MovementType.DEPOSIT, id, Instant.now(), id % 1_000 == 0 ? "Invoice $id" : "Transfer $id", null)
+            tiered.append(movement)
+            index.append(movement, tiered)
+            untiered.append(movement, store)
+        }
+
+        then: "only the hot segments keep postings in the heap"
+        tiered.sealedSegments() == 4
+        index.allocatedBytes() < untiered.allocatedBytes() / 2
+
+        and: "queries still see every segment"
+        index.newestFirst(new MovementFilter(null, null, null, null, null, "invoice"), 1L, total, 100L, tiered)*.id() ==
+            (1L..total).findAll { it % 1_000 == 0 }.reverse()
+        tiering.cacheMisses() > 0
+
+        cleanup:
+        directory.toFile().deleteDir()
+    }
+
+    private void record(long id, Movement.MovementType type, long amountInCents, String description) {
+        def movement = new Movement(id, type, amountInCents, Instant.now(), description, null)
+        store.append(movement)
+        index.append(movement, store)
+    }
+}
@@ -0,0 +1,94 @@
+package tiny.ledger.repository
+
+import spock.lang.Requires
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+
+import java.lang.ref.Reference
+import java.nio.file.Files
+import java.time.Instant
+
+class MovementStoreFootprintTest extends Specification {
+    static final int MOVEMENTS = 200_000
+
+    def "columnar layout allocates a few dozen bytes per movement"() {
+        when:
+        def store = fill(new ColumnarMovementStore())
+
+        then: "33 bytes of columns plus the short description and key in the arena"
+        store.allocatedBytes() / MOVEMENTS < 80
+    }
+
+    def "the index allocates a few bytes per movement and none for sealed segments"() {
+        given:
+        def directory = Files.createTempDirectory("segments")
+        def tiered = new TieredMovementStore(new Tiering(TieredMovementStore.SEGMENT_SIZE, null, 8, Runnable::run), directory)
+
+        when:
+        def index = indexOf(fill(new HeapMovementStore()))
+        def tieredIndex = indexOf(fill(tiered))
+
+        then: "two bytes per type, amount bucket and token, plus the unique token of each description"
+        index.allocatedBytes() / MOVEMENTS < 40
+
+        and: "a tiered ledger keeps postings for its hot segments only"
+        tiered.sealedSegments() == MOVEMENTS.intdiv(TieredMovementStore.SEGMENT_SIZE) - 1
+        tieredIndex.allocatedBytes() < 2 * TieredMovementStore.SEGMENT_SIZE * 40
+
+        cleanup:
+        directory.toFile().deleteDir()
+    }
+
+    // Measured through the garbage collector, so only run on request: ./gradlew test -Pfootprint
+    @Requires({ System.getProperty("ledger.footprint") })
+    def "columnar layout retains far fewer bytes per movement than heap objects"() {
+        when:
+        def heap = bytesPerMovement(StorageLayout.HEAP)
+        def columnar = bytesPerMovement(StorageLayout.COLUMNAR)
+
+        then:
+        columnar < heap / 2
+    }
+
+    private static MovementStore fill(MovementStore store) {
+        def createdOn = Instant.parse("2025-01-15T10:30:00Z")
+        for (long id = 1; id <= MOVEMENTS; id++) {
+            store.append(new Movement(id,
+                                      id % 3 == 0 ? Movement.MovementType.WITHDRAWAL : Movement.MovementType.DEPOSIT,
+                                      id * 7,
+                                      createdOn.plusNanos(id * 1_000_003),
+                                      "Card payment " + id,
+                                      "idem-" + id))
+        }
+        assert store.size() == MOVEMENTS
+        return store
+    }
+
+    private static MovementIndex indexOf(MovementStore store) {
+        def index = new MovementIndex()
+        for (long id = 1; id <= store.size(); id++) {
+            index.append(store.get(id), store)
+        }
+        return index
+    }
+
+    private static double bytesPerMovement(StorageLayout layout) {
+        long before = usedHeap()
+        def store = fill(layout.newStore())
+        long after = usedHeap()
+        Reference.reachabilityFence(store)
+        return (after - before) / (double) MOVEMENTS
+    }
+
+    private static long usedHeap() {
+        def runtime = Runtime.getRuntime()
+        long used = Long.MAX_VALUE
+        // Several collections, keeping the lowest reading, so floating garbage does not count.
+        5.times {
+            System.gc()
+            Thread.sleep(20)
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory())
+        }
+        return used
+    }
+}
@@ -0,0 +1,118 @@
+package tiny.ledger.repository
+
+import spock.lang.Specification
+import spock.lang.TempDir
+import tiny.ledger.entity.Movement
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.time.Instant
+
+class TieredMovementStoreTest extends Specification {
+    static final int SEGMENT = TieredMovementStore.SEGMENT_SIZE
+
+    @TempDir
+    Path directory
+
+    def "segments past the count threshold are sealed and read back through the cache"() {
+        given: "one segment kept hot, sealing on the appending thread"
+        def tiering = new Tiering(SEGMENT, null, 4, Runnable::run)
+        def store = new TieredMovementStore(tiering, directory)
+        def movements = (1L..(3L * SEGMENT + 100)).collect { movement(it, Instant.now()) }
+
+        when:
+        movements.each { store.append(it) }
+
+        then: "only the two oldest segments went to disk"
+        store.sealedSegments() == 2
+        tiering.sealedSegments() == 2
+        Files.list(directory).count() == 2
+
+        when: "the newest page is read"
+        def page = store.newestFirst(store.size() + 1, 100)
+
+        then: "it never touches the segments"
+        page*.id() == (store.size()..(store.size() - 99)).toList()
+        tiering.cacheMisses() == 0
+
+        when: "every movement is read back"
+        def all = (1L..store.size()).collect { store.get(it) }
+
+        then:
+        all == movements
+        tiering.cacheMisses() == 2L * SEGMENT / 256
+        tiering.cacheHits() == 2L * SEGMENT - tiering.cacheMisses()
+        store.get(0L) == null
+        store.get(store.size() + 1) == null
+    }
+
+    def "full segments older than the age threshold are sealed whatever the count"() {
+        given:
+        def tiering = new Tiering(Long.MAX_VALUE, Duration.ofHours(1), 4, Runnable::run)
+        def store = new TieredMovementStore(tiering, directory)
+        def old = Instant.now().minus(Duration.ofDays(1))
+
+        when: "an old segment is followed by recent movements"
+        (1L..SEGMENT).each { store.append(movement(it, old)) }
+        (SEGMENT + 1L..SEGMENT + 10L).each { store.append(movement(it, Instant.now())) }
+
+        then: "the old one is sealed but the segment being appended to is not"
+        store.sealedSegments() == 1
+        store.get(1L) == movement(1L, old)
+        store.get(SEGMENT + 10L).id() == SEGMENT + 10L
+    }
+
+    def "a replayed ledger is sealed down to its hot segments without further appends"() {
+        given: "a sealer that only runs once the replay is over"
+        def queued = []
+        def tiering = new Tiering(SEGMENT, null, 4, { queued << it })
+        def store = new TieredMovementStore(tiering, directory)
+
+        when: "five segments are replayed while the first seal waits"
+        (1L..5L * SEGMENT).each { store.append(movement(it, Instant.now())) }
+
+        then: "a single seal was scheduled"
+        queued.size() == 1
+
+        when: "the sealer runs, each seal scheduling the next"
+        while (!queued.isEmpty()) {
+            queued.remove(0).run()
+        }
+
+        then: "every segment but the hot one is on disk"
+        store.sealedSegments() == 4
+        store.get(1L).id() == 1L
+    }
+
+    def "a segment that fails to seal stays in memory"() {
+        given: "a directory the segment cannot be written to"
+        def tiering = new Tiering(0, null, 4, Runnable::run)
+        def store = new TieredMovementStore(tiering, directory)
+        Files.delete(directory)
+        Files.writeString(directory, "not a directory")
+
+        when:
+        (1L..SEGMENT + 1L).each { store.append(movement(it, Instant.now())) }
+
+        then:
+        store.sealedSegments() == 0
+        store.get(1L).id() == 1L
+    }
+
+    def "stale segment files are cleared when the store is opened"() {
+        given:
+        Files.writeString(directory.resolve("0000000000000000001.segment"), "stale")
+
+        when:
+        new TieredMovementStore(new Tiering(0, null, 4, Runnable::run), directory)
+
+        then:
+        Files.list(directory).count() == 0
+    }
+
+    private static Movement movement(long id, Instant createdOn) {
+        new Movement(id, id % 2 == 0 ? Movement.MovementType.WITHDRAWAL : Movement.MovementType.DEPOSIT, id, createdOn,
+                     "Movement $id", id % 10 == 0 ? "key-$id" : null)
+    }
+}
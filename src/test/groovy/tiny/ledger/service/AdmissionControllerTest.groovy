@@ -0,0 +1,103 @@
+package tiny.ledger.service
+
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class AdmissionControllerTest extends Specification {
+
+    def "Budget admits up to its in-flight limit and rejects the next request after the queue wait"() {
+        given: "a budget of two slots with a short queue wait"
+        def budget = new AdmissionController.Budget("write", 2, Duration.ofMillis(20), Duration.ofSeconds(3))
+
+        when: "both slots are taken"
+        budget.acquire()
+        budget.acquire()
+
+        then:
+        budget.inFlight() == 2
+
+        when: "a third request arrives"
+        def start = System.nanoTime()
+        budget.acquire()
+
+        then: "it is rejected once the queue wait has passed, carrying the retry delay"
+        def e = thrown(OverloadedException)
+        e.message == "Too many concurrent writes; retry later."
+        e.retryAfter() == Duration.ofSeconds(3)
+        System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20)
+        budget.rejections() == 1
+        budget.inFlight() == 2
+    }
+
+    def "Released slots are handed to queued requests"() {
+        given: "a budget of one slot, already taken"
+        def budget = new AdmissionController.Budget("read", 1, Duration.ofSeconds(5), Duration.ofSeconds(1))
+        budget.acquire()
+        def executor = Executors.newSingleThreadExecutor()
+        def admitted = new CountDownLatch(1)
+
+        when: "a second request queues for it"
+        executor.submit { budget.call { admitted.countDown() } }
+        def deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+        while (budget.queueDepth() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1)
+        }
+
+        then: "it is counted as queued"
+        budget.queueDepth() == 1
+
+        when: "the slot is released"
+        budget.release()
+
+        then: "the queued request runs and gives the slot back"
+        admitted.await(5, TimeUnit.SECONDS)
+        executor.shutdown()
+        executor.awaitTermination(5, TimeUnit.SECONDS)
+        budget.inFlight() == 0
+        budget.queueDepth() == 0
+        budget.rejections() == 0
+    }
+
+    def "Call releases the slot when the operation fails"() {
+        given:
+        def budget = new AdmissionController.Budget("read", 1, Duration.ZERO, Duration.ofSeconds(1))
+
+        when:
+        budget.call { throw new IllegalArgumentException("bad") }
+
+        then:
+        thrown(IllegalArgumentException)
+        budget.inFlight() == 0
+    }
+
+    def "Unlimited budgets admit everything"() {
+        given:
+        def budget = AdmissionController.UNLIMITED.writes()
+
+        when:
+        1000.times { budget.acquire() }
+
+        then:
+        noExceptionThrown()
+        budget.name() == "write"
+        budget.inFlight() == 0
+        budget.rejections() == 0
+    }
+
+    def "Budget rejects invalid limits"() {
+        when:
+        new AdmissionController.Budget("write", maxInFlight, maxQueueWait, Duration.ofSeconds(1))
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        maxInFlight | maxQueueWait
+        0           | Duration.ofMillis(10)
+        1           | Duration.ofMillis(-1)
+    }
+}
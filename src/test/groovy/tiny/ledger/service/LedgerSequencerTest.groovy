@@ -0,0 +1,134 @@
+package tiny.ledger.service
+
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+import tiny.ledger.persistence.MovementJournal
+import tiny.ledger.repository.AccountLedger
+import tiny.ledger.repository.AccountLedgerRegistry
+import tiny.ledger.repository.AccountLedgers
+import tiny.ledger.repository.LedgerRepositoryImpl
+
+import java.util.concurrent.CompletionException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class LedgerSequencerTest extends Specification {
+
+    def sequencer = new LedgerSequencer(8)
+    def repository = new LedgerRepositoryImpl()
+    def ledger = new AccountLedger(AccountLedgers.DEFAULT_ACCOUNT, repository, MovementJournal.DISABLED)
+    def target = new LedgerService(new AccountLedgerRegistry(ledger), sequencer)
+
+    def cleanup() {
+        sequencer.close()
+    }
+
+    def "concurrent writers are applied one at a time by the writer thread"() {
+        given: "threads submitting more commands than the buffer holds"
+        def start = new CountDownLatch(1)
+        def threads = (1..8).collect {
+            Thread.start {
+                start.await()
+                100.times { target.recordMovement(100L, Movement.MovementType.DEPOSIT, "Deposit", null) }
+            }
+        }
+
+        when:
+        start.countDown()
+        threads*.join()
+
+        then: "every movement is saved with consecutive ids"
+        repository.getCurrentBalanceInCents() == 80_000L
+        repository.findMovements(null, null)*.id() == (800L..1L).toList()
+    }
+
+    def "failed commands complete exceptionally without stopping the writer"() {
+        when: "a withdrawal overdraws the account"
+        def rejected = target.submitMovement("default", 500L, Movement.MovementType.WITHDRAWAL, "Overdraft", null)
+        def accepted = target.submitMovement("default", 700L, Movement.MovementType.DEPOSIT, "Deposit", null)
+
+        and:
+        rejected.join()
+
+        then: "the future carries the funds check failure"
+        def e = thrown(CompletionException)
+        e.cause instanceof IllegalStateException
+        e.cause.message == "Insufficient funds for this transaction."
+
+        and: "later commands are still applied"
+        accepted.join().id() == 1L
+        repository.getCurrentBalanceInCents() == 700L
+    }
+
+    def "idempotency keys are resolved in sequence order"() {
+        when: "the same key is submitted twice before either is applied"
+        def first = target.submitMovement("default", 300L, Movement.MovementType.DEPOSIT, "Deposit", "key-1")
+        def second = target.submitMovement("default", 300L, Movement.MovementType.DEPOSIT, "Deposit", "key-1")
+
+        then: "both resolve to the same movement"
+        first.join() == second.join()
+        repository.getCurrentBalanceInCents() == 300L
+    }
+
+    def "closing drains published commands and rejects new ones"() {
+        given:
+        def futures = (1..20).collect { target.submitMovement("default", 10L, Movement.MovementType.DEPOSIT, "Deposit", null) }
+
+        when:
+        sequencer.close()
+
+        then: "everything submitted before closing is applied"
+        futures.every { it.isDone() && !it.isCompletedExceptionally() }
+        repository.getCurrentBalanceInCents() == 200L
+
+        when:
+        target.submitMovement("default", 10L, Movement.MovementType.DEPOSIT, "Deposit", null)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "The ledger is shutting down."
+    }
+
+    def "errors thrown by a command fail only its future"() {
+        when: "a command throws an error rather than an exception"
+        def broken = sequencer.submit(ledger, { throw new StackOverflowError() }, { 0L })
+        def accepted = target.submitMovement("default", 700L, Movement.MovementType.DEPOSIT, "Deposit", null)
+
+        and:
+        broken.join()
+
+        then:
+        def e = thrown(CompletionException)
+        e.cause instanceof StackOverflowError
+
+        and: "the writer keeps applying commands"
+        accepted.get(5, TimeUnit.SECONDS).id() == 1L
+    }
+
+    def "commands submitted while closing are either applied or rejected"() {
+        given: "threads submitting until the sequencer closes"
+        def futures = Collections.synchronizedList([])
+        def start = new CountDownLatch(1)
+        def threads = (1..4).collect {
+            Thread.start {
+                start.await()
+                try {
+                    while (true) {
+                        futures << target.submitMovement("default", 10L, Movement.MovementType.DEPOSIT, "Deposit", null)
+                    }
+                } catch (IllegalStateException ignored) {
+                }
+            }
+        }
+
+        when:
+        start.countDown()
+        Thread.sleep(20)
+        sequencer.close()
+        threads*.join()
+
+        then: "no future is left pending"
+        futures.every { it.isDone() }
+        repository.getCurrentBalanceInCents() == 10L * futures.count { !it.isCompletedExceptionally() }
+    }
+}
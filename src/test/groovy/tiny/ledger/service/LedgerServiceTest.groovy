@@ -2,8 +2,16 @@ package tiny.ledger.service
 
 import spock.lang.Specification
 import tiny.ledger.entity.Movement
+import tiny.ledger.metrics.LedgerMetrics
+import tiny.ledger.persistence.MovementJournal
+import tiny.ledger.repository.AccountLedger
+import tiny.ledger.repository.AccountLedgerRegistry
+import tiny.ledger.repository.AccountNotFoundException
+import tiny.ledger.repository.CommitResult
+import tiny.ledger.repository.InsufficientFundsException
 import tiny.ledger.repository.LedgerRepository
 
+import java.time.Duration
 import java.time.Instant
 
 class LedgerServiceTest extends Specification {
@@ -50,6 +58,24 @@ class LedgerServiceTest extends Specification {
         0 * _
     }
 
+    def "Get movement history after a cursor"() {
+        given: "movement history is present"
+        def movement = new Movement(3L, Movement.MovementType.DEPOSIT, 5000L, Instant.now(), "Test transaction", null)
+
+        when: "getMovementHistoryAfter is called with a cursor id"
+        def result = target.getMovementHistoryAfter(4L, 1)
+
+        then: "the ledger repository is queried for older movements"
+        1 * ledgerRepository.findMovementsOlderThan(4L, 1) >> [movement]
+
+        then: "the result contains the expected movement"
+        result.size() == 1
+        result[0].id() == 3L
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
     def "Record movement with valid deposit transaction"() {
         when: "recordMovement is called with a valid deposit transaction"
         def result = target.recordMovement(10000L, Movement.MovementType.DEPOSIT, "Test deposit", null)
@@ -163,4 +189,272 @@ class LedgerServiceTest extends Specification {
         0 * _
     }
 
+    def "Record movement is scoped to the account's ledger"() {
+        given: "a service with a second account"
+        def accountRepository = Mock(LedgerRepository)
+        def accounts = new AccountLedgerRegistry(new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED),
+                { id -> new AccountLedger(id, accountRepository, MovementJournal.DISABLED) })
+        def service = new LedgerService(accounts)
+
+        when: "a withdrawal is recorded on the account"
+        def result = service.recordMovement("acc-1", 500L, Movement.MovementType.WITHDRAWAL, "Account withdrawal", null)
+
+        then: "only the account's balance is checked"
+        1 * accountRepository.getCurrentBalanceInCents() >> 1000L
+
+        and: "the movement is saved in the account's repository"
+        1 * accountRepository.save(_ as Movement) >> { Movement movement -> movement }
+        result.amountInCents() == 500L
+
+        and: "the default ledger is untouched"
+        0 * ledgerRepository._
+    }
+
+    def "Record movement rejects invalid account ids"() {
+        given: "a service that can open accounts"
+        def accounts = new AccountLedgerRegistry(new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED),
+                { id -> new AccountLedger(id, Mock(LedgerRepository), MovementJournal.DISABLED) })
+        def service = new LedgerService(accounts)
+
+        when: "a movement is recorded on an invalid account id"
+        service.recordMovement("../etc", 500L, Movement.MovementType.DEPOSIT, "Invalid", null)
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid account: ../etc"
+    }
+
+    def "Reads of an unknown account open nothing"() {
+        given: "a service that can open accounts"
+        def opened = []
+        def accounts = new AccountLedgerRegistry(new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED),
+                { id -> opened << id; new AccountLedger(id, Mock(LedgerRepository), MovementJournal.DISABLED) })
+        def service = new LedgerService(accounts)
+
+        when: "the balance of an account never written to is read"
+        service.getCurrentBalanceInCents("probe")
+
+        then: "it is not found and not opened"
+        def e = thrown(AccountNotFoundException)
+        e.message == "Unknown account: probe"
+        opened.isEmpty()
+        accounts.all()*.accountId() == ["default"]
+    }
+
+    def "Writes to new accounts are rejected past the account limit"() {
+        given: "a service limited to the default account and one more"
+        def accounts = new AccountLedgerRegistry(new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED),
+                { id -> new AccountLedger(id, Stub(LedgerRepository) { save(_) >> { args -> args[0] } }, MovementJournal.DISABLED) },
+                2)
+        def service = new LedgerService(accounts)
+        service.recordMovement("acc-1", 500L, Movement.MovementType.DEPOSIT, "First account", null)
+
+        when: "a third account is written to"
+        service.recordMovement("acc-2", 500L, Movement.MovementType.DEPOSIT, "Second account", null)
+
+        then: "it is rejected and not opened"
+        def e = thrown(IllegalStateException)
+        e.message == "The limit of 2 accounts is reached; no new accounts can be opened."
+        accounts.all()*.accountId().sort() == ["acc-1", "default"]
+
+        when: "an existing account is written to"
+        service.recordMovement("acc-1", 500L, Movement.MovementType.DEPOSIT, "Again", null)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "Lock-free mode commits through the repository without the account lock"() {
+        given: "a service in LOCK_FREE mode"
+        def ledger = new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED)
+        def service = new LedgerService(new AccountLedgerRegistry(ledger), WriteMode.LOCK_FREE, null, LedgerMetrics.NOOP)
+        def saved = new Movement(3L, Movement.MovementType.WITHDRAWAL, 500L, Instant.now(), "Withdrawal", "key-1")
+
+        when: "a withdrawal is recorded"
+        def result = service.recordMovement("default", 500L, Movement.MovementType.WITHDRAWAL, "Withdrawal", "key-1")
+
+        then: "the repository checks the funds and the key in one commit"
+        1 * ledgerRepository.commitAll({ it.size() == 1 && it[0].idempotencyKey() == "key-1" }) >> [new CommitResult(saved, false)]
+        0 * _
+        result == saved
+        !ledger.lock().isLocked()
+
+        when: "the next withdrawal would overdraw the account"
+        service.recordMovement("default", 5000L, Movement.MovementType.WITHDRAWAL, "Withdrawal", null)
+
+        then: "it is rejected with the usual message"
+        1 * ledgerRepository.commitAll(_) >> { throw new InsufficientFundsException(0) }
+        def e = thrown(IllegalStateException)
+        e.message == "Insufficient funds for this transaction."
+    }
+
+    def "Lock-free batches report an overdraft like locked batches do"() {
+        given: "a service in LOCK_FREE mode"
+        def ledger = new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED)
+        def service = new LedgerService(new AccountLedgerRegistry(ledger), WriteMode.LOCK_FREE, null, LedgerMetrics.NOOP)
+
+        when: "the second movement of a batch would overdraw the account"
+        service.recordMovements("default", [new MovementCommand(500L, Movement.MovementType.DEPOSIT, "Deposit", null),
+                                            new MovementCommand(5000L, Movement.MovementType.WITHDRAWAL, "Withdrawal", null)])
+
+        then: "it is rejected with the locked-mode message, not the repository's exception"
+        1 * ledgerRepository.commitAll(_) >> { throw new InsufficientFundsException(1) }
+        def e = thrown(IllegalStateException)
+        e.class == IllegalStateException
+        e.message == "Insufficient funds for this transaction (transaction 1)."
+    }
+
+    def "Replica mode rejects client writes"() {
+        given: "a service in REPLICA mode"
+        def service = new LedgerService(new AccountLedgerRegistry(new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED)),
+                                        WriteMode.REPLICA, null, LedgerMetrics.NOOP)
+
+        when:
+        write(service)
+
+        then: "nothing reaches the repository"
+        0 * _
+        def e = thrown(IllegalStateException)
+        e.message == "This ledger is a read-only replica; send writes to the leader."
+
+        where:
+        write << [{ LedgerService s -> s.recordMovement("default", 500L, Movement.MovementType.DEPOSIT, "Deposit", null) },
+                  { LedgerService s -> s.recordMovements("default", [new MovementCommand(500L, Movement.MovementType.DEPOSIT, "Deposit", null)]) }]
+    }
+
+    def "Writes over the write budget are shed while reads keep their own budget"() {
+        given: "a service whose single write slot is taken"
+        def admission = new AdmissionController(new AdmissionController.Budget("read", 1, Duration.ZERO, Duration.ofSeconds(1)),
+                                                new AdmissionController.Budget("write", 1, Duration.ZERO, Duration.ofSeconds(1)))
+        def service = new LedgerService(new AccountLedgerRegistry(new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED)),
+                                        WriteMode.LOCKED, null as LedgerSequencer, LedgerMetrics.NOOP, admission)
+        admission.writes().acquire()
+
+        when: "a write arrives"
+        write(service)
+
+        then: "it is rejected without reaching the repository"
+        thrown(OverloadedException)
+        0 * ledgerRepository._
+        admission.writes().rejections() == 1
+
+        when: "the balance is read meanwhile"
+        def balance = service.getCurrentBalanceInCents()
+
+        then: "the read is admitted"
+        1 * ledgerRepository.getCurrentBalanceInCents() >> 1000L
+        balance == 1000L
+        admission.reads().inFlight() == 0
+
+        when: "the write slot is freed"
+        admission.writes().release()
+        write(service)
+
+        then: "writes are admitted again and give their slot back once done"
+        ledgerRepository.save(_) >> { args -> args[0] }
+        ledgerRepository.saveAll(_) >> { args -> args[0] }
+        admission.writes().inFlight() == 0
+
+        where:
+        write << [{ LedgerService s -> s.recordMovement("default", 500L, Movement.MovementType.DEPOSIT, "Deposit", null) },
+                  { LedgerService s -> s.recordMovements("default", [new MovementCommand(500L, Movement.MovementType.DEPOSIT, "Deposit", null)]) }]
+    }
+
+    def "Record batch applies every movement under one save"() {
+        given: "a batch mixing deposits, a withdrawal and a known idempotency key"
+        def existing = new Movement(7L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Earlier", "known")
+        def commands = [
+                new MovementCommand(1000L, Movement.MovementType.DEPOSIT, "Deposit", "key-1"),
+                new MovementCommand(1200L, Movement.MovementType.WITHDRAWAL, "Withdrawal", null),
+                new MovementCommand(100L, Movement.MovementType.DEPOSIT, "Earlier", "known"),
+                new MovementCommand(1000L, Movement.MovementType.DEPOSIT, "Deposit", "key-1")
+        ]
+
+        when: "the batch is recorded"
+        def results = target.recordMovements("default", commands)
+
+        then: "the withdrawal is checked against the running balance"
+        1 * ledgerRepository.getCurrentBalanceInCents() >> 500L
+        1 * ledgerRepository.findIdByIdempotencyKey("key-1") >> Optional.empty()
+        1 * ledgerRepository.findIdByIdempotencyKey("known") >> Optional.of(7L)
+        1 * ledgerRepository.findById(7L) >> Optional.of(existing)
+
+        and: "new movements are saved together"
+        1 * ledgerRepository.saveAll({ it.size() == 2 }) >> { args ->
+            args[0].withIndex().collect { movement, i ->
+                new Movement(8L + i, movement.type(), movement.amountInCents(), movement.createdOn(), movement.description(), movement.idempotencyKey())
+            }
+        }
+
+        and: "each item reports its movement"
+        results*.movement()*.id() == [8L, 9L, 7L, 8L]
+        results*.replayed() == [false, false, true, true]
+
+        and: "no more interactions are present"
+        0 * _
+    }
+
+    def "Record batch with insufficient funds applies nothing"() {
+        when: "a batch overdraws the running balance"
+        target.recordMovements("default", [
+                new MovementCommand(300L, Movement.MovementType.WITHDRAWAL, "First", null),
+                new MovementCommand(300L, Movement.MovementType.WITHDRAWAL, "Second", null)
+        ])
+
+        then: "the balance only covers the first withdrawal"
+        1 * ledgerRepository.getCurrentBalanceInCents() >> 500L
+
+        and: "an exception is thrown"
+        def e = thrown(IllegalStateException)
+        e.message == "Insufficient funds for this transaction (transaction 1)."
+
+        and: "nothing is saved"
+        0 * _
+    }
+
+    def "Record batch with an invalid amount"() {
+        when: "a batch contains a non positive amount"
+        target.recordMovements("default", [
+                new MovementCommand(300L, Movement.MovementType.DEPOSIT, "First", null),
+                new MovementCommand(0L, Movement.MovementType.DEPOSIT, "Second", null)
+        ])
+
+        then: "an exception is thrown"
+        def e = thrown(IllegalArgumentException)
+        e.message == "Transaction amount must be greater than zero (transaction 1)."
+
+        and: "no interactions with the ledger repository"
+        0 * _
+    }
+
+    def "Metrics time locked writes and history queries and count rejections"() {
+        given: "a service reporting metrics"
+        def metrics = Mock(LedgerMetrics)
+        def instrumented = new LedgerService(new AccountLedgerRegistry(new AccountLedger("default", ledgerRepository, MovementJournal.DISABLED)), null, metrics)
+        metrics.enabled() >> true
+
+        ledgerRepository.getCurrentBalanceInCents() >> 1000L
+
+        when: "a deposit is recorded"
+        instrumented.recordMovement(1000L, Movement.MovementType.DEPOSIT, "Deposit", null)
+
+        then: "the write reports its lock wait and hold"
+        1 * ledgerRepository.save(_) >> { args -> args[0] }
+        1 * metrics.recordLock({ it >= 0L }, { it >= 0L })
+
+        when: "a withdrawal is rejected"
+        instrumented.recordMovement(5000L, Movement.MovementType.WITHDRAWAL, "Withdrawal", null)
+
+        then: "the rejection is counted"
+        thrown(IllegalStateException)
+        1 * metrics.insufficientFunds()
+        1 * metrics.recordLock(_, _)
+
+        when: "a page is requested"
+        instrumented.getMovementHistory(20, null)
+
+        then: "it is timed by its size"
+        1 * ledgerRepository.findMovements(20, null) >> []
+        1 * metrics.recordHistoryQuery(20, { it >= 0L })
+    }
 }
@@ -0,0 +1,192 @@
+package tiny.ledger.service
+
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+import tiny.ledger.persistence.MovementJournal
+import tiny.ledger.repository.AccountLedger
+import tiny.ledger.repository.AccountLedgerRegistry
+import tiny.ledger.repository.LedgerRepositoryImpl
+
+import java.time.Duration
+import java.time.Instant
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MovementFeedTest extends Specification {
+    def repository = new LedgerRepositoryImpl()
+    def feed = new MovementFeed(new AccountLedgerRegistry(new AccountLedger("default", repository, MovementJournal.DISABLED)), 10)
+
+    def cleanup() {
+        feed.close()
+    }
+
+    def "new movements are pushed in order"() {
+        given:
+        def sink = new RecordingSink(3)
+        feed.subscribe("default", null, sink)
+
+        when:
+        3.times { deposit() }
+
+        then:
+        sink.await()
+        sink.ids == [1L, 2L, 3L]
+    }
+
+    def "a subscription resumes from an earlier id"() {
+        given:
+        5.times { deposit() }
+        def sink = new RecordingSink(5)
+
+        when:
+        feed.subscribe("default", 3L, sink)
+        deposit()
+        deposit()
+
+        then: "the missed movements come first, then the live ones"
+        sink.await()
+        sink.ids == [3L, 4L, 5L, 6L, 7L]
+    }
+
+    def "positions further behind than the lag bound are rejected"() {
+        given:
+        12.times { deposit() }
+
+        when:
+        feed.subscribe("default", 1L, new RecordingSink(0))
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Feed position 1 is more than 10 transactions behind, catch up through /transactions/export first."
+    }
+
+    def "a slow subscriber is dropped without holding up writes"() {
+        given: "a subscriber stuck on its first movement"
+        def release = new CountDownLatch(1)
+        def sink = new RecordingSink(1) {
+            @Override
+            void send(Movement movement) {
+                super.send(movement)
+                release.await()
+            }
+        }
+        feed.subscribe("default", null, sink)
+        deposit()
+        sink.await()
+
+        when: "writers carry on past the lag bound"
+        30.times { deposit() }
+        release.countDown()
+
+        then: "the subscriber is told where it stopped"
+        sink.lagged.await(5, TimeUnit.SECONDS)
+        sink.lastSentId == 1L
+        sink.ids == [1L]
+        repository.getLastId() == 31L
+    }
+
+    def "subscribers past the cap are shed until one leaves"() {
+        given:
+        def capped = new MovementFeed(new AccountLedgerRegistry(new AccountLedger("default", repository, MovementJournal.DISABLED)),
+                                      10, 2, 1, Duration.ofSeconds(10))
+        def first = capped.subscribe("default", null, new RecordingSink(0))
+        capped.subscribe("default", null, new RecordingSink(0))
+
+        when:
+        capped.subscribe("default", null, new RecordingSink(0))
+
+        then:
+        def e = thrown(OverloadedException)
+        e.message == "Too many concurrent feed subscribers; retry later."
+
+        when: "a subscriber cancels"
+        first.cancel()
+        capped.subscribe("default", null, new RecordingSink(0))
+
+        then:
+        noExceptionThrown()
+
+        cleanup:
+        capped.close()
+    }
+
+    def "a send blocked past the deadline drops its subscriber without starving the others"() {
+        given: "a single delivery thread and a subscriber that never returns from send"
+        def bounded = new MovementFeed(new AccountLedgerRegistry(new AccountLedger("default", repository, MovementJournal.DISABLED)),
+                                       10, 10, 1, Duration.ofMillis(50))
+        def stuck = new RecordingSink(1) {
+            @Override
+            void send(Movement movement) {
+                super.send(movement)
+                try {
+                    new CountDownLatch(1).await()
+                } catch (InterruptedException ignored) {
+                    // Like a socket write, carry on blocking for a while after the interrupt.
+                    Thread.sleep(500)
+                }
+            }
+        }
+        bounded.subscribe("default", null, stuck)
+        deposit()
+        stuck.await()
+
+        when: "another subscriber arrives while the only thread is blocked"
+        def healthy = new RecordingSink(1)
+        bounded.subscribe("default", null, healthy)
+        deposit()
+
+        then: "it is served once the stuck send expires"
+        healthy.await()
+        healthy.ids == [2L]
+        stuck.ids == [1L]
+
+        cleanup:
+        bounded.close()
+    }
+
+    def "cancelled subscriptions receive nothing"() {
+        given:
+        def sink = new RecordingSink(1)
+        def subscription = feed.subscribe("default", null, sink)
+
+        when:
+        subscription.cancel()
+        deposit()
+        Thread.sleep(100)
+
+        then:
+        sink.ids.isEmpty()
+    }
+
+    private void deposit() {
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), null, null))
+    }
+
+    static class RecordingSink implements MovementFeed.Sink {
+        final List<Long> ids = new CopyOnWriteArrayList<>()
+        final CountDownLatch received
+        final CountDownLatch lagged = new CountDownLatch(1)
+        volatile long lastSentId = -1L
+
+        RecordingSink(int expected) {
+            received = new CountDownLatch(expected)
+        }
+
+        @Override
+        void send(Movement movement) {
+            ids << movement.id()
+            received.countDown()
+        }
+
+        @Override
+        void lagging(long lastSentId) {
+            this.lastSentId = lastSentId
+            lagged.countDown()
+        }
+
+        boolean await() {
+            received.await(5, TimeUnit.SECONDS)
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package tiny.ledger.service
+
+import spock.lang.Specification
+import tiny.ledger.entity.Movement
+import tiny.ledger.persistence.MovementJournal
+import tiny.ledger.repository.AccountLedger
+import tiny.ledger.repository.AccountLedgerRegistry
+import tiny.ledger.repository.LedgerRepositoryImpl
+
+import java.time.Instant
+
+class VersionedResponseCacheTest extends Specification {
+    def repository = new LedgerRepositoryImpl()
+    def cache = new VersionedResponseCache(new AccountLedgerRegistry(new AccountLedger("default", repository, MovementJournal.DISABLED)), 2)
+    def serializations = 0
+
+    def "a page is serialized once per version"() {
+        when:
+        def first = cache.get("default", "page-1", 0L, this.&serialize)
+        def second = cache.get("default", "page-1", 0L, this.&serialize)
+        def other = cache.get("default", "page-2", 0L, this.&serialize)
+
+        then:
+        second.is(first)
+        !other.is(first)
+        serializations == 2
+        cache.hits() == 1L
+        cache.misses() == 2L
+    }
+
+    def "a commit drops the account's pages"() {
+        given:
+        def cached = cache.get("default", "page-1", 0L, this.&serialize)
+
+        when:
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Deposit", null))
+        def refreshed = cache.get("default", "page-1", 1L, this.&serialize)
+
+        then:
+        !refreshed.is(cached)
+        serializations == 2
+        cache.get("default", "page-1", 1L, this.&serialize).is(refreshed)
+    }
+
+    def "a full account stops caching new pages until the next commit"() {
+        given:
+        cache.get("default", "page-1", 0L, this.&serialize)
+        cache.get("default", "page-2", 0L, this.&serialize)
+
+        when:
+        def third = cache.get("default", "page-3", 0L, this.&serialize)
+
+        then:
+        !cache.get("default", "page-3", 0L, this.&serialize).is(third)
+        serializations == 4
+    }
+
+    def "cached bodies are bounded by total bytes across accounts"() {
+        given: "room for two bodies of six bytes"
+        def bounded = new VersionedResponseCache(new AccountLedgerRegistry(new AccountLedger("default", repository, MovementJournal.DISABLED)), 10, 100, 12)
+
+        when:
+        bounded.get("default", "page-1", 0L, this.&serialize)
+        bounded.get("default", "page-2", 0L, this.&serialize)
+        def third = bounded.get("default", "page-3", 0L, this.&serialize)
+
+        then: "the third body is served but not kept"
+        bounded.bytes() == 12L
+        !bounded.get("default", "page-3", 0L, this.&serialize).is(third)
+
+        when: "a commit drops the account's pages"
+        repository.save(new Movement(0L, Movement.MovementType.DEPOSIT, 100L, Instant.now(), "Deposit", null))
+
+        then: "their bytes are given back"
+        bounded.bytes() == 0L
+        bounded.get("default", "page-3", 1L, this.&serialize).is(bounded.get("default", "page-3", 1L, this.&serialize))
+        bounded.bytes() == 6L
+    }
+
+    def "only pages of a bounded size are cached"() {
+        expect:
+        cache.caches(100)
+        !cache.caches(101)
+        !cache.caches(null)
+        !VersionedResponseCache.DISABLED.caches(10)
+    }
+
+    def "a disabled cache serializes every time"() {
+        when:
+        VersionedResponseCache.DISABLED.get("default", "page-1", 0L, this.&serialize)
+        VersionedResponseCache.DISABLED.get("default", "page-1", 0L, this.&serialize)
+
+        then:
+        serializations == 2
+        !VersionedResponseCache.DISABLED.enabled()
+    }
+
+    private byte[] serialize() {
+        serializations++
+        return "page ${serializations}".bytes
+    }
+}
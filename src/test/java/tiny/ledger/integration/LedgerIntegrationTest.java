@@ -1,30 +1,57 @@
 package tiny.ledger.integration;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestComponent;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tiny.ledger.LedgerApplication;
+import tiny.ledger.controller.BinaryMessageConverter;
+import tiny.ledger.dto.AggregatesResponse;
 import tiny.ledger.dto.BalanceResponse;
+import tiny.ledger.dto.BatchTransactionRequest;
+import tiny.ledger.dto.BatchTransactionResponse;
+import tiny.ledger.dto.ErrorResponse;
+import tiny.ledger.dto.ListResponse;
+import tiny.ledger.dto.ReplicaStatus;
 import tiny.ledger.dto.TransactionRequest;
 import tiny.ledger.dto.TransactionResponse;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(LedgerIntegrationTest.ThreadProbe.class)
 class LedgerIntegrationTest {
 
     @Autowired
@@ -230,4 +257,366 @@ class LedgerIntegrationTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldKeepAccountsIsolated() {
+        String account = "acc-" + UUID.randomUUID();
+        TransactionRequest deposit = new TransactionRequest(2500L, "Account deposit", "DEPOSIT");
+        ResponseEntity<TransactionResponse> response = restTemplate.postForEntity("/accounts/" + account + "/transactions", deposit, TransactionResponse.class);
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(1L, response.getBody().id());
+
+        ResponseEntity<BalanceResponse> accountBalance = restTemplate.getForEntity("/accounts/" + account + "/balance", BalanceResponse.class);
+        assertEquals(2500L, accountBalance.getBody().balanceInCents());
+
+        TransactionRequest withdrawal = new TransactionRequest(2501L, "Overdraft on account", "WITHDRAWAL");
+        ResponseEntity<String> rejected = restTemplate.postForEntity("/accounts/" + account + "/transactions", withdrawal, String.class);
+        assertEquals(409, rejected.getStatusCode().value());
+
+        ResponseEntity<String> history = restTemplate.getForEntity("/accounts/" + account + "/transactions", String.class);
+        assertTrue(history.getBody().contains("Account deposit"));
+        assertFalse(restTemplate.getForEntity("/transactions", String.class).getBody().contains("Account deposit"));
+    }
+
+    @Test
+    void shouldNotOpenAccountsOnReads() {
+        String account = "probe-" + UUID.randomUUID();
+        ResponseEntity<ErrorResponse> balance = restTemplate.getForEntity("/accounts/" + account + "/balance", ErrorResponse.class);
+        assertEquals(HttpStatus.NOT_FOUND, balance.getStatusCode());
+        assertEquals(ErrorResponse.ErrorCode.NOT_FOUND, balance.getBody().code());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity("/accounts/" + account + "/transactions", String.class).getStatusCode());
+        assertFalse(List.of(restTemplate.getForObject("/replication/accounts", String[].class)).contains(account));
+    }
+
+    @Test
+    void shouldValidateEveryBatchItem() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String[][] cases = {
+                {"[null]", "Invalid request: [0] must not be null."},
+                {"[{\"amountInCents\":100,\"type\":\"DEPOSIT\"},{\"amountInCents\":0,\"type\":\" \"}]",
+                 "Invalid request: [1].amountInCents must be greater than 0, [1].type must not be blank."},
+                {"[{\"amountInCents\":100,\"type\":\"FOO\"}]", "Invalid type: FOO, expected DEPOSIT or WITHDRAWAL."}
+        };
+        for (String[] invalid : cases) {
+            ResponseEntity<ErrorResponse> response = restTemplate.postForEntity("/transactions/batch", new HttpEntity<>(invalid[0], headers), ErrorResponse.class);
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), invalid[0]);
+            assertEquals(ErrorResponse.ErrorCode.INVALID_INPUT, response.getBody().code());
+            assertEquals(invalid[1], response.getBody().message());
+        }
+    }
+
+    @Test
+    void shouldApplyBatchesAtomically() {
+        String account = "batch-" + UUID.randomUUID();
+        List<BatchTransactionRequest> batch = List.of(
+                new BatchTransactionRequest(1000L, "Batch deposit", "DEPOSIT", "batch-key-1"),
+                new BatchTransactionRequest(400L, "Batch withdrawal", "WITHDRAWAL", null));
+        ResponseEntity<BatchTransactionResponse> created = restTemplate.postForEntity("/accounts/" + account + "/transactions/batch", batch, BatchTransactionResponse.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertEquals(2, created.getBody().count());
+
+        List<BatchTransactionRequest> overdraft = List.of(
+                new BatchTransactionRequest(1000L, "Replayed deposit", "DEPOSIT", "batch-key-1"),
+                new BatchTransactionRequest(100L, "Fresh deposit", "DEPOSIT", null),
+                new BatchTransactionRequest(800L, "Overdraft", "WITHDRAWAL", null));
+        ResponseEntity<String> rejected = restTemplate.postForEntity("/accounts/" + account + "/transactions/batch", overdraft, String.class);
+        assertEquals(409, rejected.getStatusCode().value());
+
+        ResponseEntity<BalanceResponse> balance = restTemplate.getForEntity("/accounts/" + account + "/balance", BalanceResponse.class);
+        assertEquals(600L, balance.getBody().balanceInCents());
+    }
+
+    @Test
+    void shouldAnswerBalanceAtPastPoints() throws InterruptedException {
+        String account = "/accounts/history-" + UUID.randomUUID();
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(1000L, "First", "DEPOSIT"), TransactionResponse.class);
+        TransactionResponse second = restTemplate.postForEntity(account + "/transactions", new TransactionRequest(400L, "Second", "WITHDRAWAL"), TransactionResponse.class).getBody();
+        // The third movement must be created strictly after the second for the asOf balance to exclude it.
+        Thread.sleep(2);
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(50L, "Third", "DEPOSIT"), TransactionResponse.class);
+
+        ResponseEntity<BalanceResponse> atId = restTemplate.getForEntity(account + "/balance?atId=" + second.id(), BalanceResponse.class);
+        assertEquals(600L, atId.getBody().balanceInCents());
+
+        ResponseEntity<BalanceResponse> asOfCreation = restTemplate.getForEntity(account + "/balance?asOf=" + second.createdOn(), BalanceResponse.class);
+        assertEquals(600L, asOfCreation.getBody().balanceInCents());
+
+        ResponseEntity<BalanceResponse> beforeAll = restTemplate.getForEntity(account + "/balance?asOf=2000-01-01T00:00:00Z", BalanceResponse.class);
+        assertEquals(0L, beforeAll.getBody().balanceInCents());
+
+        ResponseEntity<ErrorResponse> unknown = restTemplate.getForEntity(account + "/balance?atId=99", ErrorResponse.class);
+        assertEquals(HttpStatus.NOT_FOUND, unknown.getStatusCode());
+        assertEquals(ErrorResponse.ErrorCode.NOT_FOUND, unknown.getBody().code());
+        assertEquals("Transaction not found: 99", unknown.getBody().message());
+    }
+
+    @Test
+    void shouldAggregateMovementsPerBucket() {
+        String account = "/accounts/aggregates-" + UUID.randomUUID();
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(1000L, "First", "DEPOSIT"), TransactionResponse.class);
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(250L, "Second", "DEPOSIT"), TransactionResponse.class);
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(400L, "Third", "WITHDRAWAL"), TransactionResponse.class);
+
+        ResponseEntity<AggregatesResponse> daily = restTemplate.getForEntity(account + "/aggregates?granularity=day", AggregatesResponse.class);
+        assertEquals(HttpStatus.OK, daily.getStatusCode());
+        assertEquals(2L, daily.getBody().buckets().stream().mapToLong(AggregatesResponse.Bucket::depositCount).sum());
+        assertEquals(1250L, daily.getBody().buckets().stream().mapToLong(AggregatesResponse.Bucket::depositsInCents).sum());
+        assertEquals(1L, daily.getBody().buckets().stream().mapToLong(AggregatesResponse.Bucket::withdrawalCount).sum());
+        assertEquals(400L, daily.getBody().buckets().stream().mapToLong(AggregatesResponse.Bucket::withdrawalsInCents).sum());
+
+        ResponseEntity<String> invalid = restTemplate.getForEntity(account + "/aggregates?granularity=week", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    void shouldFilterTransactionHistory() {
+        String account = "/accounts/filter-" + UUID.randomUUID();
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(10_000L, "Salary", "DEPOSIT"), TransactionResponse.class);
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(3_000L, "Rent, invoice INV-17", "WITHDRAWAL"), TransactionResponse.class);
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(200L, "Coffee", "WITHDRAWAL"), TransactionResponse.class);
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(4_000L, "Car", "WITHDRAWAL"), TransactionResponse.class);
+
+        ResponseEntity<JsonNode> large = restTemplate.getForEntity(account + "/transactions?type=withdrawal&minAmountInCents=1000&limit=1", JsonNode.class);
+        assertEquals(HttpStatus.OK, large.getStatusCode());
+        assertEquals(4L, large.getBody().at("/data/0/id").asLong());
+        ResponseEntity<JsonNode> next = restTemplate.getForEntity(account + "/transactions?type=withdrawal&minAmountInCents=1000&limit=1&after="
+                                                                  + large.getBody().get("nextCursor").asText(), JsonNode.class);
+        assertEquals(2L, next.getBody().at("/data/0/id").asLong());
+
+        ResponseEntity<JsonNode> invoice = restTemplate.getForEntity(account + "/transactions?descriptionToken=inv-17", JsonNode.class);
+        assertEquals(1, invoice.getBody().get("count").asInt());
+        assertEquals("Rent, invoice INV-17", invoice.getBody().at("/data/0/description").asText());
+
+        ResponseEntity<String> invalid = restTemplate.getForEntity(account + "/transactions?type=withdrawal&offset=1", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    void shouldAnswerConditionalGetsWithTheLedgerVersion() {
+        String account = "/accounts/etag-" + UUID.randomUUID();
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(1000L, "First", "DEPOSIT"), TransactionResponse.class);
+
+        ResponseEntity<String> history = restTemplate.getForEntity(account + "/transactions?limit=10", String.class);
+        assertEquals(HttpStatus.OK, history.getStatusCode());
+        assertEquals("\"1\"", history.getHeaders().getETag());
+        assertTrue(history.getBody().contains("\"description\":\"First\""));
+
+        HttpHeaders ifNoneMatch = new HttpHeaders();
+        ifNoneMatch.setIfNoneMatch("\"1\"");
+        ResponseEntity<String> unchanged = restTemplate.exchange(account + "/transactions?limit=10", HttpMethod.GET, new HttpEntity<>(ifNoneMatch), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+        assertNull(unchanged.getBody());
+        ResponseEntity<String> unchangedBalance = restTemplate.exchange(account + "/balance", HttpMethod.GET, new HttpEntity<>(ifNoneMatch), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, unchangedBalance.getStatusCode());
+
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(500L, "Second", "DEPOSIT"), TransactionResponse.class);
+        ResponseEntity<String> changed = restTemplate.exchange(account + "/transactions?limit=10", HttpMethod.GET, new HttpEntity<>(ifNoneMatch), String.class);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertEquals("\"2\"", changed.getHeaders().getETag());
+        assertTrue(changed.getBody().contains("\"description\":\"Second\""));
+        ResponseEntity<BalanceResponse> balance = restTemplate.exchange(account + "/balance", HttpMethod.GET, new HttpEntity<>(ifNoneMatch), BalanceResponse.class);
+        assertEquals(1500L, balance.getBody().balanceInCents());
+    }
+
+    @Test
+    void shouldTailTheLeaderFromAReplica() throws Exception {
+        String account = "replicated-" + UUID.randomUUID();
+        restTemplate.postForEntity("/accounts/" + account + "/transactions",
+                                   new TransactionRequest(5000L, "Replicated deposit", "DEPOSIT"), TransactionResponse.class);
+        try (ConfigurableApplicationContext replica = new SpringApplicationBuilder(LedgerApplication.class)
+                .run("--server.port=0",
+                     "--ledger.write.mode=REPLICA",
+                     "--ledger.replication.leader-url=http://localhost:" + port,
+                     "--ledger.replication.poll-interval=20ms")) {
+            TestRestTemplate replicaClient = new TestRestTemplate(new RestTemplateBuilder().rootUri(
+                    "http://localhost:" + ((WebServerApplicationContext) replica).getWebServer().getPort()));
+            restTemplate.postForEntity("/accounts/" + account + "/transactions",
+                                       new TransactionRequest(1200L, "Replicated withdrawal", "WITHDRAWAL"), TransactionResponse.class);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (replicaClient.getForObject("/accounts/" + account + "/balance", BalanceResponse.class).balanceInCents() != 3800L) {
+                assertTrue(System.nanoTime() < deadline, () -> "replica did not catch up: "
+                                                              + replicaClient.getForObject("/replication/status", String.class));
+                Thread.sleep(20);
+            }
+            assertEquals(restTemplate.getForObject("/accounts/" + account + "/transactions", String.class),
+                         replicaClient.getForObject("/accounts/" + account + "/transactions", String.class));
+
+            ResponseEntity<ErrorResponse> rejected = replicaClient.postForEntity("/accounts/" + account + "/transactions",
+                                                                                 new TransactionRequest(100L, "Write", "DEPOSIT"), ErrorResponse.class);
+            assertEquals(HttpStatus.CONFLICT, rejected.getStatusCode());
+            assertEquals("This ledger is a read-only replica; send writes to the leader.", rejected.getBody().message());
+
+            ReplicaStatus[] statuses = replicaClient.getForObject("/replication/status", ReplicaStatus[].class);
+            ReplicaStatus status = Stream.of(statuses).filter(s -> s.accountId().equals(account)).findFirst().orElseThrow();
+            assertEquals(2L, status.appliedSeq());
+            assertEquals(0L, status.lag());
+            assertNull(status.lastError());
+        }
+    }
+
+    @Test
+    void shouldNegotiateTheBinaryEncoding() throws Exception {
+        String account = "/accounts/binary-" + UUID.randomUUID();
+        HttpHeaders binary = new HttpHeaders();
+        binary.setContentType(BinaryMessageConverter.MEDIA_TYPE);
+        binary.setAccept(List.of(BinaryMessageConverter.MEDIA_TYPE));
+
+        ResponseEntity<byte[]> created = restTemplate.exchange(account + "/transactions", HttpMethod.POST,
+                new HttpEntity<>(BinaryMessageConverter.encode(new TransactionRequest(1000L, "Binary deposit", "DEPOSIT")), binary), byte[].class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertEquals(BinaryMessageConverter.MEDIA_TYPE, created.getHeaders().getContentType());
+        assertEquals("Binary deposit", ((TransactionResponse) BinaryMessageConverter.decode(created.getBody(), TransactionResponse.class)).description());
+
+        List<BatchTransactionRequest> batch = List.of(new BatchTransactionRequest(300L, "Binary withdrawal", "WITHDRAWAL", null));
+        ResponseEntity<byte[]> batchCreated = restTemplate.exchange(account + "/transactions/batch", HttpMethod.POST,
+                new HttpEntity<>(BinaryMessageConverter.encode(batch), binary), byte[].class);
+        assertEquals(HttpStatus.CREATED, batchCreated.getStatusCode());
+        BatchTransactionResponse batchResponse = (BatchTransactionResponse) BinaryMessageConverter.decode(batchCreated.getBody(), BatchTransactionResponse.class);
+        assertEquals(2L, batchResponse.results().get(0).transaction().id());
+
+        for (String query : List.of("?limit=10", "?type=deposit")) {
+            ResponseEntity<byte[]> history = restTemplate.exchange(account + "/transactions" + query, HttpMethod.GET, new HttpEntity<>(binary), byte[].class);
+            assertEquals(BinaryMessageConverter.MEDIA_TYPE, history.getHeaders().getContentType());
+            ListResponse<?> page = (ListResponse<?>) BinaryMessageConverter.decode(history.getBody(), ListResponse.class);
+            assertEquals(query.equals("?limit=10") ? 2 : 1, page.count());
+        }
+
+        ResponseEntity<byte[]> rejected = restTemplate.exchange(account + "/transactions", HttpMethod.POST,
+                new HttpEntity<>(BinaryMessageConverter.encode(new TransactionRequest(5000L, "Too much", "WITHDRAWAL")), binary), byte[].class);
+        assertEquals(HttpStatus.CONFLICT, rejected.getStatusCode());
+        assertEquals(ErrorResponse.ErrorCode.INVALID_STATE, ((ErrorResponse) BinaryMessageConverter.decode(rejected.getBody(), ErrorResponse.class)).code());
+
+        ResponseEntity<String> json = restTemplate.getForEntity(account + "/transactions?limit=10", String.class);
+        assertTrue(json.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON));
+        assertEquals("\"2\"", json.getHeaders().getETag());
+        assertEquals(List.of(HttpHeaders.ACCEPT), json.getHeaders().getVary());
+        ResponseEntity<byte[]> binaryPage = restTemplate.exchange(account + "/transactions?limit=10", HttpMethod.GET, new HttpEntity<>(binary), byte[].class);
+        assertEquals("\"2-b\"", binaryPage.getHeaders().getETag());
+
+        ResponseEntity<byte[]> accounts = restTemplate.exchange("/replication/accounts", HttpMethod.GET, new HttpEntity<>(binary), byte[].class);
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, accounts.getStatusCode());
+    }
+
+    @Test
+    void shouldExportTransactionsInChunks() {
+        String account = "/accounts/export-" + UUID.randomUUID();
+        for (int i = 1; i <= 5; i++) {
+            restTemplate.postForEntity(account + "/transactions", new TransactionRequest(i * 100L, "Deposit, " + i, "DEPOSIT"), TransactionResponse.class);
+        }
+
+        ResponseEntity<String> ndjson = restTemplate.getForEntity(account + "/transactions/export?toId=3", String.class);
+        assertEquals(HttpStatus.OK, ndjson.getStatusCode());
+        assertEquals("application/x-ndjson", ndjson.getHeaders().getContentType().toString());
+        List<String> lines = ndjson.getBody().lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"id\":1,\"amountInCents\":100,"));
+
+        ResponseEntity<String> csv = restTemplate.getForEntity(account + "/transactions/export?format=csv&fromId=4", String.class);
+        List<String> rows = csv.getBody().lines().toList();
+        assertEquals(List.of("id", "4", "5"), rows.stream().map(row -> row.substring(0, row.indexOf(','))).toList());
+        assertTrue(rows.get(1).endsWith(",\"Deposit, 4\",DEPOSIT"));
+
+        ResponseEntity<String> invalid = restTemplate.getForEntity(account + "/transactions/export?fromId=0", String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    void shouldStreamCommittedTransactions() throws Exception {
+        String account = "/accounts/stream-" + UUID.randomUUID();
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(100L, "First", "DEPOSIT"), TransactionResponse.class);
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(200L, "Second", "DEPOSIT"), TransactionResponse.class);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + account + "/transactions/stream"))
+                .header("Last-Event-ID", "1")
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+
+        restTemplate.postForEntity(account + "/transactions", new TransactionRequest(50L, "Third", "WITHDRAWAL"), TransactionResponse.class);
+
+        List<String> ids = CompletableFuture.supplyAsync(() -> response.body()
+                        .filter(line -> line.startsWith("id:"))
+                        .map(line -> line.substring(3).trim())
+                        .limit(2)
+                        .toList())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("2", "3"), ids);
+        response.body().close();
+    }
+
+    @Test
+    void shouldExposeLedgerMetrics() {
+        restTemplate.postForEntity("/transactions", new TransactionRequest(100L, "Metrics deposit", "DEPOSIT"), TransactionResponse.class);
+        restTemplate.getForEntity("/transactions?limit=5", String.class);
+
+        ResponseEntity<String> save = restTemplate.getForEntity("/actuator/metrics/ledger.save", String.class);
+        assertEquals(HttpStatus.OK, save.getStatusCode());
+        assertTrue(save.getBody().contains("\"COUNT\""));
+
+        ResponseEntity<String> history = restTemplate.getForEntity("/actuator/metrics/ledger.history?tag=page.size:1-10", String.class);
+        assertEquals(HttpStatus.OK, history.getStatusCode());
+
+        ResponseEntity<String> size = restTemplate.getForEntity("/actuator/metrics/ledger.size", String.class);
+        assertEquals(HttpStatus.OK, size.getStatusCode());
+    }
+
+    @Test
+    void shouldServeRequestsOnPlatformThreadsByDefault() {
+        ResponseEntity<Map> thread = restTemplate.getForEntity("/test/thread", Map.class);
+
+        assertEquals(HttpStatus.OK, thread.getStatusCode());
+        assertEquals(false, thread.getBody().get("virtual"));
+        assertTrue(((String) thread.getBody().get("name")).startsWith("http-nio-"), (String) thread.getBody().get("name"));
+    }
+
+    @Test
+    void shouldServeRequestsOnVirtualThreadsOrRefuseToStart() {
+        String[] args = {"--server.port=0", "--spring.threads.virtual.enabled=true"};
+        if (Runtime.version().feature() < 21) {
+            Exception e = assertThrows(Exception.class, () -> new SpringApplicationBuilder(LedgerApplication.class).run(args).close());
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertTrue(cause.getMessage().startsWith("spring.threads.virtual.enabled needs Java 21 or later"), cause.getMessage());
+            return;
+        }
+        try (ConfigurableApplicationContext virtual = new SpringApplicationBuilder(LedgerApplication.class, ThreadProbe.class).run(args)) {
+            TestRestTemplate client = new TestRestTemplate(new RestTemplateBuilder().rootUri(
+                    "http://localhost:" + ((WebServerApplicationContext) virtual).getWebServer().getPort()));
+            ResponseEntity<Map> thread = client.getForEntity("/test/thread", Map.class);
+            assertEquals(HttpStatus.OK, thread.getStatusCode());
+            assertEquals(true, thread.getBody().get("virtual"), String.valueOf(thread.getBody().get("name")));
+
+            ResponseEntity<TransactionResponse> response = client.postForEntity(
+                    "/transactions", new TransactionRequest(100L, "Virtual thread deposit", "DEPOSIT"), TransactionResponse.class);
+            assertEquals(HttpStatus.CREATED, response.getStatusCode());
+            assertEquals(100L, response.getBody().amountInCents());
+        }
+    }
+
+    /**
+     * Test-only endpoint reporting the thread serving the request. {@code Thread.isVirtual()} is looked up reflectively
+     * so the test compiles on Java 17, where every thread is a platform thread.
+     */
+    @TestComponent
+    @RestController
+    static class ThreadProbe {
+
+        @GetMapping("/test/thread")
+        Map<String, Object> thread() throws ReflectiveOperationException {
+            Thread thread = Thread.currentThread();
+            boolean virtual;
+            try {
+                virtual = (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+            } catch (NoSuchMethodException e) {
+                virtual = false;
+            }
+            return Map.of("name", thread.getName(), "virtual", virtual);
+        }
+    }
+}
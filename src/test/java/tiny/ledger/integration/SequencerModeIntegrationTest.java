@@ -0,0 +1,59 @@
+package tiny.ledger.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import tiny.ledger.dto.BalanceResponse;
+import tiny.ledger.dto.ErrorResponse;
+import tiny.ledger.dto.TransactionRequest;
+import tiny.ledger.dto.TransactionResponse;
+import tiny.ledger.service.LedgerSequencer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = "ledger.write.mode=SEQUENCER")
+class SequencerModeIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private LedgerSequencer sequencer;
+
+    @Test
+    void shouldAnswerWritesAsynchronously() throws Exception {
+        assertNotNull(sequencer);
+        String account = "/accounts/sequencer-" + UUID.randomUUID();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<ResponseEntity<TransactionResponse>>> deposits = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            TransactionRequest deposit = new TransactionRequest(100L, "Sequenced deposit", "DEPOSIT");
+            deposits.add(CompletableFuture.supplyAsync(
+                    () -> restTemplate.postForEntity(account + "/transactions", deposit, TransactionResponse.class), executor));
+        }
+        for (CompletableFuture<ResponseEntity<TransactionResponse>> deposit : deposits) {
+            assertEquals(HttpStatus.CREATED, deposit.get().getStatusCode());
+        }
+        executor.shutdown();
+
+        TransactionRequest overdraft = new TransactionRequest(10_000L, "Overdraft", "WITHDRAWAL");
+        ResponseEntity<ErrorResponse> rejected = restTemplate.postForEntity(account + "/transactions", overdraft, ErrorResponse.class);
+        assertEquals(HttpStatus.CONFLICT, rejected.getStatusCode());
+        assertEquals("Insufficient funds for this transaction.", rejected.getBody().message());
+
+        ResponseEntity<BalanceResponse> balance = restTemplate.getForEntity(account + "/balance", BalanceResponse.class);
+        assertEquals(5000L, balance.getBody().balanceInCents());
+    }
+}